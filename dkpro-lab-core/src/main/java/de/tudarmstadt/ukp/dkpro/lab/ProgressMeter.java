@@ -36,25 +36,25 @@ public class ProgressMeter
 		_limit = limit;
 	}
 
-	public void next()
+	public synchronized void next()
 	{
 		_count++;
 		_preLast = _last;
 		_last = System.currentTimeMillis();
 	}
 
-	public long getCount()
+	public synchronized long getCount()
 	{
 		return _count;
 	}
-	public void setDone(final long count)
+	public synchronized void setDone(final long count)
 	{
 		_count = count;
 		_preLast = _last;
 		_last = System.currentTimeMillis();
 	}
 
-	public void setLeft(final long count)
+	public synchronized void setLeft(final long count)
 	{
 		_count = _limit - count;
 		_preLast = _last;
@@ -62,7 +62,7 @@ public class ProgressMeter
 	}
 
 	@Override
-	public String toString()
+	public synchronized String toString()
 	{
 		final StringBuilder sb = new StringBuilder();
 		sb.append(_count);
@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.engine;
+
+/**
+ * Generates the IDs of new task contexts. The IDs must be unique within a storage root, also if
+ * several JVMs are using the same storage root at the same time. Implementations must be
+ * thread-safe.
+ */
+public interface ContextIdGenerator
+{
+	/**
+	 * @return a new unique ID.
+	 */
+	String nextId();
+}
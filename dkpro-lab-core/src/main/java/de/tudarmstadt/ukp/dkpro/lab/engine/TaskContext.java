@@ -20,6 +20,8 @@ package de.tudarmstadt.ukp.dkpro.lab.engine;
 import java.io.File;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 
 import de.tudarmstadt.ukp.dkpro.lab.logging.LoggingService;
 import de.tudarmstadt.ukp.dkpro.lab.storage.StorageService;
@@ -126,6 +128,22 @@ public interface TaskContext
 	 */
 	<T extends StreamReader> T retrieveBinary(String aSearchResultKey, T aReader);
 
+	/**
+	 * Open a read-only channel on a resource taking into account imports. Resources stored in the
+	 * context are preferred to imported resources. The caller has to close the channel.
+	 * 
+	 * @see StorageService#retrieveChannel(String, String)
+	 */
+	FileChannel retrieveChannel(String aKey);
+
+	/**
+	 * Map a resource read-only into memory taking into account imports. Resources stored in the
+	 * context are preferred to imported resources.
+	 * 
+	 * @see StorageService#retrieveMapped(String, String)
+	 */
+	MappedByteBuffer retrieveMapped(String aKey);
+
 	/**
 	 * Resolves the given import URI to the meta data of the task containing the addressed resource.
 	 * 
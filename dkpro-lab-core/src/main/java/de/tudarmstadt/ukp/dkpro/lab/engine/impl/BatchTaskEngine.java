@@ -25,9 +25,14 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.URI;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -35,14 +40,26 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Queue;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessResourceFailureException;
 
 import de.tudarmstadt.ukp.dkpro.lab.ProgressMeter;
 import de.tudarmstadt.ukp.dkpro.lab.Util;
+import de.tudarmstadt.ukp.dkpro.lab.engine.ContextIdGenerator;
 import de.tudarmstadt.ukp.dkpro.lab.engine.ExecutionException;
 import de.tudarmstadt.ukp.dkpro.lab.engine.LifeCycleException;
 import de.tudarmstadt.ukp.dkpro.lab.engine.LifeCycleManager;
@@ -54,14 +71,19 @@ import de.tudarmstadt.ukp.dkpro.lab.logging.LoggingService;
 import de.tudarmstadt.ukp.dkpro.lab.storage.StorageService;
 import de.tudarmstadt.ukp.dkpro.lab.storage.TaskContextNotFoundException;
 import de.tudarmstadt.ukp.dkpro.lab.storage.UnresolvedImportException;
+import de.tudarmstadt.ukp.dkpro.lab.storage.filesystem.FileSystemStorageService;
+import de.tudarmstadt.ukp.dkpro.lab.storage.filesystem.FileSystemWorkQueue;
 import de.tudarmstadt.ukp.dkpro.lab.storage.impl.PropertiesAdapter;
 import de.tudarmstadt.ukp.dkpro.lab.task.BatchTask;
 import de.tudarmstadt.ukp.dkpro.lab.task.Dimension;
-import de.tudarmstadt.ukp.dkpro.lab.task.FixedSizeDimension;
-import de.tudarmstadt.ukp.dkpro.lab.task.ParameterSpace;
+import de.tudarmstadt.ukp.dkpro.lab.task.ExplorationStrategy;
 import de.tudarmstadt.ukp.dkpro.lab.task.Task;
 import de.tudarmstadt.ukp.dkpro.lab.task.TaskContextMetadata;
 import de.tudarmstadt.ukp.dkpro.lab.task.TaskFactory;
+import de.tudarmstadt.ukp.dkpro.lab.task.impl.FoldDimensionBundle;
+import de.tudarmstadt.ukp.dkpro.lab.task.impl.GridExplorationStrategy;
+import de.tudarmstadt.ukp.dkpro.lab.task.impl.PartitionedExplorationStrategy;
+import de.tudarmstadt.ukp.dkpro.lab.task.impl.TaskBase;
 
 public class BatchTaskEngine
     implements TaskExecutionEngine
@@ -75,6 +97,114 @@ public class BatchTaskEngine
      */
     public static final String SUBTASKS_KEY = "Subtasks";
 
+    /**
+     * The maximum number of parameter space configurations executed at the same time. Per default
+     * configurations are executed one after the other.
+     */
+    public static final String PROP_CONFIGURATIONS = "engine.batch.maxConfigurations";
+
+    @Value("#{ @Properties['" + PROP_CONFIGURATIONS + "'] ?: 1 }")
+    private int maxConfigurations = 1;
+
+    public void setMaxConfigurations(int aMaxConfigurations)
+    {
+        maxConfigurations = aMaxConfigurations;
+    }
+
+    /**
+     * The maximum number of folds of a {@link FoldDimensionBundle} executed at the same time if
+     * configurations are otherwise executed one after the other. Per default folds are executed
+     * one after the other.
+     */
+    public static final String PROP_FOLDS = "engine.batch.maxFolds";
+
+    @Value("#{ @Properties['" + PROP_FOLDS + "'] ?: 1 }")
+    private int maxFolds = 1;
+
+    public void setMaxFolds(int aMaxFolds)
+    {
+        maxFolds = aMaxFolds;
+    }
+
+    /**
+     * Subtask executions currently running with a copy of the subtask by type and discriminator
+     * fingerprint.
+     */
+    private final ConcurrentMap<String, CountDownLatch> runningSubtasks = 
+            new ConcurrentHashMap<String, CountDownLatch>();
+
+    /**
+     * The name of a partitioned run. If set, the outermost batch task only runs its share of the
+     * configurations, so several processes sharing the same storage root can run the batch task
+     * together. Each process records the job name in the attributes of its batch task context.
+     * 
+     * @see #PROP_PARTITIONS
+     * @see #PROP_MERGE_PARTITIONS
+     */
+    public static final String PROP_PARTITION_JOB = "engine.batch.partitionJob";
+
+    /**
+     * The number of processes in a partitioned run with static partitioning. Each process runs
+     * every configuration whose position modulo this number equals its {@link #PROP_PARTITION}.
+     * If this is not set, configurations are claimed dynamically from a work queue in the storage
+     * root instead, so any number of processes can take part.
+     */
+    public static final String PROP_PARTITIONS = "engine.batch.partitions";
+
+    /**
+     * The partition run by this process if {@link #PROP_PARTITIONS} is set, counting from 0.
+     */
+    public static final String PROP_PARTITION = "engine.batch.partition";
+
+    /**
+     * If set to {@code true}, the outermost batch task does not run any configurations but
+     * collects the subtasks of all partitions of the {@link #PROP_PARTITION_JOB job} and runs
+     * the reports over them. This must only be done once all partitions are complete.
+     */
+    public static final String PROP_MERGE_PARTITIONS = "engine.batch.mergePartitions";
+
+    /**
+     * Attribute recording the partitioned run a batch task context belongs to.
+     */
+    public static final String PARTITION_JOB_KEY = "PartitionJob";
+
+    /**
+     * Attribute recording which partition a batch task context ran.
+     */
+    public static final String PARTITION_KEY = "Partition";
+
+    @Value("#{ @Properties['" + PROP_PARTITION_JOB + "'] }")
+    private String partitionJob;
+
+    @Value("#{ @Properties['" + PROP_PARTITIONS + "'] ?: 0 }")
+    private int partitions = 0;
+
+    @Value("#{ @Properties['" + PROP_PARTITION + "'] ?: 0 }")
+    private int partition = 0;
+
+    @Value("#{ @Properties['" + PROP_MERGE_PARTITIONS + "'] ?: false }")
+    private boolean mergePartitions = false;
+
+    public void setPartitionJob(String aPartitionJob)
+    {
+        partitionJob = aPartitionJob;
+    }
+
+    public void setPartitions(int aPartitions)
+    {
+        partitions = aPartitions;
+    }
+
+    public void setPartition(int aPartition)
+    {
+        partition = aPartition;
+    }
+
+    public void setMergePartitions(boolean aMergePartitions)
+    {
+        mergePartitions = aMergePartitions;
+    }
+
     @Override
     public String run(Task aConfiguration)
         throws ExecutionException, LifeCycleException
@@ -97,44 +227,80 @@ public class BatchTaskEngine
 
             try {
                 BatchTask cfg = (BatchTask) aConfiguration;
-                ParameterSpace parameterSpace = cfg.getParameterSpace();
-                
-                // Try to calculate the parameter space size.
-                int estimatedSize = 1;
-                for (Dimension<?> d : parameterSpace.getDimensions()) {
-                    if (d instanceof FixedSizeDimension) {
-                        FixedSizeDimension fsd = (FixedSizeDimension) d;
-                        if (fsd.size() > 0) {
-                            estimatedSize *= fsd.size();
-                        }
-                    }
-                }
-
                 // A subtask execution may apply to multiple parameter space coordinates!
                 Set<String> executedSubtasks = new LinkedHashSet<String>();
-                
-                ProgressMeter progress = new ProgressMeter(estimatedSize);
-                for (Map<String, Object> config : parameterSpace) {
-                    if (cfg.getConfiguration() != null) {
-                        for (Entry<String, Object> e : cfg.getConfiguration().entrySet()) {
-                            if (!config.containsKey(e.getKey())) {
-                                config.put(e.getKey(), e.getValue());
-                            }
-                        }
+
+                // Only the outermost batch task is partitioned
+                boolean partitioned = StringUtils.isNotBlank(partitionJob)
+                        && !(contextFactory instanceof ScopedTaskContextFactory);
+                if (partitioned && mergePartitions) {
+                    executedSubtasks.addAll(getPartitionSubtasks(cfg, ctx));
+                    cfg.setAttribute(PARTITION_JOB_KEY, partitionJob);
+                    cfg.setAttribute(PARTITION_KEY, null);
+                }
+                else {
+                    ExplorationStrategy strategy = cfg.getExplorationStrategy();
+                    if (strategy == null) {
+                        strategy = new GridExplorationStrategy();
                     }
-                    
-                    log.info("== Running new configuration [" + ctx.getId() + "] ==");
-                    List<String> keys = new ArrayList<String>(config.keySet());
-                    for (String key : keys) {
-                        log.info("[" + key + "]: ["
-                                + StringUtils.abbreviateMiddle(Util.toString(config.get(key)), "…", 150)
-                                + "]");
+                    if (partitioned) {
+                        strategy = partition(strategy, ctx);
+                        cfg.setAttribute(PARTITION_JOB_KEY, partitionJob);
+                        cfg.setAttribute(PARTITION_KEY, partitions > 0 ? partition + "/"
+                                + partitions : "queue");
                     }
+                    strategy.begin(cfg.getParameterSpace());
                     
-                    executeConfiguration(cfg, ctx, config, executedSubtasks);
-
-                    progress.next();
-                    log.info("Completed configuration " + progress);
+                    // Constraints are taken into account, so this is the exact number of
+                    // configurations we are going to run unless the strategy cannot tell in
+                    // advance.
+                    long size = strategy.size();
+                    if (size >= 0) {
+                        log.info("Running " + size + " configurations");
+                    }
+    
+                    // The folds of a configuration only differ in these keys
+                    Set<String> foldKeys = new HashSet<String>();
+                    for (Dimension<?> d : cfg.getParameterSpace().getDimensions()) {
+                        if (d instanceof FoldDimensionBundle) {
+                            foldKeys.add(d.getName());
+                            foldKeys.add(d.getName() + FoldDimensionBundle.SUFFIX_TRAINING);
+                            foldKeys.add(d.getName() + FoldDimensionBundle.SUFFIX_VALIDATION);
+                        }
+                    }
+    
+                    ProgressMeter progress = new ProgressMeter(size);
+                    Iterable<Map<String, Object>> round;
+                    while ((round = strategy.nextRound()) != null) {
+                        if (maxConfigurations > 1) {
+                            ExecutorService executor = Executors
+                                    .newFixedThreadPool(maxConfigurations);
+                            try {
+                                executeConfigurations(cfg, ctx, strategy, round,
+                                        executedSubtasks, progress, executor,
+                                        maxConfigurations);
+                            }
+                            finally {
+                                executor.shutdownNow();
+                            }
+                        }
+                        else if (maxFolds > 1 && !foldKeys.isEmpty()) {
+                            executeFolds(cfg, ctx, strategy, round, foldKeys, executedSubtasks,
+                                    progress);
+                        }
+                        else {
+                            for (Map<String, Object> config : round) {
+                                prepareConfiguration(cfg, ctx, config);
+                                
+                                RecordingSet produced = new RecordingSet(executedSubtasks);
+                                executeConfiguration(cfg, ctx, config, produced);
+                                strategy.complete(ctx, config, produced.getRecorded());
+            
+                                progress.next();
+                                log.info("Completed configuration " + progress);
+                            }
+                        }
+                    }
                 }
 
                 // Set the subtask property and persist again, so the property is available to reports
@@ -173,6 +339,294 @@ public class BatchTaskEngine
         contextFactory = aContextFactory;
     }
     
+    /**
+     * Restrict the given strategy to the partition run by this process.
+     */
+    private ExplorationStrategy partition(ExplorationStrategy aStrategy, TaskContext aContext)
+        throws ExecutionException
+    {
+        if (partitions > 0) {
+            log.info("Running partition " + partition + " of " + partitions + " of job ["
+                    + partitionJob + "]");
+            return new PartitionedExplorationStrategy(aStrategy, partition, partitions);
+        }
+        else {
+            log.info("Running configurations claimed from the work queue of job [" + partitionJob
+                    + "]");
+            return new PartitionedExplorationStrategy(aStrategy, getWorkQueue(aContext));
+        }
+    }
+
+    private FileSystemWorkQueue getWorkQueue(TaskContext aContext)
+        throws ExecutionException
+    {
+        StorageService storage = aContext.getStorageService();
+        if (!(storage instanceof FileSystemStorageService)) {
+            throw new ExecutionException("Partitioning via a work queue requires a ["
+                    + FileSystemStorageService.class.getName() + "]");
+        }
+        return new FileSystemWorkQueue(((FileSystemStorageService) storage).getStorageRoot(),
+                partitionJob);
+    }
+
+    /**
+     * Collect the subtasks of all batch task contexts belonging to the current partitioned run.
+     * The partitions are merged in the order in which they were started.
+     * 
+     * @throws ExecutionException
+     *             if any partition is missing or not complete, or if a configuration taken from
+     *             the work queue was not run by any of the partitions.
+     */
+    private Set<String> getPartitionSubtasks(BatchTask aConfiguration, TaskContext aContext)
+        throws ExecutionException
+    {
+        StorageService storage = aContext.getStorageService();
+        
+        FileSystemWorkQueue queue = null;
+        List<TaskContextMetadata> shards = new ArrayList<TaskContextMetadata>();
+        Map<String, Map<String, String>> attributes = new HashMap<String, Map<String, String>>();
+        for (TaskContextMetadata meta : storage.getContexts(aConfiguration.getType(),
+                new HashMap<String, String>())) {
+            Map<String, String> attrs = storage.retrieveBinary(meta.getId(),
+                    Task.PROPERTIES_KEY, new PropertiesAdapter()).getMap();
+            if (partitionJob.equals(attrs.get(PARTITION_JOB_KEY))
+                    && attrs.get(PARTITION_KEY) != null) {
+                shards.add(meta);
+                attributes.put(meta.getId(), attrs);
+            }
+        }
+        
+        Collections.sort(shards, new Comparator<TaskContextMetadata>()
+        {
+            @Override
+            public int compare(TaskContextMetadata aO1, TaskContextMetadata aO2)
+            {
+                return Long.signum(aO1.getStart() - aO2.getStart());
+            }
+        });
+        
+        if (partitions > 0) {
+            Set<String> missing = new TreeSet<String>();
+            for (int i = 0; i < partitions; i++) {
+                missing.add(i + "/" + partitions);
+            }
+            for (TaskContextMetadata meta : shards) {
+                missing.remove(attributes.get(meta.getId()).get(PARTITION_KEY));
+            }
+            if (!missing.isEmpty()) {
+                throw new ExecutionException("Partitions " + missing + " of job ["
+                        + partitionJob + "] are missing");
+            }
+        }
+        else {
+            queue = getWorkQueue(aContext);
+            List<String> pending = queue.getPending();
+            if (!pending.isEmpty()) {
+                throw new ExecutionException("Configurations " + pending + " of job ["
+                        + partitionJob + "] are not complete");
+            }
+            
+            // Every configuration must have been run by one of the partitions being merged,
+            // otherwise its subtasks would silently be missing
+            Set<String> orphaned = new TreeSet<String>();
+            for (Entry<String, String> e : queue.getCompleted().entrySet()) {
+                if (!attributes.containsKey(e.getValue())) {
+                    orphaned.add(e.getKey());
+                }
+            }
+            if (!orphaned.isEmpty()) {
+                throw new ExecutionException("Configurations " + orphaned + " of job ["
+                        + partitionJob + "] were not run by any of its partitions");
+            }
+        }
+        
+        log.info("Merging " + shards.size() + " partitions of job [" + partitionJob + "]");
+        
+        Set<String> subtasks = new LinkedHashSet<String>();
+        for (TaskContextMetadata meta : shards) {
+            String ids = attributes.get(meta.getId()).get(SUBTASKS_KEY);
+            // Remove the "[]" generated by Collection.toString()
+            ids = ids.substring(1, ids.length() - 1).trim();
+            if (ids.length() > 0) {
+                subtasks.addAll(Arrays.asList(ids.split("\\s*,\\s*")));
+            }
+        }
+        
+        // All configurations have been merged, so the job can be run again under the same name
+        if (queue != null) {
+            queue.clear();
+        }
+        return subtasks;
+    }
+
+    /**
+     * Add the batch task defaults to the given parameter configuration and log it.
+     */
+    private void prepareConfiguration(BatchTask aConfiguration, TaskContext aContext,
+            Map<String, Object> aConfig)
+    {
+        if (aConfiguration.getConfiguration() != null) {
+            for (Entry<String, Object> e : aConfiguration.getConfiguration().entrySet()) {
+                if (!aConfig.containsKey(e.getKey())) {
+                    aConfig.put(e.getKey(), e.getValue());
+                }
+            }
+        }
+        
+        log.info("== Running new configuration [" + aContext.getId() + "] ==");
+        List<String> keys = new ArrayList<String>(aConfig.keySet());
+        for (String key : keys) {
+            log.info("[" + key + "]: ["
+                    + StringUtils.abbreviateMiddle(Util.toString(aConfig.get(key)), "…", 150)
+                    + "]");
+        }
+    }
+    
+    /**
+     * Execute up to the given number of configurations of an exploration round at the same time.
+     * A configuration is only taken from the round when another one has completed. The executed
+     * subtasks are added to the given set in the order of the configurations, not in the order in
+     * which they completed.
+     * 
+     * @see #executeSubtask
+     * 
+     * @param aContext
+     *            the context of the current batch task.
+     * @param aStrategy
+     *            the strategy notified whenever a configuration is complete.
+     * @param aConfigurations
+     *            the configurations to execute.
+     * @param aExecutedSubtasks
+     *            receives the executed subtasks.
+     * @param aProgress
+     *            the progress meter updated whenever a configuration is complete.
+     * @param aExecutor
+     *            the executor running the configurations.
+     * @param aParallelism
+     *            the maximum number of configurations executed at the same time.
+     */
+    private void executeConfigurations(final BatchTask aConfiguration, final TaskContext aContext,
+            final ExplorationStrategy aStrategy, Iterable<Map<String, Object>> aConfigurations,
+            Set<String> aExecutedSubtasks, final ProgressMeter aProgress,
+            ExecutorService aExecutor, int aParallelism)
+        throws ExecutionException, LifeCycleException
+    {
+        // Subtasks executed in one configuration are visible to all configurations
+        Set<String> executedSubtasks = Collections.newSetFromMap(
+                new ConcurrentHashMap<String, Boolean>());
+        executedSubtasks.addAll(aExecutedSubtasks);
+        
+        List<Set<String>> producedSubtasks = new ArrayList<Set<String>>();
+        CompletionService<Void> completionService = new ExecutorCompletionService<Void>(
+                aExecutor);
+        Iterator<Map<String, Object>> configs = aConfigurations.iterator();
+        int running = 0;
+        while (true) {
+            while (running < aParallelism && configs.hasNext()) {
+                final Map<String, Object> config = configs.next();
+                prepareConfiguration(aConfiguration, aContext, config);
+                
+                final RecordingSet produced = new RecordingSet(executedSubtasks);
+                producedSubtasks.add(produced.getRecorded());
+                completionService.submit(new Callable<Void>()
+                {
+                    @Override
+                    public Void call()
+                        throws Exception
+                    {
+                        executeConfiguration(aConfiguration, aContext, config, produced);
+                        aStrategy.complete(aContext, config, produced.getRecorded());
+                        
+                        aProgress.next();
+                        log.info("Completed configuration " + aProgress);
+                        return null;
+                    }
+                });
+                running++;
+            }
+            
+            if (running == 0) {
+                break;
+            }
+            
+            try {
+                completionService.take().get();
+                running--;
+            }
+            catch (java.util.concurrent.ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof ExecutionException) {
+                    throw (ExecutionException) cause;
+                }
+                if (cause instanceof LifeCycleException) {
+                    throw (LifeCycleException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new ExecutionException(cause);
+            }
+            catch (InterruptedException e) {
+                throw new ExecutionException(e);
+            }
+        }
+        
+        for (Set<String> produced : producedSubtasks) {
+            aExecutedSubtasks.addAll(produced);
+        }
+    }
+    
+    /**
+     * Execute the folds of each configuration at the same time on a work-stealing pool of up to
+     * {@link #PROP_FOLDS} threads. Consecutive configurations which only differ in their
+     * {@link FoldDimensionBundle} values are the folds of the same configuration, so the fold
+     * dimensions should come last in the parameter space. The configurations are otherwise
+     * executed one after the other.
+     * 
+     * @param aContext
+     *            the context of the current batch task.
+     * @param aStrategy
+     *            the strategy notified whenever a configuration is complete.
+     * @param aConfigurations
+     *            the configurations to execute.
+     * @param aFoldKeys
+     *            the configuration keys set by the fold dimensions.
+     * @param aExecutedSubtasks
+     *            receives the executed subtasks.
+     * @param aProgress
+     *            the progress meter updated whenever a configuration is complete.
+     */
+    private void executeFolds(BatchTask aConfiguration, TaskContext aContext,
+            ExplorationStrategy aStrategy, Iterable<Map<String, Object>> aConfigurations,
+            Set<String> aFoldKeys, Set<String> aExecutedSubtasks, ProgressMeter aProgress)
+        throws ExecutionException, LifeCycleException
+    {
+        ForkJoinPool pool = new ForkJoinPool(maxFolds);
+        try {
+            List<Map<String, Object>> folds = new ArrayList<Map<String, Object>>();
+            Map<String, Object> current = null;
+            for (Map<String, Object> config : aConfigurations) {
+                Map<String, Object> outer = new HashMap<String, Object>(config);
+                outer.keySet().removeAll(aFoldKeys);
+                if (current != null && !current.equals(outer)) {
+                    executeConfigurations(aConfiguration, aContext, aStrategy, folds,
+                            aExecutedSubtasks, aProgress, pool, maxFolds);
+                    folds.clear();
+                }
+                current = outer;
+                folds.add(config);
+            }
+            
+            if (!folds.isEmpty()) {
+                executeConfigurations(aConfiguration, aContext, aStrategy, folds,
+                        aExecutedSubtasks, aProgress, pool, maxFolds);
+            }
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+    
     /**
      * Locate the latest task execution compatible with the given task configuration.
      * 
@@ -205,11 +659,6 @@ public class BatchTaskEngine
             scope.addAll(aConfiguration.getScope());
         }
 
-        // Configure subtasks
-        for (Task task : aConfiguration.getTasks()) {
-            TaskFactory.configureTask(task, aConfig);
-        }
-
         Queue<Task> queue = new LinkedList<Task>(aConfiguration.getTasks());
         Set<Task> loopDetection = new HashSet<Task>();
 
@@ -218,28 +667,9 @@ public class BatchTaskEngine
             Task task = queue.poll();
 
             try {
-                // Check if a subtask execution compatible with the present configuration has
-                // does already exist ...
-                TaskContextMetadata execution = getExistingExecution(aConfiguration, aContext,
-                        task, aConfig, aExecutedSubtasks);
-                if (execution == null) {
-                    // ... otherwise execute it with the present configuration
-                    log.info("Executing task [" + task.getType() + "]");
-                    
-                    // set scope here so that the inherited scopes are considered 
-                    // set scope here so that tasks added to scope in this loop are considered
-                    if (task instanceof BatchTask) {
-                        ((BatchTask) task).setScope(scope);
-                    }
-                    
-                    execution = runNewExecution(aContext, task, aConfig, aExecutedSubtasks);
-                }                    
-                else {
-                    log.debug("Using existing execution [" + execution.getId() + "]");
-                }
+                TaskContextMetadata execution = executeSubtask(aConfiguration, aContext, task,
+                        aConfig, aExecutedSubtasks, scope);
                 
-                // Record new/existing execution
-                aExecutedSubtasks.add(execution.getId());
                 scope.add(execution.getId());
                 loopDetection.clear();
                 deferralReasons.clear();
@@ -269,6 +699,108 @@ public class BatchTaskEngine
         }
     }
     
+    /**
+     * Use an existing execution of the given subtask compatible with the present configuration or
+     * execute the subtask. The subtask instances are shared by all configurations, so a subtask is
+     * only locked while it is configured and its existing executions are checked. If
+     * configurations are executed in parallel, a copy of the configured subtask is then executed
+     * outside the lock, so the subtask can execute several configurations at the same time. If
+     * another configuration is already executing the subtask with the same discriminators, its
+     * execution is awaited and used instead. Batch tasks and tasks which cannot be copied are
+     * executed while the lock is held.
+     * 
+     * @param aContext
+     *            the context of the current batch task.
+     * @param aTask
+     *            the subtask.
+     * @param aConfig
+     *            the current parameter configuration.
+     * @param aExecutedSubtasks
+     *            already executed subtasks. The execution is added to it.
+     * @param aScope
+     *            the scope of the subtask if it is a batch task.
+     * @return the context meta data of the existing or new execution.
+     */
+    protected TaskContextMetadata executeSubtask(BatchTask aConfiguration, TaskContext aContext,
+            Task aTask, Map<String, Object> aConfig, Set<String> aExecutedSubtasks,
+            Set<String> aScope)
+        throws ExecutionException, LifeCycleException
+    {
+        while (true) {
+            Task instance = null;
+            String key = null;
+            CountDownLatch latch = null;
+            CountDownLatch pending = null;
+            synchronized (aTask) {
+                TaskFactory.configureTask(aTask, aConfig);
+                
+                // Check if a subtask execution compatible with the present configuration has
+                // does already exist ...
+                TaskContextMetadata execution = getExistingExecution(aConfiguration, aContext,
+                        aTask, aConfig, aExecutedSubtasks);
+                if (execution != null) {
+                    log.debug("Using existing execution [" + execution.getId() + "]");
+                    aExecutedSubtasks.add(execution.getId());
+                    return execution;
+                }
+                
+                // ... otherwise execute it with the present configuration
+                if (!isParallel() || aTask instanceof BatchTask || !(aTask instanceof TaskBase)) {
+                    log.info("Executing task [" + aTask.getType() + "]");
+                    
+                    // set scope here so that the inherited scopes are considered
+                    if (aTask instanceof BatchTask) {
+                        ((BatchTask) aTask).setScope(aScope);
+                    }
+                    
+                    execution = runNewExecution(aContext, aTask, aConfig, aExecutedSubtasks);
+                    // Record the execution before another configuration may look for it
+                    aExecutedSubtasks.add(execution.getId());
+                    return execution;
+                }
+                
+                key = aTask.getType() + "|" + TaskBase.fingerprint(aTask.getDescriminators());
+                latch = new CountDownLatch(1);
+                pending = runningSubtasks.putIfAbsent(key, latch);
+                if (pending == null) {
+                    instance = ((TaskBase) aTask).copy();
+                }
+            }
+            
+            if (pending != null) {
+                // Wait for the other configuration and check for an existing execution again
+                try {
+                    pending.await();
+                }
+                catch (InterruptedException e) {
+                    throw new ExecutionException(e);
+                }
+                continue;
+            }
+            
+            try {
+                log.info("Executing task [" + instance.getType() + "]");
+                TaskContextMetadata execution = runNewExecution(aContext, instance, aConfig,
+                        aExecutedSubtasks);
+                // Record the execution before another configuration may look for it
+                aExecutedSubtasks.add(execution.getId());
+                return execution;
+            }
+            finally {
+                runningSubtasks.remove(key);
+                latch.countDown();
+            }
+        }
+    }
+    
+    /**
+     * @return if configurations may be executed in parallel.
+     */
+    protected boolean isParallel()
+    {
+        return maxConfigurations > 1 || maxFolds > 1;
+    }
+    
     /**
      * Locate the latest task execution compatible with the given task configuration.
      * 
@@ -278,14 +810,16 @@ public class BatchTaskEngine
      *            the type of the task context to find.
      * @param aDiscriminators
      *            the discriminators of the task context to find.
+     * @param aFingerprint
+     *            the fingerprint of the discriminators or {@code null} if not known.
      * @param aConfig
      *            the current parameter configuration.
      * @throws TaskContextNotFoundException
      *             if a matching task context could not be found.
-     * @see ImportUtil#matchConstraints(Map, Map, boolean)
+     * @see ConstraintMatcher
      */
     private TaskContextMetadata getLatestExecution(TaskContext aContext, String aType,
-            Map<String, String> aDiscriminators, Map<String, Object> aConfig)
+            Map<String, String> aDiscriminators, String aFingerprint, Map<String, Object> aConfig)
     {
         // Convert parameter values to strings
         Map<String, String> config = new HashMap<String, String>();
@@ -294,13 +828,17 @@ public class BatchTaskEngine
         }
 
         StorageService storage = aContext.getStorageService();
-        List<TaskContextMetadata> metas = storage.getContexts(aType, aDiscriminators);
+        // With a fingerprint, only contexts with the same discriminators need to be looked at
+        List<TaskContextMetadata> metas = aFingerprint != null ? storage.getContexts(aType,
+                aFingerprint, aDiscriminators) : storage.getContexts(aType, aDiscriminators);
+        // The configuration is the same for all candidates, so prepare it for matching only once
+        ConstraintMatcher matcher = new ConstraintMatcher(config, false);
         for (TaskContextMetadata meta : metas) {
             Map<String, String> discriminators = storage.retrieveBinary(meta.getId(),
                     Task.DISCRIMINATORS_KEY, new PropertiesAdapter()).getMap();
             // Check if the task is compatible with the current configuration. To do this, we
             // interpret the discriminators as constraints on the current configuration.
-            if (ImportUtil.matchConstraints(discriminators, config, false)) {
+            if (matcher.matches(discriminators)) {
                 return meta;
             }
         }
@@ -351,8 +889,12 @@ public class BatchTaskEngine
         }
 
         try {
+            // TaskBase caches the fingerprint of its discriminators
+            String fingerprint = aTask instanceof TaskBase ? ((TaskBase) aTask)
+                    .getDiscriminatorFingerprint() : TaskBase.fingerprint(aTask
+                    .getDescriminators());
             TaskContextMetadata meta = getLatestExecution(aContext, aTask.getType(),
-                    aTask.getDescriminators(), aConfig);
+                    aTask.getDescriminators(), fingerprint, aConfig);
 
             // If the task was already executed within the scope of this aggregate, do not execute
             // it again. Catching this here saves us from running tasks with the same configuration
@@ -388,6 +930,57 @@ public class BatchTaskEngine
         }
     }
 
+    /**
+     * Resolve the given import URI against the task contexts visible within the given scope.
+     * 
+     * @param aContext
+     *            the context on whose behalf the import is resolved.
+     * @param aUri
+     *            the import URI.
+     * @param aConfig
+     *            the current parameter configuration.
+     * @param aScope
+     *            the IDs of the task contexts that may be imported from.
+     * @return the context meta data.
+     * @throws UnresolvedImportException
+     *             if the import cannot be resolved within the scope.
+     */
+    protected TaskContextMetadata resolveInScope(TaskContext aContext, URI aUri,
+            Map<String, Object> aConfig, Set<String> aScope)
+    {
+        TaskContextMetadata meta;
+        StorageService storage = aContext.getStorageService();
+        if (LATEST_CONTEXT_SCHEME.equals(aUri.getScheme())) {
+            Map<String, String> constraints = extractConstraints(aUri);
+            try {
+                meta = getLatestExecution(aContext, aUri.getAuthority(), constraints, null,
+                        aConfig);
+            }
+            catch (TaskContextNotFoundException e) {
+                throw new UnresolvedImportException(aContext, aUri.toString(), e);
+            }
+        }
+        else if (CONTEXT_ID_SCHEME.equals(aUri.getScheme())) {
+            try {
+                meta = storage.getContext(aUri.getAuthority());
+            }
+            catch (TaskContextNotFoundException e) {
+                throw new UnresolvedImportException(aContext, aUri.toString(), e);
+            }
+        }
+        else {
+            throw new DataAccessResourceFailureException("Unknown scheme in import [" + aUri
+                    + "]");
+        }
+
+        if (!aScope.contains(meta.getId())) {
+            throw new UnresolvedImportException(aContext, aUri.toString(), "Resolved context ["
+                    + meta.getId() + "] not in scope " + aScope);
+        }
+
+        return meta;
+    }
+
     private boolean ask(TaskContextMetadata aMeta)
     {
         try {
@@ -462,6 +1055,18 @@ public class BatchTaskEngine
             return contextFactory.getId();
         }
 
+        @Override
+        protected String nextId()
+        {
+            return contextFactory.nextId();
+        }
+
+        @Override
+        public ContextIdGenerator getIdGenerator()
+        {
+            return contextFactory.getIdGenerator();
+        }
+
         @Override
         public LifeCycleManager getLifeCycleManager()
         {
@@ -511,36 +1116,54 @@ public class BatchTaskEngine
         @Override
         public TaskContextMetadata resolve(URI aUri)
         {
-            TaskContextMetadata meta;
-            StorageService storage = getStorageService();
-            if (LATEST_CONTEXT_SCHEME.equals(aUri.getScheme())) {
-                Map<String, String> constraints = extractConstraints(aUri);
-                try {
-                    meta = getLatestExecution(this, aUri.getAuthority(), constraints, config);
-                }
-                catch (TaskContextNotFoundException e) {
-                    throw new UnresolvedImportException(this, aUri.toString(), e);
-                }
-            }
-            else if (CONTEXT_ID_SCHEME.equals(aUri.getScheme())) {
-                try {
-                    meta = storage.getContext(aUri.getAuthority());
-                }
-                catch (TaskContextNotFoundException e) {
-                    throw new UnresolvedImportException(this, aUri.toString(), e);
-                }
-            }
-            else {
-                throw new DataAccessResourceFailureException("Unknown scheme in import [" + aUri
-                        + "]");
-            }
+            return resolveInScope(this, aUri, config, scope);
+        }
+    }
 
-            if (!scope.contains(meta.getId())) {
-                throw new UnresolvedImportException(this, aUri.toString(), "Resolved context ["
-                        + meta.getId() + "] not in scope " + scope);
-            }
+    /**
+     * View on the subtasks executed across all configurations which additionally records the
+     * subtasks added through it, i.e. those executed or reused in one particular configuration.
+     */
+    private static class RecordingSet
+        extends AbstractSet<String>
+    {
+        private final Set<String> delegate;
+        private final Set<String> recorded = Collections
+                .synchronizedSet(new LinkedHashSet<String>());
+
+        public RecordingSet(Set<String> aDelegate)
+        {
+            delegate = aDelegate;
+        }
 
-            return meta;
+        public Set<String> getRecorded()
+        {
+            return recorded;
+        }
+
+        @Override
+        public boolean add(String aId)
+        {
+            recorded.add(aId);
+            return delegate.add(aId);
+        }
+
+        @Override
+        public boolean contains(Object aId)
+        {
+            return delegate.contains(aId);
+        }
+
+        @Override
+        public Iterator<String> iterator()
+        {
+            return Collections.unmodifiableSet(delegate).iterator();
+        }
+
+        @Override
+        public int size()
+        {
+            return delegate.size();
         }
     }
 }
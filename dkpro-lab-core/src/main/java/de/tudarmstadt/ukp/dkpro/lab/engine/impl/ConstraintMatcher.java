@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.engine.impl;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Precompiled set of constraints which can be matched efficiently against the discriminators of
+ * many task contexts. Constraint keys containing a {@code |} are fully qualified
+ * ({@code Class|field}) and must equal a discriminator key. Other constraint keys are simple
+ * names and also match any discriminator key ending in {@code |} followed by the simple name. If
+ * several discriminator keys match a constraint, the first one decides.
+ *
+ * @see ImportUtil#matchConstraints(Map, Map, boolean)
+ */
+public class ConstraintMatcher
+{
+	private static final Log log = LogFactory.getLog(ConstraintMatcher.class);
+
+	private static final char SEPARATOR = '|';
+
+	private final Map<String, String> constraints;
+	private final Map<String, String> simpleConstraints;
+	private final boolean strict;
+
+	/**
+	 * @param aConstraints
+	 *            the constraints on the discriminators.
+	 * @param aStrict
+	 *            if {@code true}, a discriminator must be present for every constraint.
+	 */
+	public ConstraintMatcher(Map<String, String> aConstraints, boolean aStrict)
+	{
+		constraints = new HashMap<String, String>(aConstraints);
+		simpleConstraints = new HashMap<String, String>();
+		for (Entry<String, String> e : aConstraints.entrySet()) {
+			if (e.getKey().indexOf(SEPARATOR) == -1) {
+				simpleConstraints.put(e.getKey(), e.getValue());
+			}
+		}
+		strict = aStrict;
+	}
+
+	/**
+	 * Check if the given discriminators satisfy the constraints.
+	 */
+	public boolean matches(Map<String, String> aDiscriminators)
+	{
+		Set<String> matched = new HashSet<String>();
+		for (Entry<String, String> e : aDiscriminators.entrySet()) {
+			String key = e.getKey();
+			if (constraints.containsKey(key) && matched.add(key)) {
+				if (!match(key, key, e.getValue(), constraints.get(key))) {
+					return false;
+				}
+			}
+
+			int sep = key.lastIndexOf(SEPARATOR);
+			if (sep != -1) {
+				String name = key.substring(sep + 1);
+				if (simpleConstraints.containsKey(name) && matched.add(name)) {
+					if (!match(name, key, e.getValue(), simpleConstraints.get(name))) {
+						return false;
+					}
+				}
+			}
+		}
+
+		// If not all constraints have been matched by a key, this is not the context we look for
+		if (strict && matched.size() < constraints.size()) {
+			if (log.isDebugEnabled()) {
+				Set<String> missing = new HashSet<String>(constraints.keySet());
+				missing.removeAll(matched);
+				log.debug("Missing keys: " + missing);
+			}
+			return false;
+		}
+
+		return true;
+	}
+
+	private boolean match(String aConstraint, String aKey, String aValue, String aExpected)
+	{
+		// Issue 12 - Bug when using maps or empty arrays as parameters
+		//            Pattern matching disabled.
+		if (!aExpected.equals(aValue)) {
+			// value does not equal the property value, this is not the context we look for
+			if (log.isDebugEnabled()) {
+				log.debug("No value match: [" + aKey + "] [" + aExpected + "] [" + aValue + "]");
+			}
+			return false;
+		}
+
+		if (log.isTraceEnabled()) {
+			log.trace("Match: [" + aConstraint + "] [" + aKey + "] [" + aValue + "]");
+		}
+		return true;
+	}
+}
@@ -18,34 +18,142 @@
 package de.tudarmstadt.ukp.dkpro.lab.engine.impl;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.springframework.dao.DataAccessResourceFailureException;
 
 import de.tudarmstadt.ukp.dkpro.lab.engine.LifeCycleException;
 import de.tudarmstadt.ukp.dkpro.lab.engine.LifeCycleManager;
 import de.tudarmstadt.ukp.dkpro.lab.engine.TaskContext;
-import de.tudarmstadt.ukp.dkpro.lab.reporting.Report;
 import de.tudarmstadt.ukp.dkpro.lab.task.Task;
 import de.tudarmstadt.ukp.dkpro.lab.task.TaskContextMetadata;
 
+/**
+ * Default life cycle. The context metadata is written when the task and all its reports have
+ * completed successfully. If the task fails, its context is deleted. Reports are run by a
+ * {@link ReportExecutor}.
+ * <p>
+ * If {@link #PROP_MEMORY_BASELINE} is enabled, a garbage collection is forced before each task
+ * and the heap usage and garbage collection statistics of the task are recorded in the context
+ * metadata. This is meant for measuring the memory consumption of tasks which are run one at a
+ * time. It is disabled by default, because forcing a garbage collection before every task is
+ * expensive and pauses all other tasks running in parallel. Note that the statistics cover the
+ * whole JVM, so they also include the activity of tasks running in parallel.
+ * <p>
+ * The time spent in each phase of the life cycle, the CPU time and the memory allocated by the
+ * thread running the task, and the bytes read and written through the {@link TaskContext} are
+ * always recorded as statistics in the context metadata. All times are in nanoseconds, except for
+ * the garbage collection time, which is in milliseconds. CPU time and allocation are only recorded
+ * if the JVM supports measuring them, and they do not include work done by other threads, e.g.
+ * subtasks run in parallel by a batch task.
+ *
+ * @see TaskContextMetadata#getStatistics()
+ */
 public class DefaultLifeCycleManager
 	implements LifeCycleManager
 {
+	/**
+	 * Lab property to enable recording a memory baseline for each task (default: {@code false}).
+	 */
+	public static final String PROP_MEMORY_BASELINE = "engine.lifecycle.memoryBaseline";
+
+	/**
+	 * Lab property to set the maximum number of reports of a task run concurrently (default:
+	 * {@code 1}). Reports which have to run after other reports declare this using
+	 * {@link de.tudarmstadt.ukp.dkpro.lab.reporting.RunsAfter RunsAfter}.
+	 */
+	public static final String PROP_REPORT_THREADS = "engine.lifecycle.reportThreads";
+
+	public static final String STAT_HEAP_USED_BEGIN = "memory.heapUsedBegin";
+	public static final String STAT_HEAP_USED_END = "memory.heapUsedEnd";
+	public static final String STAT_HEAP_COMMITTED = "memory.heapCommitted";
+	public static final String STAT_HEAP_MAX = "memory.heapMax";
+	public static final String STAT_GC_COUNT = "gc.count";
+	public static final String STAT_GC_TIME = "gc.time";
+
+	public static final String STAT_TIME_RESOLVE_IMPORTS = "time.resolveImports";
+	public static final String STAT_TIME_INITIALIZE = "time.initialize";
+	public static final String STAT_TIME_BEGIN = "time.begin";
+	public static final String STAT_TIME_EXECUTE = "time.execute";
+	public static final String STAT_TIME_REPORTS = "time.reports";
+	/**
+	 * Prefix of the time spent in each report. The report class name is appended.
+	 */
+	public static final String STAT_TIME_REPORT = "time.report.";
+	public static final String STAT_CPU_TIME = "cpu.time";
+	public static final String STAT_CPU_USER_TIME = "cpu.userTime";
+	public static final String STAT_ALLOCATED = "memory.allocated";
+	public static final String STAT_BYTES_READ = "io.bytesRead";
+	public static final String STAT_BYTES_WRITTEN = "io.bytesWritten";
+
+	private Properties properties;
+	private boolean memoryBaseline = false;
+	private int reportThreads = 1;
+
+	/**
+	 * Resource usage at the beginning of the tasks currently executing.
+	 */
+	private final ConcurrentMap<String, Execution> executions = new ConcurrentHashMap<String, Execution>();
+
+	/**
+	 * Set the Lab properties from which {@link #PROP_MEMORY_BASELINE} is read.
+	 */
+	public void setProperties(Properties aProperties)
+	{
+		properties = aProperties;
+	}
+
+	/**
+	 * Enable recording a memory baseline for each task regardless of
+	 * {@link #PROP_MEMORY_BASELINE}.
+	 */
+	public void setMemoryBaseline(boolean aMemoryBaseline)
+	{
+		memoryBaseline = aMemoryBaseline;
+	}
+
+	/**
+	 * Set the maximum number of reports of a task run concurrently. This is overridden by
+	 * {@link #PROP_REPORT_THREADS} if it is set.
+	 */
+	public void setReportThreads(int aReportThreads)
+	{
+		reportThreads = aReportThreads;
+	}
+
+	public int getReportThreads()
+	{
+		String value = properties != null ? properties.getProperty(PROP_REPORT_THREADS) : null;
+		return value != null ? Integer.parseInt(value) : reportThreads;
+	}
+
+	public boolean isMemoryBaseline()
+	{
+		return memoryBaseline
+		        || (properties != null && Boolean.parseBoolean(properties
+		                .getProperty(PROP_MEMORY_BASELINE)));
+	}
+
 	@Override
 	public void initialize(TaskContext aContext,
 			Task aConfiguration)
 		throws LifeCycleException
 	{
+		long start = System.nanoTime();
 		try {
 			aConfiguration.persist(aContext);
 		}
 		catch (IOException e) {
 			throw new LifeCycleException(e);
 		}
+		aContext.getMetadata().setStatistic(STAT_TIME_INITIALIZE, System.nanoTime() - start);
 
 		aContext.message("Initialized task ["+aConfiguration.getType()+"]");
 	}
@@ -54,73 +162,92 @@ public class DefaultLifeCycleManager
 	public void begin(TaskContext aContext,
 			Task aConfiguration)
 	{
-		for (int g = 0; g < 3; g++) {
+		long start = System.nanoTime();
+		TaskContextMetadata metadata = aContext.getMetadata();
+		Execution execution = new Execution();
+		if (isMemoryBaseline()) {
 			System.gc();
+			metadata.setStatistic(STAT_HEAP_USED_BEGIN, ManagementFactory.getMemoryMXBean()
+					.getHeapMemoryUsage().getUsed());
+			execution.gc = getGcStatistics();
 		}
-		aContext.getMetadata().setStart(System.currentTimeMillis());
+		metadata.setStart(System.currentTimeMillis());
 		aContext.message("Starting task ["+aConfiguration.getType()+"]");
+
+		execution.thread = Thread.currentThread().getId();
+		execution.cpuTime = getCpuTime(false);
+		execution.userTime = getCpuTime(true);
+		execution.allocated = getAllocatedBytes();
+		execution.started = System.nanoTime();
+		metadata.setStatistic(STAT_TIME_BEGIN, execution.started - start);
+		executions.put(aContext.getId(), execution);
 	}
 
 	@Override
 	public void complete(TaskContext aContext, Task aConfiguration)
 		throws LifeCycleException
 	{
-		aContext.getMetadata().setEnd(System.currentTimeMillis());
+		long executed = System.nanoTime();
+		TaskContextMetadata metadata = aContext.getMetadata();
+		metadata.setEnd(System.currentTimeMillis());
+		Execution execution = executions.remove(aContext.getId());
+		if (execution != null) {
+			metadata.setStatistic(STAT_TIME_EXECUTE, executed - execution.started);
+			// The task may have been completed on a different thread than it was begun on
+			if (execution.thread == Thread.currentThread().getId()) {
+				setDelta(metadata, STAT_CPU_TIME, execution.cpuTime, getCpuTime(false));
+				setDelta(metadata, STAT_CPU_USER_TIME, execution.userTime, getCpuTime(true));
+				setDelta(metadata, STAT_ALLOCATED, execution.allocated, getAllocatedBytes());
+			}
+		}
+		if (execution != null && execution.gc != null) {
+			MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+			metadata.setStatistic(STAT_HEAP_USED_END, heap.getUsed());
+			metadata.setStatistic(STAT_HEAP_COMMITTED, heap.getCommitted());
+			metadata.setStatistic(STAT_HEAP_MAX, heap.getMax());
+			long[] gc = getGcStatistics();
+			metadata.setStatistic(STAT_GC_COUNT, gc[0] - execution.gc[0]);
+			metadata.setStatistic(STAT_GC_TIME, gc[1] - execution.gc[1]);
+		}
 		aContext.message("Completing task ["+aConfiguration.getType()+"]");
 		aContext.message("Running reports for task ["+aConfiguration.getType()+"]");
-		List<Class<? extends Report>> reports = new ArrayList<Class<? extends Report>>(
-				aConfiguration.getReports());
-		Collections.sort(reports, new Comparator<Class<?>>()
-		{
-			@Override
-			public int compare(Class<?> aO1, Class<?> aO2)
-			{
-				return aO1.getName().compareTo(aO2.getName());
-			}
-		});
-		int i = 1;
-		for (Class<? extends Report> reportClass : reports) {
-			for (int g = 0; g < 3; g++) {
-				System.gc();
-			}
-			try {
-				aContext.message("Starting report [" + reportClass.getName() + "] (" + i + "/"
-						+ reports.size() + ")");
-				Report report = reportClass.newInstance();
-				report.setContext(aContext);
-				report.execute();
-				aContext.message("Report complete [" + reportClass.getName() + "] (" + i + "/"
-						+ reports.size() + ")");
-			}
-			catch (Exception e) {
-				aContext.error("Report failed [" + reportClass.getName() + "] (" + i + "/"
-						+ reports.size() + ")", e);
-				throw new LifeCycleException(e);
-			}
-			finally {
-				i++;
-			}
+		long start = System.nanoTime();
+		ReportExecutor reportExecutor = new ReportExecutor(aContext, getReportThreads());
+		reportExecutor.execute(aConfiguration.getReports());
+		metadata.setStatistic(STAT_TIME_REPORTS, System.nanoTime() - start);
+		for (Map.Entry<String, Long> e : reportExecutor.getReportTimes().entrySet()) {
+			metadata.setStatistic(STAT_TIME_REPORT + e.getKey(), e.getValue());
 		}
-		
+
+		if (aContext instanceof DefaultTaskContext) {
+			metadata.setStatistic(STAT_BYTES_READ, ((DefaultTaskContext) aContext).getBytesRead());
+			metadata.setStatistic(STAT_BYTES_WRITTEN,
+					((DefaultTaskContext) aContext).getBytesWritten());
+		}
+
 		// This is a critical file as it marks if a task has completed successfully or not. If
 		// this file cannot be created properly, e.g. because the disk is full, then there will be
 		// subsequent and hard to debug errors. Thus, if the file cannot be created properly, any
 		// potentially incomplete version of this file has to be deleted.
+		start = System.nanoTime();
 		try {
-			aContext.storeBinary(TaskContextMetadata.METADATA_KEY, aContext.getMetadata());
+			aContext.storeBinary(TaskContextMetadata.METADATA_KEY, metadata);
 		}
 		catch (Throwable e) {
 			aContext.getStorageService().delete(aContext.getId(), TaskContextMetadata.METADATA_KEY);
 			throw new LifeCycleException("Unable to write [" + TaskContextMetadata.METADATA_KEY
 					+ "] to mark context as complete.", e);
 		}
-		aContext.message("Completed task ["+aConfiguration.getType()+"]");
+		// The time to write the metadata cannot be recorded in the metadata itself
+		aContext.message("Completed task [" + aConfiguration.getType() + "] (metadata written in "
+				+ ((System.nanoTime() - start) / 1000000) + "ms)");
 	}
 
 	@Override
 	public void fail(TaskContext aContext, Task aConfiguration, Throwable aCause)
 		throws LifeCycleException
 	{
+		executions.remove(aContext.getId());
 		try {
 			aContext.getStorageService().delete(aContext.getId());
 		}
@@ -131,9 +258,76 @@ public class DefaultLifeCycleManager
 		aContext.error("Task failed ["+aConfiguration.getType()+"]", aCause);
 	}
 
+	private static void setDelta(TaskContextMetadata aMetadata, String aKey, long aBegin, long aEnd)
+	{
+		if (aBegin >= 0 && aEnd >= 0) {
+			aMetadata.setStatistic(aKey, aEnd - aBegin);
+		}
+	}
+
+	/**
+	 * Get the CPU time of the current thread in nanoseconds.
+	 *
+	 * @return the time or {@code -1} if the JVM does not measure it.
+	 */
+	private static long getCpuTime(boolean aUserOnly)
+	{
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (!threads.isCurrentThreadCpuTimeSupported() || !threads.isThreadCpuTimeEnabled()) {
+			return -1;
+		}
+		return aUserOnly ? threads.getCurrentThreadUserTime() : threads.getCurrentThreadCpuTime();
+	}
+
+	/**
+	 * Get the number of bytes allocated by the current thread so far.
+	 *
+	 * @return the number of bytes or {@code -1} if the JVM does not measure it.
+	 */
+	private static long getAllocatedBytes()
+	{
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+			if (sunThreads.isThreadAllocatedMemorySupported()
+					&& sunThreads.isThreadAllocatedMemoryEnabled()) {
+				return sunThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Get the number of garbage collections and the time spent on them in milliseconds, summed
+	 * over all collectors.
+	 */
+	private static long[] getGcStatistics()
+	{
+		long[] result = new long[2];
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			// Collectors return -1 if the value is undefined
+			result[0] += Math.max(0, gc.getCollectionCount());
+			result[1] += Math.max(0, gc.getCollectionTime());
+		}
+		return result;
+	}
+
 	@Override
 	public void destroy(TaskContext aContext)
 	{
 		aContext.message("Shut down task");
 	}
+
+	/**
+	 * Resource usage at the beginning of a task. Values are {@code -1} if not available.
+	 */
+	private static class Execution
+	{
+		long thread;
+		long started;
+		long cpuTime;
+		long userTime;
+		long allocated;
+		long[] gc;
+	}
 }
@@ -28,7 +28,10 @@ import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.dao.DataAccessResourceFailureException;
 
@@ -57,6 +60,9 @@ public class DefaultTaskContext
 	private TaskContextMetadata metadata;
 	private TaskExecutionService executionService;
 
+	private final AtomicLong bytesRead = new AtomicLong();
+	private final AtomicLong bytesWritten = new AtomicLong();
+
 	public DefaultTaskContext(final TaskContextFactory aOwner)
 	{
 		owner = aOwner;
@@ -149,6 +155,7 @@ public class DefaultTaskContext
 	{
 		// Data is always stored to the current context. No need to resolve.
 		getStorageService().storeBinary(getId(), aPath, aStreamWriter);
+		bytesWritten.addAndGet(getSize(getId(), aPath));
 	}
 
 	@Override
@@ -156,6 +163,7 @@ public class DefaultTaskContext
 	{
 		// Data is always stored to the current context. No need to resolve.
 		getStorageService().storeBinary(getId(), aPath, aStream);
+		bytesWritten.addAndGet(getSize(getId(), aPath));
 	}
 
 	@Override
@@ -169,7 +177,49 @@ public class DefaultTaskContext
 	public <T extends StreamReader> T retrieveBinary(String aPath, T aReader)
 	{
 		StorageKey key = resolve(aPath, AccessMode.READONLY, false);
-		return getStorageService().retrieveBinary(key.contextId, key.key, aReader);
+		T reader = getStorageService().retrieveBinary(key.contextId, key.key, aReader);
+		bytesRead.addAndGet(getSize(key.contextId, key.key));
+		return reader;
+	}
+
+	@Override
+	public FileChannel retrieveChannel(String aPath)
+	{
+		StorageKey key = resolve(aPath, AccessMode.READONLY, false);
+		return getStorageService().retrieveChannel(key.contextId, key.key);
+	}
+
+	@Override
+	public MappedByteBuffer retrieveMapped(String aPath)
+	{
+		StorageKey key = resolve(aPath, AccessMode.READONLY, false);
+		MappedByteBuffer buffer = getStorageService().retrieveMapped(key.contextId, key.key);
+		bytesRead.addAndGet(buffer.capacity());
+		return buffer;
+	}
+
+	/**
+	 * Get the number of bytes read through {@link #retrieveBinary} and {@link #retrieveMapped}.
+	 * Data accessed through channels, files or folders is not included.
+	 */
+	public long getBytesRead()
+	{
+		return bytesRead.get();
+	}
+
+	/**
+	 * Get the number of bytes stored through {@link #storeBinary}. For compressed keys, this is the
+	 * compressed size. Data written to files or folders is not included.
+	 */
+	public long getBytesWritten()
+	{
+		return bytesWritten.get();
+	}
+
+	private long getSize(String aContextId, String aKey)
+	{
+		File file = getStorageService().locateKey(aContextId, aKey);
+		return file.isFile() ? file.length() : 0;
 	}
 
 	public void setMetadata(TaskContextMetadata aMetadata)
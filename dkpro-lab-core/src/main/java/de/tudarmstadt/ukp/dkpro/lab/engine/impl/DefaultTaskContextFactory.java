@@ -27,10 +27,10 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.safehaus.uuid.UUIDGenerator;
 import org.springframework.beans.factory.BeanNameAware;
 import org.springframework.beans.factory.annotation.Required;
 
+import de.tudarmstadt.ukp.dkpro.lab.engine.ContextIdGenerator;
 import de.tudarmstadt.ukp.dkpro.lab.engine.LifeCycleManager;
 import de.tudarmstadt.ukp.dkpro.lab.engine.TaskContext;
 import de.tudarmstadt.ukp.dkpro.lab.engine.TaskContextFactory;
@@ -51,11 +51,13 @@ public class DefaultTaskContextFactory
 	private LoggingService loggingService;
 	private LifeCycleManager lifeCycleManager;
 	private TaskExecutionService executionService;
+	private ContextIdGenerator idGenerator;
 
 	private String beanName;
 
 	{
 		contexts = new ConcurrentHashMap<String, TaskContext>();
+		idGenerator = new TimeBasedUuidGenerator();
 	}
 
 	@Override
@@ -95,7 +97,10 @@ public class DefaultTaskContextFactory
 		metadata.setImports(aConfiguration.getImports());
 
 		TaskContext ctx = createContext(metadata);
+		long start = System.nanoTime();
 		resolveImports(ctx);
+		metadata.setStatistic(DefaultLifeCycleManager.STAT_TIME_RESOLVE_IMPORTS,
+				System.nanoTime() - start);
 
 		registerContext(ctx);
 		return ctx;
@@ -153,7 +158,7 @@ public class DefaultTaskContextFactory
 
 	protected String nextId()
 	{
-		return UUIDGenerator.getInstance().generateTimeBasedUUID().toString();
+		return idGenerator.nextId();
 	}
 
 	@Override
@@ -216,4 +221,18 @@ public class DefaultTaskContextFactory
 	{
 		return executionService;
 	}
+
+	/**
+	 * Set the generator for the IDs of new contexts. Per default, time-based UUIDs are used. The
+	 * {@link SequentialIdGenerator} produces shorter, sortable IDs without locking.
+	 */
+	public void setIdGenerator(ContextIdGenerator aIdGenerator)
+	{
+		idGenerator = aIdGenerator;
+	}
+
+	public ContextIdGenerator getIdGenerator()
+	{
+		return idGenerator;
+	}
 }
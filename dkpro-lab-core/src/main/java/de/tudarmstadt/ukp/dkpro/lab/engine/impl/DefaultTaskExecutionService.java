@@ -21,9 +21,15 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.RootBeanDefinition;
 import org.springframework.core.io.Resource;
 
 import de.tudarmstadt.ukp.dkpro.lab.engine.TaskContextFactory;
@@ -40,9 +46,13 @@ public class DefaultTaskExecutionService
 	private TaskContextFactory contextFactory;
 
 	private final Map<Class<? extends Task>, Class<? extends TaskExecutionEngine>> map;
+	
+	// Engine factory per concrete task class
+	private final ConcurrentMap<Class<?>, ObjectFactory<TaskExecutionEngine>> factories;
 
 	{
 		map = new HashMap<Class<? extends Task>, Class<? extends TaskExecutionEngine>>();
+		factories = new ConcurrentHashMap<Class<?>, ObjectFactory<TaskExecutionEngine>>();
 	}
 
 	@Override
@@ -53,28 +63,65 @@ public class DefaultTaskExecutionService
 		return engine.run(aConfiguration);
 	}
 
+	/**
+	 * Create an engine for the given task. The engine class is resolved only once per task class
+	 * and engines are obtained from a prototype bean definition registered for the engine class.
+	 */
 	@Override
 	public TaskExecutionEngine createEngine(Task aConfiguration)
 	{
-		try {
+		ObjectFactory<TaskExecutionEngine> factory = factories.get(aConfiguration.getClass());
+		if (factory == null) {
 			for (Class<? extends Task> taskClass : map.keySet()) {
 				if (taskClass.isAssignableFrom(aConfiguration.getClass())) {
-					TaskExecutionEngine engine = map.get(taskClass).newInstance();
-					engine.setContextFactory(contextFactory);
-					beanFactory.autowireBean(engine);
-					return engine;
+					factory = createFactory(map.get(taskClass));
+					factories.put(aConfiguration.getClass(), factory);
+					break;
 				}
 			}
 		}
-		catch (InstantiationException e) {
-			throw new RuntimeException(e);
-		}
-		catch (IllegalAccessException e) {
-			throw new RuntimeException(e);
+		
+		if (factory == null) {
+			throw new IllegalArgumentException("No engine registered for type ["
+					+ aConfiguration.getClass().getName() + "]");
 		}
+		
+		TaskExecutionEngine engine = factory.getObject();
+		engine.setContextFactory(contextFactory);
+		return engine;
+	}
 
-		throw new IllegalArgumentException("No engine registered for type ["
-				+ aConfiguration.getClass().getName() + "]");
+	private ObjectFactory<TaskExecutionEngine> createFactory(
+			final Class<? extends TaskExecutionEngine> aEngineClass)
+	{
+		if (!(beanFactory instanceof BeanDefinitionRegistry)) {
+			// Without a registry, at least let Spring run the full bean life cycle every time
+			return new ObjectFactory<TaskExecutionEngine>()
+			{
+				@Override
+				public TaskExecutionEngine getObject()
+				{
+					return beanFactory.createBean(aEngineClass);
+				}
+			};
+		}
+		
+		// Spring caches the merged definition and the injection metadata of a registered bean
+		final String beanName = getClass().getName() + "#" + aEngineClass.getName();
+		BeanDefinitionRegistry registry = (BeanDefinitionRegistry) beanFactory;
+		if (!registry.containsBeanDefinition(beanName)) {
+			RootBeanDefinition definition = new RootBeanDefinition(aEngineClass);
+			definition.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+			registry.registerBeanDefinition(beanName, definition);
+		}
+		return new ObjectFactory<TaskExecutionEngine>()
+		{
+			@Override
+			public TaskExecutionEngine getObject()
+			{
+				return (TaskExecutionEngine) beanFactory.getBean(beanName);
+			}
+		};
 	}
 
 	@SuppressWarnings("unchecked")
@@ -92,17 +139,20 @@ public class DefaultTaskExecutionService
 						(Class<? extends TaskExecutionEngine>) Class.forName(engineClass, true, cl));
 			}
 		}
+		factories.clear();
 	}
 	
     public void registerEngine(Class<? extends Task> aTaskClazz,
             Class<? extends TaskExecutionEngine> aEngineClazz)
     {
         map.put(aTaskClazz, aEngineClazz);
+        factories.clear();
     }
     
     public void unregisterEngine(Class<? extends Task> aTaskClazz)
     {
         map.remove(aTaskClazz);
+        factories.clear();
     }
     
     public Class<? extends TaskExecutionEngine> getEngine(Class<? extends Task> aTaskClazz)
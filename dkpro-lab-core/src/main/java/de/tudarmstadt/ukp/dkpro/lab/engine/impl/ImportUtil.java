@@ -22,68 +22,25 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
-import java.util.regex.Pattern;
 
 import javax.ws.rs.core.MultivaluedMap;
 
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
-
 import de.tudarmstadt.ukp.dkpro.lab.resteasy.UriInfoImpl;
 import de.tudarmstadt.ukp.dkpro.lab.storage.TaskContextNotFoundException;
 
 public class ImportUtil
 {
-	private static final Log log = LogFactory.getLog(ImportUtil.class);
-
+	/**
+	 * Check if the given discriminators satisfy the given constraints. When matching many sets of
+	 * discriminators against the same constraints, create a {@link ConstraintMatcher} once and
+	 * use it for all of them.
+	 *
+	 * @see ConstraintMatcher
+	 */
 	public static boolean matchConstraints(Map<String, String> aDiscriminators,
 			Map<String, String> aConstraints, boolean aStrict)
 	{
-		nextconstraint: for (Entry<String, String> e : aConstraints.entrySet()) {
-			String keyPattern = e.getKey();
-			String valuePattern = "^" + e.getValue() + "$";
-
-			// If a property is not specified with a full class name, then we only use the
-			// simple property name for matching
-			if (!keyPattern.contains(Pattern.quote("|"))) {
-				keyPattern = ".*" + Pattern.quote("|") + keyPattern;
-			}
-			keyPattern = "^"+keyPattern+"$";
-
-			Set<String> keys = aDiscriminators.keySet();
-			nextKey: for (String key : keys) {
-				// Pattern matching must remain active here!!
-				if (!(e.getKey().equals(key) || Pattern.matches(keyPattern, key) )) {
-					// key pattern does not match or equal the key. Try next key
-					log.trace("No key match: ["+keyPattern+"] ["+key+"]");
-					continue nextKey;
-				}
-
-				String val = aDiscriminators.get(key);
-				// Issue 12 - Bug when using maps or empty arrays as parameters
-				//            Pattern matching disabled.
-				if (!(e.getValue().equals(val) /* || Pattern.matches(valuePattern, val)*/ )) {
-					// value pattern does not match or equal the property value, this is
-					// not the context we look for
-					log.debug("No value match: ["+key+"] ["+valuePattern+"] ["+val+"]");
-					return false;
-				}
-				else {
-					// Ok, this key matched, so we can continue with the next constraint
-					log.trace("Match: ["+key+"] ["+val+"]");
-					continue nextconstraint;
-				}
-			}
-
-			// If we get here no key has matched the constraint, thus this is not the
-			// context we look for
-			if (aStrict) {
-				log.debug("Missing key: ["+keyPattern+"]");
-				return false;
-			}
-		}
-		return true;
+		return new ConstraintMatcher(aConstraints, aStrict).matches(aDiscriminators);
 	}
 
 	public static Map<String, String> extractConstraints(URI aUri)
@@ -17,14 +17,23 @@
  */
 package de.tudarmstadt.ukp.dkpro.lab.engine.impl;
 
+import static de.tudarmstadt.ukp.dkpro.lab.storage.StorageService.CONTEXT_ID_SCHEME;
+import static de.tudarmstadt.ukp.dkpro.lab.storage.StorageService.LATEST_CONTEXT_SCHEME;
+
+import java.net.URI;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -36,14 +45,20 @@ import org.springframework.beans.factory.annotation.Value;
 import de.tudarmstadt.ukp.dkpro.lab.engine.ExecutionException;
 import de.tudarmstadt.ukp.dkpro.lab.engine.LifeCycleException;
 import de.tudarmstadt.ukp.dkpro.lab.engine.TaskContext;
-import de.tudarmstadt.ukp.dkpro.lab.engine.TaskExecutionEngine;
-import de.tudarmstadt.ukp.dkpro.lab.engine.TaskExecutionService;
 import de.tudarmstadt.ukp.dkpro.lab.storage.UnresolvedImportException;
 import de.tudarmstadt.ukp.dkpro.lab.task.BatchTask;
 import de.tudarmstadt.ukp.dkpro.lab.task.Task;
 import de.tudarmstadt.ukp.dkpro.lab.task.TaskContextMetadata;
 import de.tudarmstadt.ukp.dkpro.lab.task.TaskFactory;
 
+/**
+ * Batch task engine executing the subtasks of a configuration in parallel. The data dependencies
+ * between the subtasks are derived from their imports before any subtask is run. A subtask is
+ * started as soon as all subtasks it imports from have completed. Cyclic dependencies and imports
+ * of context IDs which do not exist are reported before any work is done. Other imports which
+ * cannot be resolved when a subtask is run, e.g. because they are produced by a subtask of a
+ * nested batch task, are retried whenever another subtask has completed.
+ */
 public class MultiThreadBatchTaskEngine
     extends BatchTaskEngine
 {
@@ -54,6 +69,12 @@ public class MultiThreadBatchTaskEngine
     @Value("#{ @Properties['" + PROP_THREADS + "'] }")
     private int maxThreads = Runtime.getRuntime().availableProcessors() - 1;
     
+    /**
+     * The executor is created in {@link #run}, shared by all configurations of the batch task and
+     * shut down when the batch task is complete.
+     */
+    private ExecutorService executor;
+    
     /**
      * Explicit no-args constructor
      */
@@ -78,6 +99,22 @@ public class MultiThreadBatchTaskEngine
         maxThreads = aNThreads;
     }
 
+    @Override
+    public String run(Task aConfiguration)
+        throws ExecutionException, LifeCycleException
+    {
+        // Create the executor before any configuration is executed since configurations may be
+        // executed in parallel
+        executor = Executors.newFixedThreadPool(Math.max(1, maxThreads));
+        try {
+            return super.run(aConfiguration);
+        }
+        finally {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
     @Override
     protected void executeConfiguration(BatchTask aConfiguration, TaskContext aContext,
             Map<String, Object> aConfig, Set<String> aExecutedSubtasks)
@@ -101,60 +138,53 @@ public class MultiThreadBatchTaskEngine
             scope.addAll(aConfiguration.getScope());
         }
 
-        // Configure subtasks
-        for (Task task : aConfiguration.getTasks()) {
-            TaskFactory.configureTask(task, aConfig);
-        }
-
-        Queue<Task> queue = new LinkedList<>(aConfiguration.getTasks());
-        // keeps track of the execution threads; 
-        // TODO MW: do we really need this or can we work with the futures list only?
-        Map<Task, ExecutionThread> threads = new HashMap<>();              
-        // keeps track of submitted Futures and their associated tasks
-        Map<Future<?>, Task> futures = new HashMap<Future<?>, Task>();     
-        // will be instantiated with all exceptions from current loop
-        ConcurrentMap<Task, Throwable> exceptionsFromLastLoop = null;      
-        ConcurrentMap<Task, Throwable> exceptionsFromCurrentLoop = new ConcurrentHashMap<>();
-
-        int outerLoopCounter = 0;
-
-        // main loop
-        do {
-            outerLoopCounter++;
-
-            threads.clear();
-            futures.clear();
-            ExecutorService executor = Executors.newFixedThreadPool(maxThreads);
-
-            // set the exceptions from the last loop
-            exceptionsFromLastLoop = new ConcurrentHashMap<>(exceptionsFromCurrentLoop);
+        // Build the dependency graph and make sure it can be executed before doing any work
+        Map<Task, Set<Task>> producers = getProducers(aConfiguration, aContext);
+        Map<Task, List<Task>> consumers = getConsumers(producers);
+        checkForCycles(producers, consumers);
 
-            // Fix MW: Clear exceptionsFromCurrentLoop; otherwise the loop with run at most twice.
-            exceptionsFromCurrentLoop.clear();
-            
-            // process all tasks from the queue
-            while (!queue.isEmpty()) {
-                Task task = queue.poll();
-
-                TaskContextMetadata execution = getExistingExecution(aConfiguration, aContext,
-                        task, aConfig, aExecutedSubtasks);
+        CompletionService<TaskContextMetadata> completionService = 
+                new ExecutorCompletionService<TaskContextMetadata>(executor);
 
+        // Tasks whose producers have all completed in the order in which they were added to
+        // the batch
+        Queue<Task> ready = new LinkedList<>();
+        for (Task task : aConfiguration.getTasks()) {
+            if (producers.get(task).isEmpty()) {
+                ready.add(task);
+            }
+        }
+        
+        Map<Future<TaskContextMetadata>, Task> running = new HashMap<>();
+        // Size of the scope at the time a running task was submitted
+        Map<Task, Integer> submittedScope = new HashMap<>();
+        // Tasks which failed to resolve an import at runtime, e.g. because it is produced by a
+        // subtask of a nested batch task. These are retried whenever another task completes.
+        Map<Task, UnresolvedImportException> deferred = new LinkedHashMap<>();
+        Throwable failure = null;
+        Task failedTask = null;
+
+        while (!ready.isEmpty() || !running.isEmpty()) {
+            // Do not start any new work once a task has failed
+            while (failure == null && !ready.isEmpty()) {
+                Task task = ready.poll();
+                
                 // Check if a subtask execution compatible with the present configuration has
                 // does already exist ...
+                TaskContextMetadata execution;
+                synchronized (task) {
+                    TaskFactory.configureTask(task, aConfig);
+                    execution = getExistingExecution(aConfiguration, aContext, task, aConfig,
+                            aExecutedSubtasks);
+                }
                 if (execution == null) {
                     // ... otherwise execute it with the present configuration
                     log.info("Executing task [" + task.getType() + "]");
 
-                    // set scope here so that the inherited scopes are considered
-                    if (task instanceof BatchTask) {
-                        ((BatchTask) task).setScope(scope);
-                    }
-
-                    ExecutionThread thread = new ExecutionThread(aContext, task, aConfig,
-                            aExecutedSubtasks);
-                    threads.put(task, thread);
-
-                    futures.put(executor.submit(thread), task);
+                    running.put(completionService.submit(new ExecutionTask(aConfiguration,
+                            aContext, task, aConfig, aExecutedSubtasks, new HashSet<>(scope))),
+                            task);
+                    submittedScope.put(task, scope.size());
                 }
                 else {
                     log.debug("Using existing execution [" + execution.getId() + "]");
@@ -162,130 +192,228 @@ public class MultiThreadBatchTaskEngine
                     // Record new/existing execution
                     aExecutedSubtasks.add(execution.getId());
                     scope.add(execution.getId());
+                    release(task, producers, consumers, ready);
                 }
             }
+            
+            if (running.isEmpty()) {
+                break;
+            }
+
+            // Wait for the next task to complete
+            Future<TaskContextMetadata> future;
+            try {
+                future = completionService.take();
+            }
+            catch (InterruptedException e) {
+                throw new ExecutionException(e);
+            }
+            Task task = running.remove(future);
+            int scopeAtSubmit = submittedScope.remove(task);
+            
+            try {
+                TaskContextMetadata execution = future.get();
+
+                // Record new/existing execution
+                aExecutedSubtasks.add(execution.getId());
+                scope.add(execution.getId());
+                release(task, producers, consumers, ready);
 
-            // try and get results from all futures to check for failed executions
-            for(Map.Entry<Future<?>, Task> entry : futures.entrySet()){
-                try {
-                    entry.getKey().get();
+                // Something new is in scope now, so give the deferred tasks another chance
+                ready.addAll(deferred.keySet());
+                deferred.clear();
+            }
+            catch (java.util.concurrent.ExecutionException e) {
+                if (e.getCause() instanceof UnresolvedImportException
+                        && scope.size() > scopeAtSubmit) {
+                    // Something new came into scope while the task was running, retry right away
+                    ready.add(task);
                 }
-                catch(java.util.concurrent.ExecutionException ex) {
-                    Task task = entry.getValue();
-                    // TODO MW: add a retry-counter here to prevent endless loops?
-                    log.info("Task exec failed for [" + task.getType() + "]");
-                    // record the failed task, so that it can be re-added to the queue
-                    exceptionsFromCurrentLoop.put(task, ex);
+                else if (e.getCause() instanceof UnresolvedImportException) {
+                    log.debug("Deferring execution of task [" + task.getType() + "]: "
+                            + e.getCause().getMessage());
+                    deferred.put(task, (UnresolvedImportException) e.getCause());
                 }
-                catch(InterruptedException ex){
-                    // thread interrupted, exit
-                    throw new RuntimeException(ex);
+                else if (failure == null) {
+                    log.info("Task exec failed for [" + task.getType() + "]");
+                    failure = e.getCause();
+                    failedTask = task;
                 }
             }
+            catch (InterruptedException e) {
+                throw new ExecutionException(e);
+            }
+        }
 
-            log.debug("Calling shutdown");
-            executor.shutdown();
-            log.debug("All threads finished");
-
-            // collect the results
-            for (Map.Entry<Task, ExecutionThread> entry : threads.entrySet()) {
-                Task task = entry.getKey();
-                ExecutionThread thread = entry.getValue();
-                TaskContextMetadata execution = thread.getTaskContextMetadata();
+        if (failure != null) {
+            throw new ExecutionException("Task [" + failedTask.getType() + "] failed", failure);
+        }
+        
+        if (!deferred.isEmpty()) {
+            // collect all details
+            StringBuilder details = new StringBuilder();
+            for (UnresolvedImportException e : deferred.values()) {
+                details.append("\n -");
+                details.append(e.getMessage());
+            }
+            if (aConfiguration.getScope() == null) {
+                // There is no outer BatchTask which could still produce the missing data
+                throw new ExecutionException(details.toString(), deferred.values().iterator()
+                        .next());
+            }
+            // throw an UnresolvedImportException in case there is an outer BatchTask which
+            // needs to be executed first
+            throw new UnresolvedImportException(deferred.values().iterator().next(),
+                    details.toString());
+        }
+        
+        log.info("MultiThreadBatchTask completed successfully.");
+    }
 
-                // probably failed
-                if (execution == null) {
-                    Throwable exception = exceptionsFromCurrentLoop.get(task);
-                    if (!(exception instanceof UnresolvedImportException)
-                            && !(exception instanceof java.util.concurrent.ExecutionException)) {
-                        throw new RuntimeException(exception);
-                    }
-                    exceptionsFromCurrentLoop.put(task, exception);
+    /**
+     * Determine for each subtask the subtasks it imports data from. Imports pointing to a task type
+     * that is not part of the batch are resolved when the subtask is run, since they may still be
+     * produced, e.g. by a subtask of a nested batch task.
+     * 
+     * @throws UnresolvedImportException
+     *             if an import refers to a context ID which does not exist.
+     */
+    private Map<Task, Set<Task>> getProducers(BatchTask aConfiguration, TaskContext aContext)
+    {
+        Map<String, List<Task>> tasksByType = new HashMap<>();
+        for (Task task : aConfiguration.getTasks()) {
+            List<Task> tasks = tasksByType.get(task.getType());
+            if (tasks == null) {
+                tasks = new ArrayList<>();
+                tasksByType.put(task.getType(), tasks);
+            }
+            tasks.add(task);
+        }
 
-                    // re-add to the queue
-                    queue.add(task);
+        Map<Task, Set<Task>> producers = new LinkedHashMap<>();
+        for (Task task : aConfiguration.getTasks()) {
+            Set<Task> taskProducers = new LinkedHashSet<>();
+            for (String rawUri : task.getImports().values()) {
+                URI uri = URI.create(rawUri);
+                if (LATEST_CONTEXT_SCHEME.equals(uri.getScheme())
+                        && tasksByType.containsKey(uri.getAuthority())) {
+                    taskProducers.addAll(tasksByType.get(uri.getAuthority()));
                 }
-                else {
-
-                    // Record new/existing execution
-                    aExecutedSubtasks.add(execution.getId());
-                    scope.add(execution.getId());
+                else if (CONTEXT_ID_SCHEME.equals(uri.getScheme())
+                        && !aContext.getStorageService().containsContext(uri.getAuthority())) {
+                    // A context ID can never be produced later
+                    throw new UnresolvedImportException(aContext, uri.toString(),
+                            "Context not found");
                 }
             }
+            producers.put(task, taskProducers);
+        }
+        return producers;
+    }
 
+    private Map<Task, List<Task>> getConsumers(Map<Task, Set<Task>> aProducers)
+    {
+        Map<Task, List<Task>> consumers = new HashMap<>();
+        for (Task task : aProducers.keySet()) {
+            consumers.put(task, new ArrayList<Task>());
         }
-        // finish if the same tasks failed again
-        while (!exceptionsFromCurrentLoop.keySet().equals(exceptionsFromLastLoop.keySet())); 
-        // END OF DO; finish if the same tasks failed again
+        for (Map.Entry<Task, Set<Task>> e : aProducers.entrySet()) {
+            for (Task producer : e.getValue()) {
+                consumers.get(producer).add(e.getKey());
+            }
+        }
+        return consumers;
+    }
 
-        if (!exceptionsFromCurrentLoop.isEmpty()) {
-            // collect all details
-            StringBuilder details = new StringBuilder();
-            for (Throwable throwable : exceptionsFromCurrentLoop.values()) {
-                details.append("\n -");
-                details.append(throwable.getMessage());
+    /**
+     * Check that the dependency graph can be fully executed using a topological sort.
+     * 
+     * @throws ExecutionException
+     *             if there are cyclic dependencies between the subtasks.
+     */
+    private void checkForCycles(Map<Task, Set<Task>> aProducers, Map<Task, List<Task>> aConsumers)
+        throws ExecutionException
+    {
+        Map<Task, Integer> pending = new HashMap<>();
+        Queue<Task> queue = new LinkedList<>();
+        for (Map.Entry<Task, Set<Task>> e : aProducers.entrySet()) {
+            pending.put(e.getKey(), e.getValue().size());
+            if (e.getValue().isEmpty()) {
+                queue.add(e.getKey());
             }
+        }
 
-            // we re-throw the first exception
-            Throwable next = exceptionsFromCurrentLoop.values().iterator().next();
-            if (next instanceof RuntimeException) {
-                throw (RuntimeException) next;
+        while (!queue.isEmpty()) {
+            Task task = queue.poll();
+            pending.remove(task);
+            for (Task consumer : aConsumers.get(task)) {
+                int remaining = pending.get(consumer) - 1;
+                pending.put(consumer, remaining);
+                if (remaining == 0) {
+                    queue.add(consumer);
+                }
             }
+        }
 
-            // otherwise wrap it
-            throw new RuntimeException(details.toString(), next);
+        if (!pending.isEmpty()) {
+            StringBuilder details = new StringBuilder();
+            details.append("Cyclic imports between subtasks:");
+            for (Task task : pending.keySet()) {
+                details.append("\n -");
+                details.append(task.getType());
+                details.append(" imports ");
+                details.append(task.getImports().values());
+            }
+            throw new ExecutionException(details.toString());
         }
-        log.info("MultiThreadBatchTask completed successfully. Total number of outer loop runs: "
-                + outerLoopCounter);
     }
 
     /**
-     * Represents a task's execution thread,
-     * together with the associated context, config and scope.
+     * Mark the given task as completed and queue all consumers which have no pending producers
+     * anymore.
      */
-    protected class ExecutionThread
-            extends Thread
+    private void release(Task aTask, Map<Task, Set<Task>> aProducers,
+            Map<Task, List<Task>> aConsumers, Queue<Task> aReady)
     {
+        for (Task consumer : aConsumers.get(aTask)) {
+            Set<Task> pending = aProducers.get(consumer);
+            if (pending.remove(aTask) && pending.isEmpty()) {
+                aReady.add(consumer);
+            }
+        }
+    }
 
-        private final TaskContext aContext;
+    /**
+     * Represents a task's execution, together with the associated context, config and scope.
+     */
+    protected class ExecutionTask
+        implements Callable<TaskContextMetadata>
+    {
+        private final BatchTask configuration;
+        private final TaskContext context;
         private final Task task;
-        private final Map<String, Object> aConfig;
+        private final Map<String, Object> config;
+        private final Set<String> executedSubtasks;
         private final Set<String> scope;
 
-        private TaskContextMetadata taskContextMetadata;
-
-        public ExecutionThread(TaskContext aContext, Task aTask, Map<String, Object> aConfig,
-                Set<String> aScope)
-        {
-            this.aContext = aContext;
-            this.task = aTask;
-            this.aConfig = aConfig;
-            this.scope = aScope;
-        }
-
-        @Override public void run()
+        public ExecutionTask(BatchTask aConfiguration, TaskContext aContext, Task aTask,
+                Map<String, Object> aConfig, Set<String> aExecutedSubtasks, Set<String> aScope)
         {
-            TaskExecutionService execService = aContext.getExecutionService();
-            TaskExecutionEngine engine = execService.createEngine(task);
-            engine.setContextFactory(new ScopedTaskContextFactory(execService
-                    .getContextFactory(), aConfig, scope));
-            String uuid;
-            try {
-                uuid = engine.run(task);
-            }
-            catch (ExecutionException | LifeCycleException e) {
-                throw new RuntimeException(e);
-            }
-
-            taskContextMetadata = aContext.getStorageService().getContext(uuid);
+            configuration = aConfiguration;
+            context = aContext;
+            task = aTask;
+            config = aConfig;
+            executedSubtasks = aExecutedSubtasks;
+            scope = aScope;
         }
 
-        /**
-         * Returns the result of the run.
-         */
-        public TaskContextMetadata getTaskContextMetadata()
+        @Override
+        public TaskContextMetadata call()
+            throws Exception
         {
-            return taskContextMetadata;
+            // Subtasks are shared by all configurations, which may run in parallel, so the task
+            // is configured again right before it is executed
+            return executeSubtask(configuration, context, task, config, executedSubtasks, scope);
         }
     }
 }
@@ -0,0 +1,297 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.engine.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.tudarmstadt.ukp.dkpro.lab.engine.LifeCycleException;
+import de.tudarmstadt.ukp.dkpro.lab.engine.TaskContext;
+import de.tudarmstadt.ukp.dkpro.lab.reporting.Report;
+import de.tudarmstadt.ukp.dkpro.lab.reporting.RunsAfter;
+
+/**
+ * Runs the reports of a task. Reports run in the order of their class names, unless a report
+ * declares that it has to run after other reports using {@link RunsAfter}. With more than one
+ * thread, reports which do not depend on each other run concurrently. If a report fails, the
+ * remaining reports which do not depend on it still run and all failures are reported together.
+ */
+public class ReportExecutor
+{
+	private static final Comparator<Class<?>> BY_NAME = new Comparator<Class<?>>()
+	{
+		@Override
+		public int compare(Class<?> aO1, Class<?> aO2)
+		{
+			return aO1.getName().compareTo(aO2.getName());
+		}
+	};
+
+	private final TaskContext context;
+	private final int threads;
+
+	private final TreeSet<Class<? extends Report>> ready = new TreeSet<Class<? extends Report>>(
+			BY_NAME);
+	private final Map<Class<? extends Report>, Integer> waitingFor = new HashMap<Class<? extends Report>, Integer>();
+	private final Map<Class<? extends Report>, List<Class<? extends Report>>> dependents = new HashMap<Class<? extends Report>, List<Class<? extends Report>>>();
+	private final Map<Class<? extends Report>, Throwable> failures = new HashMap<Class<? extends Report>, Throwable>();
+	private final Map<String, Long> reportTimes = new ConcurrentHashMap<String, Long>();
+	private final AtomicInteger started = new AtomicInteger();
+	private int total;
+
+	/**
+	 * @param aContext
+	 *            the context of the task the reports are attached to.
+	 * @param aThreads
+	 *            the maximum number of reports to run concurrently.
+	 */
+	public ReportExecutor(TaskContext aContext, int aThreads)
+	{
+		context = aContext;
+		threads = Math.max(1, aThreads);
+	}
+
+	/**
+	 * Run the given reports.
+	 *
+	 * @throws LifeCycleException
+	 *             if any of the reports failed or if the reports depend on each other in a cycle.
+	 */
+	public void execute(Collection<Class<? extends Report>> aReports)
+		throws LifeCycleException
+	{
+		plan(aReports);
+
+		if (threads == 1 || total == 1) {
+			while (!ready.isEmpty()) {
+				Class<? extends Report> reportClass = ready.pollFirst();
+				try {
+					runReport(reportClass);
+					release(reportClass);
+				}
+				catch (Exception e) {
+					failures.put(reportClass, e);
+				}
+			}
+		}
+		else {
+			executeConcurrently();
+		}
+
+		checkFailures();
+	}
+
+	/**
+	 * Get the time in nanoseconds each report took to run, by report class name. Only reports
+	 * which completed successfully are included.
+	 */
+	public Map<String, Long> getReportTimes()
+	{
+		return reportTimes;
+	}
+
+	private void plan(Collection<Class<? extends Report>> aReports)
+		throws LifeCycleException
+	{
+		for (Class<? extends Report> reportClass : aReports) {
+			waitingFor.put(reportClass, 0);
+			dependents.put(reportClass, new ArrayList<Class<? extends Report>>());
+		}
+		total = waitingFor.size();
+
+		for (Class<? extends Report> reportClass : waitingFor.keySet()) {
+			RunsAfter runsAfter = reportClass.getAnnotation(RunsAfter.class);
+			if (runsAfter == null) {
+				continue;
+			}
+			for (Class<? extends Report> predecessor : runsAfter.value()) {
+				List<Class<? extends Report>> successors = dependents.get(predecessor);
+				if (successors != null && predecessor != reportClass
+						&& !successors.contains(reportClass)) {
+					successors.add(reportClass);
+					waitingFor.put(reportClass, waitingFor.get(reportClass) + 1);
+				}
+			}
+		}
+
+		for (Map.Entry<Class<? extends Report>, Integer> e : waitingFor.entrySet()) {
+			if (e.getValue() == 0) {
+				ready.add(e.getKey());
+			}
+		}
+
+		// Check for cycles - they would leave reports which can never run
+		Map<Class<? extends Report>, Integer> remaining = new HashMap<Class<? extends Report>, Integer>(
+				waitingFor);
+		List<Class<? extends Report>> queue = new ArrayList<Class<? extends Report>>(ready);
+		int reachable = 0;
+		while (!queue.isEmpty()) {
+			Class<? extends Report> reportClass = queue.remove(queue.size() - 1);
+			reachable++;
+			for (Class<? extends Report> successor : dependents.get(reportClass)) {
+				int count = remaining.get(successor) - 1;
+				remaining.put(successor, count);
+				if (count == 0) {
+					queue.add(successor);
+				}
+			}
+		}
+		if (reachable < total) {
+			List<String> cyclic = new ArrayList<String>();
+			for (Map.Entry<Class<? extends Report>, Integer> e : remaining.entrySet()) {
+				if (e.getValue() > 0) {
+					cyclic.add(e.getKey().getName());
+				}
+			}
+			throw new LifeCycleException("Reports depend on each other in a cycle: " + cyclic);
+		}
+	}
+
+	private void executeConcurrently()
+		throws LifeCycleException
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, total));
+		CompletionService<Class<? extends Report>> completionService = new ExecutorCompletionService<Class<? extends Report>>(
+				executor);
+		Map<Future<Class<? extends Report>>, Class<? extends Report>> running = new HashMap<Future<Class<? extends Report>>, Class<? extends Report>>();
+		try {
+			while (true) {
+				while (!ready.isEmpty()) {
+					final Class<? extends Report> reportClass = ready.pollFirst();
+					running.put(completionService.submit(new Callable<Class<? extends Report>>()
+					{
+						@Override
+						public Class<? extends Report> call()
+							throws Exception
+						{
+							runReport(reportClass);
+							return reportClass;
+						}
+					}), reportClass);
+				}
+
+				if (running.isEmpty()) {
+					break;
+				}
+
+				Future<Class<? extends Report>> done = completionService.take();
+				Class<? extends Report> reportClass = running.remove(done);
+				try {
+					done.get();
+					release(reportClass);
+				}
+				catch (ExecutionException e) {
+					failures.put(reportClass, e.getCause());
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new LifeCycleException("Interrupted while running reports", e);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void runReport(Class<? extends Report> aReportClass)
+		throws Exception
+	{
+		int i = started.incrementAndGet();
+		long start = System.nanoTime();
+		try {
+			context.message("Starting report [" + aReportClass.getName() + "] (" + i + "/"
+					+ total + ")");
+			Report report = aReportClass.newInstance();
+			report.setContext(context);
+			report.execute();
+			reportTimes.put(aReportClass.getName(), System.nanoTime() - start);
+			context.message("Report complete [" + aReportClass.getName() + "] (" + i + "/"
+					+ total + ")");
+		}
+		catch (Exception e) {
+			context.error("Report failed [" + aReportClass.getName() + "] (" + i + "/" + total
+					+ ")", e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Mark a report as complete and make the reports which only waited for it ready to run.
+	 */
+	private void release(Class<? extends Report> aReportClass)
+	{
+		for (Class<? extends Report> successor : dependents.get(aReportClass)) {
+			int count = waitingFor.get(successor) - 1;
+			waitingFor.put(successor, count);
+			if (count == 0) {
+				ready.add(successor);
+			}
+		}
+	}
+
+	private void checkFailures()
+		throws LifeCycleException
+	{
+		if (failures.isEmpty()) {
+			return;
+		}
+
+		List<String> skipped = new ArrayList<String>();
+		for (Map.Entry<Class<? extends Report>, Integer> e : waitingFor.entrySet()) {
+			if (e.getValue() > 0) {
+				skipped.add(e.getKey().getName());
+			}
+		}
+
+		TreeSet<Class<? extends Report>> failed = new TreeSet<Class<? extends Report>>(BY_NAME);
+		failed.addAll(failures.keySet());
+		List<String> failedNames = new ArrayList<String>();
+		for (Class<? extends Report> reportClass : failed) {
+			failedNames.add(reportClass.getName());
+		}
+
+		StringBuilder message = new StringBuilder();
+		message.append(failed.size()).append(" of ").append(total).append(" reports failed: ")
+				.append(failedNames);
+		if (!skipped.isEmpty()) {
+			message.append(" - not run because of failed dependencies: ").append(skipped);
+		}
+
+		LifeCycleException exception = new LifeCycleException(message.toString(),
+				failures.get(failed.first()));
+		for (Class<? extends Report> reportClass : failed.tailSet(failed.first(), false)) {
+			exception.addSuppressed(failures.get(reportClass));
+		}
+		throw exception;
+	}
+}
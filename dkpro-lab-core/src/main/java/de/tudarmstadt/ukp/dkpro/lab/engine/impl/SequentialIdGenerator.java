@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.engine.impl;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.tudarmstadt.ukp.dkpro.lab.engine.ContextIdGenerator;
+
+/**
+ * Generates short context IDs without locking. An ID consists of a sequence number followed by
+ * a node ID identifying the generator, both in base 36 with a fixed length. The sequence number
+ * is the current time in milliseconds shifted left by 16 bits, so up to 65536 IDs can be
+ * generated per millisecond. It is always larger than the previous one, even if the clock is set
+ * back. Thus, IDs of the same generator sort in the order they were generated and IDs of different
+ * generators sort roughly by time.
+ * <p>
+ * Per default, the node ID is a random 48 bit number, so generators in different JVMs sharing
+ * the same storage root practically never produce the same ID.
+ */
+public class SequentialIdGenerator
+	implements ContextIdGenerator
+{
+	private static final int SEQUENCE_BITS = 16;
+	private static final long NODE_MASK = 0xFFFFFFFFFFFFL;
+	
+	// 36^13 > 2^63 and 36^10 > 2^48
+	private static final int SEQUENCE_LENGTH = 13;
+	private static final int NODE_LENGTH = 10;
+	
+	private final AtomicLong sequence = new AtomicLong();
+	private final String node;
+	
+	public SequentialIdGenerator()
+	{
+		this(new SecureRandom().nextLong() & NODE_MASK);
+	}
+	
+	/**
+	 * @param aNode
+	 *            a node ID unique among all JVMs using the same storage root. Only the lower 48
+	 *            bits are used.
+	 */
+	public SequentialIdGenerator(long aNode)
+	{
+		node = encode(aNode & NODE_MASK, NODE_LENGTH);
+	}
+	
+	@Override
+	public String nextId()
+	{
+		long previous;
+		long next;
+		do {
+			previous = sequence.get();
+			next = Math.max(previous + 1, System.currentTimeMillis() << SEQUENCE_BITS);
+		}
+		while (!sequence.compareAndSet(previous, next));
+		
+		return encode(next, SEQUENCE_LENGTH) + node;
+	}
+	
+	private static String encode(long aValue, int aLength)
+	{
+		char[] chars = new char[aLength];
+		long value = aValue;
+		for (int i = aLength - 1; i >= 0; i--) {
+			chars[i] = Character.forDigit((int) (value % 36), 36);
+			value /= 36;
+		}
+		return new String(chars);
+	}
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.engine.impl;
+
+import org.safehaus.uuid.UUIDGenerator;
+
+import de.tudarmstadt.ukp.dkpro.lab.engine.ContextIdGenerator;
+
+/**
+ * Generates time-based UUIDs as context IDs.
+ */
+public class TimeBasedUuidGenerator
+	implements ContextIdGenerator
+{
+	@Override
+	public String nextId()
+	{
+		return UUIDGenerator.getInstance().generateTimeBasedUUID().toString();
+	}
+}
@@ -17,6 +17,7 @@
  ******************************************************************************/
 package de.tudarmstadt.ukp.dkpro.lab.reporting;
 
+import de.tudarmstadt.ukp.dkpro.lab.engine.impl.DefaultLifeCycleManager;
 import de.tudarmstadt.ukp.dkpro.lab.task.BatchTask;
 import de.tudarmstadt.ukp.dkpro.lab.task.TaskContextMetadata;
 
@@ -53,4 +54,19 @@ public abstract class BatchReportBase
 		}
 		return subTaskMeta;
 	}
+
+	/**
+	 * Get the statistics recorded for the subtasks, e.g. the time spent in the different phases of
+	 * their execution. There is one row per subtask context ID and one column per statistic.
+	 *
+	 * @see DefaultLifeCycleManager
+	 */
+	protected FlexTable<Long> getSubtaskStatistics()
+	{
+		FlexTable<Long> table = FlexTable.forClass(Long.class);
+		for (TaskContextMetadata subtask : getSubtasks()) {
+			table.addRow(subtask.getId(), subtask.getStatistics());
+		}
+		return table;
+	}
 }
@@ -0,0 +1,256 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.reporting;
+
+import static de.tudarmstadt.ukp.dkpro.lab.storage.StorageService.CONTEXT_ID_SCHEME;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.tudarmstadt.ukp.dkpro.lab.task.TaskContextMetadata;
+
+/**
+ * Analysis of the execution of a set of tasks, e.g. the subtasks of a batch task. The dependencies
+ * between the tasks are reconstructed from the resolved imports in their metadata. Together with
+ * the start and end times of the tasks, this yields:
+ * <ul>
+ * <li>the <b>critical path</b> - the chain of dependent tasks which determined when the last task
+ * finished. It is traced back from the task finishing last, always following the dependency which
+ * finished last.</li>
+ * <li>the <b>queueing delay</b> of each task - the time between all its dependencies having
+ * finished and the task starting, e.g. because all workers were busy.</li>
+ * <li>the <b>utilization</b> of the workers - the time spent running tasks relative to the time
+ * the peak number of concurrently running tasks could have spent.</li>
+ * </ul>
+ * All times are in milliseconds.
+ */
+public class ExecutionProfile
+{
+	private final long origin;
+	private final Map<String, TaskContextMetadata> tasks = new LinkedHashMap<String, TaskContextMetadata>();
+	private final Map<String, Set<String>> dependencies = new LinkedHashMap<String, Set<String>>();
+	private final Map<String, Long> queueingDelays = new LinkedHashMap<String, Long>();
+	private final List<TaskContextMetadata> criticalPath = new ArrayList<TaskContextMetadata>();
+	private final Set<String> critical = new LinkedHashSet<String>();
+	private long end;
+	private long busyTime;
+	private int peakConcurrency;
+
+	/**
+	 * @param aTasks
+	 *            the tasks to analyze.
+	 * @param aOrigin
+	 *            the time at which the tasks could start at the earliest, e.g. the start of the
+	 *            batch task. Tasks without dependencies are considered queued from this time.
+	 */
+	public ExecutionProfile(Collection<TaskContextMetadata> aTasks, long aOrigin)
+	{
+		origin = aOrigin;
+		end = aOrigin;
+		for (TaskContextMetadata task : aTasks) {
+			tasks.put(task.getId(), task);
+		}
+
+		for (TaskContextMetadata task : tasks.values()) {
+			dependencies.put(task.getId(), findDependencies(task));
+			busyTime += getDuration(task);
+			end = Math.max(end, task.getEnd());
+		}
+
+		for (TaskContextMetadata task : tasks.values()) {
+			queueingDelays.put(task.getId(), Math.max(0, task.getStart() - getReadyTime(task)));
+		}
+
+		traceCriticalPath();
+		computePeakConcurrency();
+	}
+
+	/**
+	 * Get the tasks on which the given task depends.
+	 */
+	public Set<String> getDependencies(String aId)
+	{
+		return dependencies.get(aId);
+	}
+
+	/**
+	 * Get the tasks on the critical path in the order in which they ran.
+	 */
+	public List<TaskContextMetadata> getCriticalPath()
+	{
+		return criticalPath;
+	}
+
+	public boolean isCritical(String aId)
+	{
+		return critical.contains(aId);
+	}
+
+	/**
+	 * Get the summed run time of the tasks on the critical path.
+	 */
+	public long getCriticalPathTime()
+	{
+		long time = 0;
+		for (TaskContextMetadata task : criticalPath) {
+			time += getDuration(task);
+		}
+		return time;
+	}
+
+	/**
+	 * Get the time between the origin and the end of the last task.
+	 */
+	public long getMakespan()
+	{
+		return end - origin;
+	}
+
+	/**
+	 * Get the summed run time of all tasks.
+	 */
+	public long getBusyTime()
+	{
+		return busyTime;
+	}
+
+	/**
+	 * Get the maximum number of tasks which ran at the same time.
+	 */
+	public int getPeakConcurrency()
+	{
+		return peakConcurrency;
+	}
+
+	/**
+	 * Get the fraction of the available worker time spent running tasks, assuming the peak
+	 * concurrency corresponds to the number of workers.
+	 */
+	public double getUtilization()
+	{
+		long available = peakConcurrency * getMakespan();
+		return available > 0 ? (double) busyTime / available : 0;
+	}
+
+	public long getQueueingDelay(String aId)
+	{
+		return queueingDelays.get(aId);
+	}
+
+	public long getTotalQueueingDelay()
+	{
+		long total = 0;
+		for (long delay : queueingDelays.values()) {
+			total += delay;
+		}
+		return total;
+	}
+
+	public long getOrigin()
+	{
+		return origin;
+	}
+
+	public static long getDuration(TaskContextMetadata aTask)
+	{
+		return Math.max(0, aTask.getEnd() - aTask.getStart());
+	}
+
+	private Set<String> findDependencies(TaskContextMetadata aTask)
+	{
+		Set<String> result = new LinkedHashSet<String>();
+		for (String location : aTask.getImports().values()) {
+			URI uri = URI.create(location);
+			// Imports of the subtasks have been resolved to context IDs when they ran
+			if (CONTEXT_ID_SCHEME.equals(uri.getScheme()) && tasks.containsKey(uri.getAuthority())) {
+				result.add(uri.getAuthority());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Get the time at which all dependencies of the task had finished.
+	 */
+	private long getReadyTime(TaskContextMetadata aTask)
+	{
+		long ready = origin;
+		for (String dependency : dependencies.get(aTask.getId())) {
+			ready = Math.max(ready, tasks.get(dependency).getEnd());
+		}
+		return ready;
+	}
+
+	private void traceCriticalPath()
+	{
+		TaskContextMetadata current = null;
+		for (TaskContextMetadata task : tasks.values()) {
+			if (current == null || task.getEnd() > current.getEnd()) {
+				current = task;
+			}
+		}
+
+		while (current != null && critical.add(current.getId())) {
+			criticalPath.add(current);
+			TaskContextMetadata latest = null;
+			for (String dependency : dependencies.get(current.getId())) {
+				TaskContextMetadata candidate = tasks.get(dependency);
+				if (latest == null || candidate.getEnd() > latest.getEnd()) {
+					latest = candidate;
+				}
+			}
+			current = latest;
+		}
+		Collections.reverse(criticalPath);
+	}
+
+	private void computePeakConcurrency()
+	{
+		// Sweep over start (+1) and end (-1) events. At the same time, ends come first.
+		List<long[]> events = new ArrayList<long[]>();
+		for (TaskContextMetadata task : tasks.values()) {
+			events.add(new long[] { task.getStart(), 1 });
+			events.add(new long[] { task.getEnd(), -1 });
+		}
+		Collections.sort(events, new Comparator<long[]>()
+		{
+			@Override
+			public int compare(long[] aO1, long[] aO2)
+			{
+				if (aO1[0] != aO2[0]) {
+					return aO1[0] < aO2[0] ? -1 : 1;
+				}
+				return Long.compare(aO1[1], aO2[1]);
+			}
+		});
+
+		int running = 0;
+		for (long[] event : events) {
+			running += event[1];
+			peakConcurrency = Math.max(peakConcurrency, running);
+		}
+	}
+}
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.reporting;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.data.gantt.TaskSeries;
+import org.jfree.data.gantt.TaskSeriesCollection;
+
+import de.tudarmstadt.ukp.dkpro.lab.storage.StreamWriter;
+import de.tudarmstadt.ukp.dkpro.lab.storage.impl.PropertiesAdapter;
+import de.tudarmstadt.ukp.dkpro.lab.task.TaskContextMetadata;
+
+/**
+ * Profiles the execution of the subtasks of a batch task, e.g. to find out which chain of
+ * dependent tasks determined the run time of a batch task run by the
+ * {@link de.tudarmstadt.ukp.dkpro.lab.engine.impl.MultiThreadBatchTaskEngine
+ * MultiThreadBatchTaskEngine}. Subtask contexts reused from earlier runs are not included.
+ * <p>
+ * The report writes a table with one row per subtask ({@value #PROFILE_KEY}), a summary
+ * ({@value #SUMMARY_KEY}) and a Gantt chart of the subtasks highlighting the critical path
+ * ({@value #GANTT_KEY}).
+ *
+ * @see ExecutionProfile
+ */
+public class ExecutionProfileReport
+	extends BatchReportBase
+{
+	public static final String PROFILE_KEY = "execution-profile.csv";
+	public static final String SUMMARY_KEY = "execution-profile.txt";
+	public static final String GANTT_KEY = "execution-profile.svg";
+
+	@Override
+	public void execute()
+		throws Exception
+	{
+		long origin = getContext().getMetadata().getStart();
+		List<TaskContextMetadata> subtasks = new ArrayList<TaskContextMetadata>();
+		int reused = 0;
+		for (TaskContextMetadata subtask : getSubtasks()) {
+			if (subtask.getStart() >= origin) {
+				subtasks.add(subtask);
+			}
+			else {
+				reused++;
+			}
+		}
+
+		ExecutionProfile profile = new ExecutionProfile(subtasks, origin);
+
+		FlexTable<String> table = FlexTable.forClass(String.class);
+		table.setSortRows(false);
+		for (TaskContextMetadata subtask : subtasks) {
+			Map<String, String> row = new LinkedHashMap<String, String>();
+			row.put("type", subtask.getType());
+			row.put("label", subtask.getLabel() != null ? subtask.getLabel() : "");
+			row.put("start", String.valueOf(subtask.getStart() - origin));
+			row.put("end", String.valueOf(subtask.getEnd() - origin));
+			row.put("duration", String.valueOf(ExecutionProfile.getDuration(subtask)));
+			row.put("queueingDelay", String.valueOf(profile.getQueueingDelay(subtask.getId())));
+			row.put("dependencies", String.valueOf(profile.getDependencies(subtask.getId())));
+			row.put("critical", String.valueOf(profile.isCritical(subtask.getId())));
+			table.addRow(subtask.getId(), row);
+		}
+		storeBinary(PROFILE_KEY, table.getCsvWriter());
+
+		List<String> criticalPath = new ArrayList<String>();
+		for (TaskContextMetadata subtask : profile.getCriticalPath()) {
+			criticalPath.add(subtask.getId());
+		}
+		Map<String, String> summary = new LinkedHashMap<String, String>();
+		summary.put("tasks", String.valueOf(subtasks.size()));
+		summary.put("reusedTasks", String.valueOf(reused));
+		summary.put("makespan", String.valueOf(profile.getMakespan()));
+		summary.put("busyTime", String.valueOf(profile.getBusyTime()));
+		summary.put("peakConcurrency", String.valueOf(profile.getPeakConcurrency()));
+		summary.put("utilization", String.format("%.3f", profile.getUtilization()));
+		summary.put("totalQueueingDelay", String.valueOf(profile.getTotalQueueingDelay()));
+		summary.put("criticalPathTime", String.valueOf(profile.getCriticalPathTime()));
+		summary.put("criticalPath", String.valueOf(criticalPath));
+		storeBinary(SUMMARY_KEY, new PropertiesAdapter(summary, "Execution profile (times in ms)"));
+
+		if (!subtasks.isEmpty()) {
+			final JFreeChart chart = createGanttChart(profile, subtasks);
+			final int height = 100 + 20 * subtasks.size();
+			storeBinary(GANTT_KEY, new StreamWriter()
+			{
+				@Override
+				public void write(OutputStream aStream)
+					throws Exception
+				{
+					ChartUtil.writeChartAsSVG(aStream, chart, 800, height);
+				}
+			});
+		}
+	}
+
+	private JFreeChart createGanttChart(ExecutionProfile aProfile,
+			List<TaskContextMetadata> aSubtasks)
+	{
+		TaskSeries critical = new TaskSeries("Critical path");
+		TaskSeries other = new TaskSeries("Other tasks");
+		for (TaskContextMetadata subtask : aSubtasks) {
+			org.jfree.data.gantt.Task bar = new org.jfree.data.gantt.Task(subtask.getId(),
+					new Date(subtask.getStart()), new Date(subtask.getEnd()));
+			if (aProfile.isCritical(subtask.getId())) {
+				critical.add(bar);
+			}
+			else {
+				other.add(bar);
+			}
+		}
+
+		TaskSeriesCollection dataset = new TaskSeriesCollection();
+		dataset.add(critical);
+		dataset.add(other);
+		return ChartFactory.createGanttChart("Execution profile", "Task", "Time", dataset, true,
+				false, false);
+	}
+}
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Compression format applied transparently by a {@link StorageService} to keys ending in the
+ * suffix of the codec.
+ *
+ * @see de.tudarmstadt.ukp.dkpro.lab.storage.impl.CompressionCodecRegistry
+ */
+public interface CompressionCodec
+{
+	/**
+	 * Get the key suffix this codec is responsible for, including the leading dot, e.g.
+	 * {@code ".gz"}.
+	 */
+	String getSuffix();
+
+	/**
+	 * Wrap the given stream such that data written to it is compressed. Closing the returned
+	 * stream closes the given stream.
+	 */
+	OutputStream compress(OutputStream aStream) throws IOException;
+
+	/**
+	 * Wrap the given stream such that data read from it is decompressed. Closing the returned
+	 * stream closes the given stream.
+	 */
+	InputStream decompress(InputStream aStream) throws IOException;
+}
@@ -19,6 +19,8 @@ package de.tudarmstadt.ukp.dkpro.lab.storage;
 
 import java.io.File;
 import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.List;
 import java.util.Map;
 
@@ -128,6 +130,22 @@ public interface StorageService
 	 */
 	List<TaskContextMetadata> getContexts(String aTaskType, Map<String, String> aConstraints);
 
+	/**
+	 * Get all executions of the given type which were stored with the given discriminator
+	 * fingerprint. This avoids comparing the discriminators of every execution of the type.
+	 * Executions stored without a fingerprint, e.g. by an older version, are matched against the
+	 * constraints instead, as in {@link #getContexts(String, Map)}. The list is sorted with the
+	 * most recent contexts first and the oldest ones last.
+	 *
+	 * @param aTaskType the task type.
+	 * @param aFingerprint the discriminator fingerprint.
+	 * @param aConstraints the discriminators corresponding to the fingerprint.
+	 * @return the matching contexts.
+	 * @see de.tudarmstadt.ukp.dkpro.lab.task.impl.TaskBase#fingerprint(Map)
+	 */
+	List<TaskContextMetadata> getContexts(String aTaskType, String aFingerprint,
+			Map<String, String> aConstraints);
+
 	/**
 	 * @since 0.2.0
 	 */
@@ -167,14 +185,40 @@ public interface StorageService
     File locateKey(String aContextId, String aKey);
 
 	/**
-	 * Read a binary stream. If the path ends in ".gz" the stream is uncompressed upon reading.
+	 * Read a binary stream. If the path ends in the suffix of a compression codec, e.g. ".gz",
+	 * the stream is uncompressed upon reading.
 	 */
 	<T extends StreamReader> T retrieveBinary(String aContextId, String aKey, T aConsumer);
 
+	/**
+	 * Open a read-only channel on the data stored under the given key. This avoids copying large
+	 * data through stream buffers, e.g. using {@link FileChannel#transferTo} or by mapping
+	 * regions of the data into memory. The caller has to close the channel. Compressed keys (e.g.
+	 * ".gz") cannot be accessed this way.
+	 *
+	 * @param aContextId a context ID.
+	 * @param aKey a storage key.
+	 * @return a read-only channel.
+	 */
+	FileChannel retrieveChannel(String aContextId, String aKey);
+
+	/**
+	 * Map the data stored under the given key read-only into memory. The mapping remains valid
+	 * until the buffer is garbage collected. Data larger than 2 GB cannot be mapped in one piece,
+	 * use {@link #retrieveChannel(String, String)} to map it in several regions instead.
+	 * Compressed keys (e.g. ".gz") cannot be accessed this way.
+	 *
+	 * @param aContextId a context ID.
+	 * @param aKey a storage key.
+	 * @return a read-only buffer.
+	 */
+	MappedByteBuffer retrieveMapped(String aContextId, String aKey);
+
 	/**
 	 * Store all data available from the given stream into the storage. The
 	 * stream is closed afterwards, even in case an exception is thrown.
-	 * If the key ends in ".gz" the stream is stored compressed.
+	 * If the key ends in the suffix of a compression codec, e.g. ".gz", the stream is stored
+	 * compressed.
 	 * @since 0.2.0
 	 */
 	void storeBinary(String aContextId, String aKey, InputStream aStream);
@@ -182,7 +226,8 @@ public interface StorageService
 	/**
 	 * Store all data available from the given stream producer into the storage.
 	 * The stream is closed afterwards, even in case an exception is thrown. If
-	 * the key ends in ".gz" the stream is stored compressed.
+	 * the key ends in the suffix of a compression codec, e.g. ".gz", the stream
+	 * is stored compressed.
 	 * @since 0.2.0
 	 */
 	void storeBinary(String aContextId, String aKey, StreamWriter aStreamProducer);
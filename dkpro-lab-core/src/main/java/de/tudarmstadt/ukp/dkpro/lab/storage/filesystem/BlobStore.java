@@ -0,0 +1,234 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.storage.filesystem;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.tudarmstadt.ukp.dkpro.lab.Util;
+
+/**
+ * Content-addressed store of file contents under a {@link FileSystemStorageService} storage root.
+ * Every blob is a hard link named after the SHA-256 hash of its content. Files with the same
+ * content in different contexts are hard links to the same blob, so the content is stored only
+ * once. Modifying such a file in place modifies all files sharing the blob, so files must only be
+ * replaced. The permissions of the files are left alone, since they are shared as well.
+ * <p>
+ * A blob which is no longer linked from any context is removed by {@link #collectGarbage()}. This
+ * requires a file system which reports the number of hard links of a file (POSIX).
+ */
+public class BlobStore
+{
+	private final Log log = LogFactory.getLog(getClass());
+
+	public static final String BLOB_FOLDER = ".blobs";
+
+	/**
+	 * Files smaller than this are not worth sharing.
+	 */
+	public static final long MIN_SIZE = 4096;
+
+	private static final String ALGORITHM = "SHA-256";
+
+	// Blobs which are still being copied into the store
+	private static final String TMP_SUFFIX = ".tmp";
+
+	private final File blobRoot;
+
+	public BlobStore(File aStorageRoot)
+	{
+		blobRoot = new File(aStorageRoot, BLOB_FOLDER);
+	}
+
+	/**
+	 * Create a digest suitable to calculate the hash passed to {@link #link}.
+	 */
+	public static MessageDigest createDigest()
+	{
+		try {
+			return MessageDigest.getInstance(ALGORITHM);
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Share the content of a freshly written file. If a blob with the same content exists, the
+	 * target is created as a link to it and the file is deleted. Otherwise, the file becomes the
+	 * blob for its content and the caller still has to move it to the target.
+	 *
+	 * @param aFile
+	 *            the file just written.
+	 * @param aTarget
+	 *            the final location of the file. It must not exist.
+	 * @param aHash
+	 *            the hash of the file content.
+	 * @return {@code true} if the target has been created.
+	 */
+	public boolean link(File aFile, File aTarget, byte[] aHash)
+	{
+		if (aFile.length() < MIN_SIZE) {
+			return false;
+		}
+
+		File blob = getBlob(aHash);
+		try {
+			if (blob.exists()) {
+				Files.createLink(aTarget.toPath(), blob.toPath());
+				aFile.delete();
+				return true;
+			}
+
+			blob.getParentFile().mkdirs();
+			Files.createLink(blob.toPath(), aFile.toPath());
+		}
+		catch (FileAlreadyExistsException e) {
+			// Another thread or process has just stored the same content - never mind
+		}
+		catch (IOException | UnsupportedOperationException e) {
+			log.debug("Unable to share [" + aTarget + "]: " + e.getMessage());
+		}
+		return false;
+	}
+
+	/**
+	 * Recursively copy files and directories by linking files to their blobs. The target must not
+	 * exist before this operation. Files which cannot be linked are copied. The source files are
+	 * never linked themselves, their content is copied into the store if there is no blob yet.
+	 */
+	public void copy(File aIn, File aOut)
+		throws IOException
+	{
+		if (aOut.exists()) {
+			throw new IOException("Target [" + aOut + "] already exists");
+		}
+
+		if (aIn.isDirectory()) {
+			aOut.mkdirs();
+			for (File child : aIn.listFiles()) {
+				copy(child, new File(aOut, child.getName()));
+			}
+		}
+		else if (aIn.length() < MIN_SIZE) {
+			Util.copyFile(aIn, aOut);
+		}
+		else {
+			File blob = getBlob(hash(aIn));
+			try {
+				if (!blob.exists()) {
+					blob.getParentFile().mkdirs();
+					File tmpFile = File.createTempFile(blob.getName() + ".", TMP_SUFFIX,
+							blob.getParentFile());
+					try {
+						Util.copyFile(aIn, tmpFile);
+						Files.move(tmpFile.toPath(), blob.toPath(),
+								StandardCopyOption.ATOMIC_MOVE);
+					}
+					finally {
+						tmpFile.delete();
+					}
+				}
+				Files.createLink(aOut.toPath(), blob.toPath());
+			}
+			catch (IOException | UnsupportedOperationException e) {
+				log.debug("Unable to share [" + aIn + "]: " + e.getMessage());
+				Util.copyFile(aIn, aOut);
+			}
+		}
+	}
+
+	/**
+	 * Remove all blobs which are no longer linked from any context.
+	 *
+	 * @return the number of blobs removed.
+	 */
+	public synchronized int collectGarbage()
+	{
+		File[] buckets = blobRoot.listFiles();
+		if (buckets == null) {
+			return 0;
+		}
+
+		int removed = 0;
+		try {
+			for (File bucket : buckets) {
+				File[] blobs = bucket.listFiles();
+				if (blobs == null) {
+					continue;
+				}
+				for (File blob : blobs) {
+					if (blob.getName().endsWith(TMP_SUFFIX)) {
+						continue;
+					}
+					int links = (Integer) Files.getAttribute(blob.toPath(), "unix:nlink");
+					if (links <= 1 && blob.delete()) {
+						removed++;
+					}
+				}
+			}
+		}
+		catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+			log.warn("Unable to collect unused blobs: " + e.getMessage());
+		}
+
+		if (removed > 0) {
+			log.info("Removed [" + removed + "] unused blobs");
+		}
+		return removed;
+	}
+
+	private File getBlob(byte[] aHash)
+	{
+		StringBuilder sb = new StringBuilder();
+		for (byte b : aHash) {
+			sb.append(String.format("%02x", b));
+		}
+		String name = sb.toString();
+		return new File(new File(blobRoot, name.substring(0, 2)), name);
+	}
+
+	private byte[] hash(File aFile)
+		throws IOException
+	{
+		MessageDigest digest = createDigest();
+		InputStream is = null;
+		try {
+			is = new FileInputStream(aFile);
+			byte[] buffer = new byte[65536];
+			int n;
+			while ((n = is.read(buffer)) != -1) {
+				digest.update(buffer, 0, n);
+			}
+			return digest.digest();
+		}
+		finally {
+			Util.close(is);
+		}
+	}
+}
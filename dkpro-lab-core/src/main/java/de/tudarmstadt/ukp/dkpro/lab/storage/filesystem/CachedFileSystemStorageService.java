@@ -22,11 +22,12 @@ import static de.tudarmstadt.ukp.dkpro.lab.task.TaskContextMetadata.METADATA_KEY
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import de.tudarmstadt.ukp.dkpro.lab.storage.StreamReader;
 import de.tudarmstadt.ukp.dkpro.lab.storage.StreamWriter;
@@ -34,19 +35,84 @@ import de.tudarmstadt.ukp.dkpro.lab.storage.impl.PropertiesAdapter;
 import de.tudarmstadt.ukp.dkpro.lab.task.TaskContextMetadata;
 
 /**
- * File system-based storage service which caches task contexts and discriminators.
+ * File system-based storage service which caches task contexts and discriminators. The caches are
+ * bounded and evict the least recently used entries. Lookups of contexts by type and constraints
+ * which do not find anything are remembered for a short time. The service is thread-safe and can
+ * be shared by all engines of a Lab instance.
  */
 public class CachedFileSystemStorageService
     extends FileSystemStorageService
 {
-	private Map<String, TaskContextMetadata> contexts;
-	private Map<String, Map<String, String>> discriminators;
-	private boolean scannedFiles = false;
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+	public static final long DEFAULT_NOT_FOUND_TTL = 5000;
+
+	private final LruCache<String, TaskContextMetadata> contexts;
+	private final LruCache<String, Map<String, String>> discriminators;
+	private final LruCache<String, Long> notFound;
+	private long notFoundTtl = DEFAULT_NOT_FOUND_TTL;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong notFoundHits = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
 
 	public CachedFileSystemStorageService()
 	{
-		contexts = new HashMap<String, TaskContextMetadata>();
-		discriminators = new HashMap<String, Map<String, String>>();
+		contexts = new LruCache<String, TaskContextMetadata>(DEFAULT_MAX_ENTRIES, evictions);
+		discriminators = new LruCache<String, Map<String, String>>(DEFAULT_MAX_ENTRIES, evictions);
+		notFound = new LruCache<String, Long>(DEFAULT_MAX_ENTRIES, evictions);
+	}
+
+	/**
+	 * Set the maximum number of context metadata and discriminator entries kept in the cache
+	 * (each).
+	 */
+	public void setMaxEntries(int aMaxEntries)
+	{
+		contexts.setMaxEntries(aMaxEntries);
+		discriminators.setMaxEntries(aMaxEntries);
+		notFound.setMaxEntries(aMaxEntries);
+	}
+
+	/**
+	 * Set the time in milliseconds for which a lookup that did not find any context is cached.
+	 * A value of {@code 0} disables caching of such lookups.
+	 */
+	public void setNotFoundTtl(long aNotFoundTtl)
+	{
+		notFoundTtl = aNotFoundTtl;
+	}
+
+	/**
+	 * Get the number of lookups served from the cache.
+	 */
+	public long getHitCount()
+	{
+		return hits.get();
+	}
+
+	/**
+	 * Get the number of lookups that had to go to the file system.
+	 */
+	public long getMissCount()
+	{
+		return misses.get();
+	}
+
+	/**
+	 * Get the number of lookups answered from the cached "context not found" results.
+	 */
+	public long getNotFoundHitCount()
+	{
+		return notFoundHits.get();
+	}
+
+	/**
+	 * Get the number of entries evicted from the cache because it was full.
+	 */
+	public long getEvictionCount()
+	{
+		return evictions.get();
 	}
 
 	@Override
@@ -59,36 +125,42 @@ public class CachedFileSystemStorageService
 	}
 
 	@Override
-	public List<TaskContextMetadata> getContexts()
-	{
-		if (!scannedFiles) {
-			// If we are using an existing run, we need to have all the context metadata available.
-			// To avoid pulling these from the FS every time we need the list, we fetch them once.
-			// If new contexts are added, it is ensured by storeBinary that those are put into the
-			// cache.
-			for (TaskContextMetadata meta : super.getContexts()) {
-				contexts.put(meta.getId(), meta);
-			}
-			scannedFiles = true;
+	public void delete(String aContextId, String aKey)
+	{
+		super.delete(aContextId, aKey);
+
+		if (aKey.equals(METADATA_KEY)) {
+			contexts.remove(aContextId);
 		}
+		else if (aKey.equals(DISCRIMINATORS_KEY)) {
+			discriminators.remove(aContextId);
+		}
+	}
 
-		List<TaskContextMetadata> contextList = new ArrayList<TaskContextMetadata>(
-		        contexts.values());
-		Collections.sort(contextList, new Comparator<TaskContextMetadata>()
-		{
-			@Override
-			public int compare(TaskContextMetadata aO1, TaskContextMetadata aO2)
-			{
-				return Long.signum(aO2.getEnd() - aO1.getEnd());
+	@Override
+	public List<TaskContextMetadata> getContexts(String aTaskType, Map<String, String> aConstraints)
+	{
+		String key = aTaskType + '\u0000' + new TreeMap<String, String>(aConstraints);
+		Long expires = notFound.get(key);
+		if (expires != null) {
+			if (expires > System.currentTimeMillis()) {
+				notFoundHits.incrementAndGet();
+				return new ArrayList<TaskContextMetadata>();
 			}
-		});
-		return contextList;
+			notFound.remove(key);
+		}
+
+		List<TaskContextMetadata> result = super.getContexts(aTaskType, aConstraints);
+		if (result.isEmpty() && notFoundTtl > 0) {
+			notFound.put(key, System.currentTimeMillis() + notFoundTtl);
+		}
+		return result;
 	}
 
 	@Override
 	public boolean containsContext(String aContextId)
 	{
-		return contexts.containsKey(aContextId) || super.containsContext(aContextId);
+		return contexts.get(aContextId) != null || super.containsContext(aContextId);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -101,21 +173,28 @@ public class CachedFileSystemStorageService
 			consumer = (T) contexts.get(aContextId);
 		}
 		else if (aConsumer instanceof PropertiesAdapter && aKey.equals(DISCRIMINATORS_KEY)) {
-			Properties props = new Properties();
 			Map<String, String> discs = discriminators.get(aContextId);
 			if (discs != null) {
+				Properties props = new Properties();
 				props.putAll(discs);
 				((PropertiesAdapter) aConsumer).setProperties(props);
 				consumer = aConsumer;
 			}
 		}
+		else {
+			// Not cacheable
+			return super.retrieveBinary(aContextId, aKey, aConsumer);
+		}
 
-		// If the consumer is not a TaskContextMetadata/PropertiesAdapter or is not cached, retrieve
-		// it from file and store it in the cache.
+		// If the consumer is not cached, retrieve it from file and store it in the cache.
 		if (consumer == null) {
+			misses.incrementAndGet();
 			consumer = super.retrieveBinary(aContextId, aKey, aConsumer);
 			storeInCache(aContextId, aKey, consumer);
 		}
+		else {
+			hits.incrementAndGet();
+		}
 
 		return consumer;
 	}
@@ -125,6 +204,11 @@ public class CachedFileSystemStorageService
 	{
 		super.storeBinary(aContextId, aKey, aProducer);
 		storeInCache(aContextId, aKey, aProducer);
+
+		// A new context may satisfy lookups which previously failed
+		if (aKey.equals(METADATA_KEY)) {
+			notFound.clear();
+		}
 	}
 
 	@Override
@@ -158,7 +242,8 @@ public class CachedFileSystemStorageService
 			contexts.put(aContextId, (TaskContextMetadata) aMeta);
 		}
 		else if (aMeta instanceof PropertiesAdapter && aKey.equals(DISCRIMINATORS_KEY)) {
-			discriminators.put(aContextId, ((PropertiesAdapter) aMeta).getMap());
+			discriminators.put(aContextId,
+			        Collections.unmodifiableMap(((PropertiesAdapter) aMeta).getMap()));
 		}
 	}
 
@@ -166,4 +251,60 @@ public class CachedFileSystemStorageService
 	{
 		return retrieveBinary(aContextId, DISCRIMINATORS_KEY, new PropertiesAdapter()).getMap();
 	}
+
+	/**
+	 * Thread-safe map which evicts the least recently used entry when it grows beyond its maximum
+	 * size.
+	 */
+	private static class LruCache<K, V>
+	{
+		private final AtomicLong evictions;
+		private final LinkedHashMap<K, V> map;
+		private int maxEntries;
+
+		public LruCache(int aMaxEntries, AtomicLong aEvictions)
+		{
+			maxEntries = aMaxEntries;
+			evictions = aEvictions;
+			map = new LinkedHashMap<K, V>(16, 0.75f, true)
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<K, V> aEldest)
+				{
+					if (size() > maxEntries) {
+						evictions.incrementAndGet();
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+
+		public synchronized void setMaxEntries(int aMaxEntries)
+		{
+			maxEntries = aMaxEntries;
+		}
+
+		public synchronized V get(K aKey)
+		{
+			return map.get(aKey);
+		}
+
+		public synchronized void put(K aKey, V aValue)
+		{
+			map.put(aKey, aValue);
+		}
+
+		public synchronized void remove(K aKey)
+		{
+			map.remove(aKey);
+		}
+
+		public synchronized void clear()
+		{
+			map.clear();
+		}
+	}
 }
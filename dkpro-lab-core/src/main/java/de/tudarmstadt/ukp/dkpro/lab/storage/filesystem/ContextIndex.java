@@ -0,0 +1,734 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.storage.filesystem;
+
+import static de.tudarmstadt.ukp.dkpro.lab.task.Task.DISCRIMINATORS_KEY;
+import static de.tudarmstadt.ukp.dkpro.lab.task.Task.DISCRIMINATOR_FINGERPRINT_KEY;
+import static de.tudarmstadt.ukp.dkpro.lab.task.TaskContextMetadata.METADATA_KEY;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import de.tudarmstadt.ukp.dkpro.lab.Util;
+import de.tudarmstadt.ukp.dkpro.lab.storage.StreamReader;
+import de.tudarmstadt.ukp.dkpro.lab.storage.impl.PropertiesAdapter;
+import de.tudarmstadt.ukp.dkpro.lab.storage.impl.StringAdapter;
+import de.tudarmstadt.ukp.dkpro.lab.task.TaskContextMetadata;
+import de.tudarmstadt.ukp.dkpro.lab.task.impl.TaskBase;
+
+/**
+ * Persistent index of the task contexts in a {@link FileSystemStorageService} storage root. For
+ * every completed context, the index records the task type, the end time, a hash of the
+ * discriminators and the discriminator fingerprint of the task. Contexts with the same
+ * discriminator hash share the same discriminators, so these need to be loaded only once per hash.
+ * The fingerprint allows to look up contexts of a task with particular discriminators directly.
+ * <p>
+ * The index is kept in an append-only journal file in the storage root. Other processes using the
+ * same storage root append to the same journal, so their changes are picked up the next time the
+ * index is queried. All access to the journal is serialized through a lock file. Compaction
+ * atomically replaces the journal and increments the generation in its header, which tells
+ * other processes to load the journal again. The journal is compacted once most of its lines
+ * are obsolete. If the journal is missing, it is rebuilt from the storage root. When the index is
+ * first loaded, it is reconciled with the contexts actually present in the storage root, e.g. to
+ * account for contexts deleted manually or written by an older version.
+ */
+public class ContextIndex
+{
+	private final Log log = LogFactory.getLog(getClass());
+
+	public static final String INDEX_FILE = ".contexts.idx";
+	public static final String LOCK_FILE = INDEX_FILE + ".lock";
+
+	private static final ConcurrentMap<String, Lock> jvmLocks = 
+			new ConcurrentHashMap<String, Lock>();
+
+	private static final String HEADER = "# dkpro-lab context index v1";
+	private static final String ENCODING = "UTF-8";
+	private static final char ADD = '+';
+	private static final char REMOVE = '-';
+
+	// Small journals are not worth compacting
+	private static final int COMPACT_MIN_LINES = 1000;
+
+	// Most recently completed first, ties broken by ID so that entries are unique
+	private static final Comparator<IndexEntry> MOST_RECENT_FIRST = new Comparator<IndexEntry>()
+	{
+		@Override
+		public int compare(IndexEntry aO1, IndexEntry aO2)
+		{
+			int result = Long.signum(aO2.getEnd() - aO1.getEnd());
+			return result != 0 ? result : aO1.getId().compareTo(aO2.getId());
+		}
+	};
+
+	private final File storageRoot;
+	private final File indexFile;
+
+	private Map<String, IndexEntry> entries;
+	private Map<String, NavigableSet<IndexEntry>> entriesByType;
+	private Map<String, NavigableSet<IndexEntry>> entriesByFingerprint;
+	private Map<String, Map<String, String>> discriminators;
+
+	/**
+	 * Number of bytes of the journal which have already been applied.
+	 */
+	private long offset;
+
+	/**
+	 * Number of add and remove lines in the journal.
+	 */
+	private int journalLines;
+
+	/**
+	 * Generation of the journal which has been applied. Every compaction increments the
+	 * generation recorded in the journal header.
+	 */
+	private long generation;
+
+	// Held while the journal is accessed
+	private Lock jvmLock;
+	private RandomAccessFile lockFile;
+	private FileLock fileLock;
+
+	public ContextIndex(File aStorageRoot)
+	{
+		storageRoot = aStorageRoot;
+		indexFile = new File(aStorageRoot, INDEX_FILE);
+	}
+
+	/**
+	 * Get the contexts of the given type, most recently completed first.
+	 */
+	public synchronized List<IndexEntry> getContexts(String aType)
+	{
+		lock();
+		try {
+			sync();
+		}
+		finally {
+			unlock();
+		}
+
+		NavigableSet<IndexEntry> byType = entriesByType.get(aType);
+		if (byType == null) {
+			return Collections.emptyList();
+		}
+
+		return new ArrayList<IndexEntry>(byType);
+	}
+
+	/**
+	 * Get the contexts of the given type with the given discriminator fingerprint, most recently
+	 * completed first.
+	 *
+	 * @param aFingerprint
+	 *            a discriminator fingerprint or {@code null} to get the contexts which have been
+	 *            stored without a fingerprint.
+	 */
+	public synchronized List<IndexEntry> getContexts(String aType, String aFingerprint)
+	{
+		lock();
+		try {
+			sync();
+		}
+		finally {
+			unlock();
+		}
+
+		NavigableSet<IndexEntry> byFingerprint = entriesByFingerprint.get(fingerprintKey(aType,
+				aFingerprint));
+		if (byFingerprint == null) {
+			return Collections.emptyList();
+		}
+
+		return new ArrayList<IndexEntry>(byFingerprint);
+	}
+
+	/**
+	 * Get the discriminators shared by all contexts with the given discriminator hash.
+	 *
+	 * @return {@code null} if the discriminators for this hash have not been loaded yet.
+	 */
+	public synchronized Map<String, String> getDiscriminators(String aHash)
+	{
+		return discriminators.get(aHash);
+	}
+
+	/**
+	 * Remember the discriminators for the given discriminator hash.
+	 */
+	public synchronized void putDiscriminators(String aHash, Map<String, String> aDiscriminators)
+	{
+		discriminators.put(aHash, aDiscriminators);
+	}
+
+	/**
+	 * Add or update the index entry for the given context from the metadata and discriminators in
+	 * the storage root.
+	 */
+	public synchronized void add(String aContextId)
+	{
+		lock();
+		try {
+			sync();
+
+			IndexEntry entry = readEntry(aContextId);
+			if (entry != null) {
+				apply(entry);
+				append(addLine(entry));
+			}
+		}
+		finally {
+			unlock();
+		}
+	}
+
+	/**
+	 * Remove the given context from the index.
+	 */
+	public synchronized void remove(String aContextId)
+	{
+		lock();
+		try {
+			sync();
+
+			if (entries.containsKey(aContextId)) {
+				unapply(aContextId);
+				append(REMOVE + "\t" + aContextId);
+			}
+		}
+		finally {
+			unlock();
+		}
+	}
+
+	/**
+	 * Rebuild the index from scratch by scanning the storage root.
+	 */
+	public synchronized void rebuild()
+	{
+		lock();
+		try {
+			doRebuild();
+		}
+		finally {
+			unlock();
+		}
+	}
+
+	private void doRebuild()
+	{
+		log.info("Rebuilding context index in [" + storageRoot + "]");
+
+		reset();
+		File[] children = storageRoot.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				IndexEntry entry = readEntry(child.getName());
+				if (entry != null) {
+					apply(entry);
+				}
+			}
+		}
+		compact();
+	}
+
+	/**
+	 * Load the index if that has not happened yet and apply any changes other processes have
+	 * appended to the journal since it was last read. The journal must be locked.
+	 */
+	private void sync()
+	{
+		if (!indexFile.exists()) {
+			doRebuild();
+			return;
+		}
+
+		if (entries == null || readGeneration() != generation) {
+			// Not loaded yet or the journal has been compacted by another process
+			load();
+		}
+		else if (indexFile.length() > offset) {
+			readJournal();
+		}
+	}
+
+	private void load()
+	{
+		reset();
+		if (!readJournal()) {
+			doRebuild();
+			return;
+		}
+
+		// Reconcile with the storage root. The differences are appended to the journal, so other
+		// processes do not have to reconcile again.
+		File[] children = storageRoot.listFiles();
+		if (children != null) {
+			Map<String, IndexEntry> unseen = new HashMap<String, IndexEntry>(entries);
+			for (File child : children) {
+				if (unseen.remove(child.getName()) == null) {
+					IndexEntry entry = readEntry(child.getName());
+					if (entry != null) {
+						apply(entry);
+						append(addLine(entry));
+					}
+				}
+			}
+			for (String id : unseen.keySet()) {
+				unapply(id);
+				append(REMOVE + "\t" + id);
+			}
+		}
+		compactIfObsolete();
+	}
+
+	/**
+	 * Read the generation from the journal header.
+	 *
+	 * @return the generation or {@code -1} if the journal does not have a valid header.
+	 */
+	private long readGeneration()
+	{
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(indexFile),
+					ENCODING));
+			String line = reader.readLine();
+			if (line != null && line.startsWith(HEADER + "\t")) {
+				return Long.parseLong(line.substring(HEADER.length() + 1));
+			}
+			return -1;
+		}
+		catch (FileNotFoundException e) {
+			return -1;
+		}
+		catch (NumberFormatException e) {
+			return -1;
+		}
+		catch (IOException e) {
+			throw new DataAccessResourceFailureException("Unable to read context index ["
+					+ indexFile + "]", e);
+		}
+		finally {
+			Util.close(reader);
+		}
+	}
+
+	/**
+	 * Apply the lines appended to the journal since the last read.
+	 *
+	 * @return {@code false} if the journal is not a valid index.
+	 */
+	private boolean readJournal()
+	{
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(indexFile, "r");
+			byte[] buf = new byte[(int) (raf.length() - offset)];
+			raf.seek(offset);
+			raf.readFully(buf);
+
+			// All writers hold the lock, so the journal always ends with a complete line
+			String[] lines = new String(buf, ENCODING).split("\n");
+			for (int i = 0; i < lines.length; i++) {
+				String line = lines[i];
+				if (line.length() == 0) {
+					continue;
+				}
+				if (offset == 0 && i == 0) {
+					if (!line.startsWith(HEADER + "\t")) {
+						log.warn("Context index [" + indexFile + "] has an unknown format");
+						return false;
+					}
+					generation = Long.parseLong(line.substring(HEADER.length() + 1));
+					continue;
+				}
+
+				String[] fields = line.split("\t");
+				journalLines++;
+				if (fields[0].charAt(0) == ADD && fields.length == 6) {
+					apply(new IndexEntry(fields[1], fields[2], Long.parseLong(fields[3]),
+							fields[4], fields[5].length() > 0 ? fields[5] : null));
+				}
+				else if (fields[0].charAt(0) == REMOVE && fields.length == 2) {
+					unapply(fields[1]);
+				}
+				else {
+					log.warn("Ignoring malformed line in context index [" + line + "]");
+				}
+			}
+			offset += buf.length;
+			return true;
+		}
+		catch (IOException e) {
+			throw new DataAccessResourceFailureException("Unable to read context index ["
+					+ indexFile + "]", e);
+		}
+		catch (NumberFormatException e) {
+			log.warn("Context index [" + indexFile + "] is corrupt");
+			return false;
+		}
+		finally {
+			Util.close(raf);
+		}
+	}
+
+	/**
+	 * Append a line to the journal. The journal must be locked and all lines in it must have
+	 * been applied.
+	 */
+	private void append(String aLine)
+	{
+		OutputStream os = null;
+		try {
+			byte[] data = (aLine + "\n").getBytes(ENCODING);
+			os = new FileOutputStream(indexFile, true);
+			os.write(data);
+			offset += data.length;
+			journalLines++;
+		}
+		catch (IOException e) {
+			throw new DataAccessResourceFailureException("Unable to update context index ["
+					+ indexFile + "]", e);
+		}
+		finally {
+			Util.close(os);
+		}
+		compactIfObsolete();
+	}
+
+	/**
+	 * Compact the journal if more than half of its lines are obsolete, i.e. removals or entries
+	 * which have been removed or replaced since. The journal must be locked.
+	 */
+	private void compactIfObsolete()
+	{
+		if (journalLines > COMPACT_MIN_LINES && journalLines > 2 * entries.size()) {
+			compact();
+		}
+	}
+
+	private String addLine(IndexEntry aEntry)
+	{
+		return ADD + "\t" + aEntry.getId() + "\t" + aEntry.getType() + "\t" + aEntry.getEnd()
+				+ "\t" + aEntry.getHash() + "\t" + fingerprintField(aEntry);
+	}
+
+	/**
+	 * Replace the journal with one containing only the current entries. The journal must be
+	 * locked.
+	 */
+	private void compact()
+	{
+		File tmpFile = null;
+		OutputStream os = null;
+		try {
+			long newGeneration = Math.max(readGeneration(), generation) + 1;
+			StringBuilder sb = new StringBuilder();
+			sb.append(HEADER).append('\t').append(newGeneration).append('\n');
+			for (IndexEntry entry : entries.values()) {
+				sb.append(addLine(entry)).append('\n');
+			}
+			byte[] data = sb.toString().getBytes(ENCODING);
+			
+			// Readers either see the old or the new journal, never none
+			tmpFile = File.createTempFile(INDEX_FILE + ".", ".tmp", storageRoot);
+			os = new FileOutputStream(tmpFile);
+			os.write(data);
+			os.close();
+			Files.move(tmpFile.toPath(), indexFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+			offset = data.length;
+			journalLines = entries.size();
+			generation = newGeneration;
+		}
+		catch (IOException e) {
+			if (tmpFile != null) {
+				tmpFile.delete();
+			}
+			throw new DataAccessResourceFailureException("Unable to write context index ["
+					+ indexFile + "]", e);
+		}
+		finally {
+			Util.close(os);
+		}
+	}
+
+	/**
+	 * Lock the journal against other threads and processes. Within a JVM, file locks cannot be
+	 * used to coordinate threads, so all indexes on the same storage root share a JVM lock.
+	 */
+	private void lock()
+	{
+		File file = new File(storageRoot, LOCK_FILE);
+		Lock newJvmLock = getJvmLock(file);
+		newJvmLock.lock();
+		RandomAccessFile raf = null;
+		try {
+			storageRoot.mkdirs();
+			raf = new RandomAccessFile(file, "rw");
+			fileLock = raf.getChannel().lock();
+			lockFile = raf;
+			jvmLock = newJvmLock;
+		}
+		catch (IOException e) {
+			Util.close(raf);
+			newJvmLock.unlock();
+			throw new DataAccessResourceFailureException("Unable to lock context index ["
+					+ indexFile + "]", e);
+		}
+	}
+
+	private void unlock()
+	{
+		try {
+			fileLock.release();
+		}
+		catch (IOException e) {
+			log.warn("Unable to unlock context index [" + indexFile + "]", e);
+		}
+		finally {
+			Util.close(lockFile);
+			fileLock = null;
+			lockFile = null;
+			Lock oldJvmLock = jvmLock;
+			jvmLock = null;
+			oldJvmLock.unlock();
+		}
+	}
+
+	private static Lock getJvmLock(File aFile)
+	{
+		String key = aFile.getAbsoluteFile().toURI().normalize().toString();
+		Lock lock = jvmLocks.get(key);
+		if (lock == null) {
+			Lock newLock = new ReentrantLock();
+			lock = jvmLocks.putIfAbsent(key, newLock);
+			if (lock == null) {
+				lock = newLock;
+			}
+		}
+		return lock;
+	}
+
+	/**
+	 * Create an index entry for the given context from its metadata and discriminators.
+	 *
+	 * @return {@code null} if the context is not complete.
+	 */
+	private IndexEntry readEntry(String aContextId)
+	{
+		File contextFolder = new File(storageRoot, aContextId);
+		File metadataFile = new File(contextFolder, METADATA_KEY);
+		if (!metadataFile.isFile()) {
+			return null;
+		}
+
+		TaskContextMetadata meta = new TaskContextMetadata();
+		read(metadataFile, meta);
+
+		Map<String, String> discs = Collections.emptyMap();
+		File discriminatorsFile = new File(contextFolder, DISCRIMINATORS_KEY);
+		if (discriminatorsFile.isFile()) {
+			PropertiesAdapter adapter = new PropertiesAdapter();
+			read(discriminatorsFile, adapter);
+			discs = adapter.getMap();
+		}
+
+		// Contexts stored by older versions do not have a fingerprint
+		String fingerprint = null;
+		File fingerprintFile = new File(contextFolder, DISCRIMINATOR_FINGERPRINT_KEY);
+		if (fingerprintFile.isFile()) {
+			StringAdapter adapter = new StringAdapter();
+			read(fingerprintFile, adapter);
+			fingerprint = adapter.getString().trim();
+		}
+
+		return new IndexEntry(aContextId, meta.getType(), meta.getEnd(), hash(discs),
+				fingerprint);
+	}
+
+	private void read(File aFile, StreamReader aReader)
+	{
+		InputStream is = null;
+		try {
+			is = new FileInputStream(aFile);
+			aReader.read(is);
+		}
+		catch (IOException e) {
+			throw new DataAccessResourceFailureException("Unable to read [" + aFile + "]", e);
+		}
+		finally {
+			Util.close(is);
+		}
+	}
+
+	private void reset()
+	{
+		entries = new LinkedHashMap<String, IndexEntry>();
+		entriesByType = new HashMap<String, NavigableSet<IndexEntry>>();
+		entriesByFingerprint = new HashMap<String, NavigableSet<IndexEntry>>();
+		discriminators = new HashMap<String, Map<String, String>>();
+		offset = 0;
+		journalLines = 0;
+	}
+
+	private void apply(IndexEntry aEntry)
+	{
+		unapply(aEntry.getId());
+
+		entries.put(aEntry.getId(), aEntry);
+		NavigableSet<IndexEntry> byType = entriesByType.get(aEntry.getType());
+		if (byType == null) {
+			byType = new TreeSet<IndexEntry>(MOST_RECENT_FIRST);
+			entriesByType.put(aEntry.getType(), byType);
+		}
+		byType.add(aEntry);
+		
+		String key = fingerprintKey(aEntry.getType(), aEntry.getFingerprint());
+		NavigableSet<IndexEntry> byFingerprint = entriesByFingerprint.get(key);
+		if (byFingerprint == null) {
+			byFingerprint = new TreeSet<IndexEntry>(MOST_RECENT_FIRST);
+			entriesByFingerprint.put(key, byFingerprint);
+		}
+		byFingerprint.add(aEntry);
+	}
+
+	private void unapply(String aContextId)
+	{
+		IndexEntry old = entries.remove(aContextId);
+		if (old != null) {
+			NavigableSet<IndexEntry> byType = entriesByType.get(old.getType());
+			byType.remove(old);
+			if (byType.isEmpty()) {
+				entriesByType.remove(old.getType());
+			}
+			
+			String key = fingerprintKey(old.getType(), old.getFingerprint());
+			NavigableSet<IndexEntry> byFingerprint = entriesByFingerprint.get(key);
+			byFingerprint.remove(old);
+			if (byFingerprint.isEmpty()) {
+				entriesByFingerprint.remove(key);
+			}
+		}
+	}
+
+	private static String fingerprintKey(String aType, String aFingerprint)
+	{
+		return aType + "\t" + fingerprintField(aFingerprint);
+	}
+
+	private static String fingerprintField(IndexEntry aEntry)
+	{
+		return fingerprintField(aEntry.getFingerprint());
+	}
+
+	private static String fingerprintField(String aFingerprint)
+	{
+		return aFingerprint != null ? aFingerprint : "";
+	}
+
+	/**
+	 * Calculate a hash over the given discriminators which is independent of their order.
+	 *
+	 * @see TaskBase#fingerprint(Map)
+	 */
+	public static String hash(Map<String, String> aDiscriminators)
+	{
+		return TaskBase.fingerprint(aDiscriminators);
+	}
+
+	/**
+	 * Index information about a single context.
+	 */
+	public static class IndexEntry
+	{
+		private final String id;
+		private final String type;
+		private final long end;
+		private final String hash;
+		private final String fingerprint;
+
+		public IndexEntry(String aId, String aType, long aEnd, String aHash, String aFingerprint)
+		{
+			id = aId;
+			type = aType;
+			end = aEnd;
+			hash = aHash;
+			fingerprint = aFingerprint;
+		}
+
+		public String getId()
+		{
+			return id;
+		}
+
+		public String getType()
+		{
+			return type;
+		}
+
+		public long getEnd()
+		{
+			return end;
+		}
+
+		public String getHash()
+		{
+			return hash;
+		}
+
+		/**
+		 * @return the discriminator fingerprint of the task or {@code null} if the context was
+		 *         stored without one.
+		 */
+		public String getFingerprint()
+		{
+			return fingerprint;
+		}
+	}
+}
@@ -17,7 +17,6 @@
  ******************************************************************************/
 package de.tudarmstadt.ukp.dkpro.lab.storage.filesystem;
 
-import static de.tudarmstadt.ukp.dkpro.lab.engine.impl.ImportUtil.matchConstraints;
 import static de.tudarmstadt.ukp.dkpro.lab.task.TaskContextMetadata.METADATA_KEY;
 
 import java.io.File;
@@ -27,13 +26,23 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.logging.Log;
@@ -41,10 +50,13 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.dao.DataAccessResourceFailureException;
 
 import de.tudarmstadt.ukp.dkpro.lab.Util;
+import de.tudarmstadt.ukp.dkpro.lab.engine.impl.ConstraintMatcher;
 import de.tudarmstadt.ukp.dkpro.lab.engine.impl.ImportUtil;
+import de.tudarmstadt.ukp.dkpro.lab.storage.CompressionCodec;
 import de.tudarmstadt.ukp.dkpro.lab.storage.StorageService;
 import de.tudarmstadt.ukp.dkpro.lab.storage.StreamReader;
 import de.tudarmstadt.ukp.dkpro.lab.storage.StreamWriter;
+import de.tudarmstadt.ukp.dkpro.lab.storage.impl.CompressionCodecRegistry;
 import de.tudarmstadt.ukp.dkpro.lab.storage.impl.PropertiesAdapter;
 import de.tudarmstadt.ukp.dkpro.lab.task.Task;
 import de.tudarmstadt.ukp.dkpro.lab.task.TaskContextMetadata;
@@ -57,14 +69,40 @@ public class FileSystemStorageService
 {
 	private final Log log = LogFactory.getLog(getClass());
 
-	private static final int MAX_RETRIES = 100;
-	private static final long SLEEP_TIME = 1000;
+	public static final long DEFAULT_RETRY_TIMEOUT = 100000;
+	public static final long DEFAULT_MISSING_KEY_TIMEOUT = 10000;
+	public static final int DEFAULT_COLLECT_GARBAGE_INTERVAL = 100;
+
+	private static final long MIN_BACKOFF = 10;
+	private static final long MAX_BACKOFF = 1000;
+
+	private long retryTimeout = DEFAULT_RETRY_TIMEOUT;
+	private long missingKeyTimeout = DEFAULT_MISSING_KEY_TIMEOUT;
+
+	/**
+	 * Readers waiting for a key to become available. They are woken up when the key is stored or
+	 * when its context is deleted.
+	 */
+	private final ConcurrentMap<File, CountDownLatch> pending = new ConcurrentHashMap<File, CountDownLatch>();
 
 	private File storageRoot;
 
+	private ContextIndex index;
+
+	private boolean deduplicate = false;
+	private BlobStore blobStore;
+	private int collectGarbageInterval = DEFAULT_COLLECT_GARBAGE_INTERVAL;
+	private final AtomicInteger deletedSinceCollection = new AtomicInteger();
+
+	private CompressionCodecRegistry compressionCodecs = new CompressionCodecRegistry();
+
 	public void setStorageRoot(File aStorageRoot)
 	{
 		storageRoot = aStorageRoot;
+		synchronized (this) {
+			index = null;
+			blobStore = null;
+		}
 	}
 
 	public File getStorageRoot()
@@ -72,21 +110,109 @@ public class FileSystemStorageService
 		return storageRoot;
 	}
 
+	/**
+	 * Store files with identical content only once by linking them to a shared blob in the
+	 * storage root (default: {@code false}). Modifying a shared file in place modifies all files
+	 * sharing its content, so this should only be enabled if tasks do not modify stored files in
+	 * place.
+	 *
+	 * @see BlobStore
+	 */
+	public void setDeduplicate(boolean aDeduplicate)
+	{
+		deduplicate = aDeduplicate;
+	}
+
+	public boolean isDeduplicate()
+	{
+		return deduplicate;
+	}
+
+	/**
+	 * Set the number of deleted contexts after which the content no longer shared by any context
+	 * is removed (default: {@value #DEFAULT_COLLECT_GARBAGE_INTERVAL}). Looking for such content
+	 * visits every shared file, so it is not done whenever a context is deleted.
+	 *
+	 * @see #collectGarbage()
+	 */
+	public void setCollectGarbageInterval(int aCollectGarbageInterval)
+	{
+		collectGarbageInterval = aCollectGarbageInterval;
+	}
+
+	/**
+	 * Remove the content which has been shared between contexts but is no longer used by any.
+	 *
+	 * @return the number of removed files.
+	 * @see #setDeduplicate(boolean)
+	 */
+	public int collectGarbage()
+	{
+		deletedSinceCollection.set(0);
+		return getBlobStore().collectGarbage();
+	}
+
+	/**
+	 * Set the codecs used to compress keys depending on their suffix.
+	 */
+	public void setCompressionCodecs(CompressionCodecRegistry aCompressionCodecs)
+	{
+		compressionCodecs = aCompressionCodecs;
+	}
+
+	public CompressionCodecRegistry getCompressionCodecs()
+	{
+		return compressionCodecs;
+	}
+
+	/**
+	 * Set the maximum time in milliseconds for which {@link #retrieveBinary} keeps retrying to
+	 * read a key which exists but cannot be accessed, e.g. because it is locked by another process
+	 * (default: {@value #DEFAULT_RETRY_TIMEOUT}).
+	 */
+	public void setRetryTimeout(long aRetryTimeout)
+	{
+		retryTimeout = aRetryTimeout;
+	}
+
+	/**
+	 * Set the maximum time in milliseconds for which {@link #retrieveBinary} waits for a key which
+	 * does not exist yet in a context that is still being produced (default:
+	 * {@value #DEFAULT_MISSING_KEY_TIMEOUT}). If the context is complete or does not exist, the
+	 * method fails immediately instead.
+	 */
+	public void setMissingKeyTimeout(long aMissingKeyTimeout)
+	{
+		missingKeyTimeout = aMissingKeyTimeout;
+	}
+
 	@Override
 	public void delete(String aContextId)
 	{
 		try {
+			getIndex().remove(aContextId);
 			FileUtils.deleteDirectory(getContextFolder(aContextId, false));
 		}
 		catch (IOException e) {
 			throw new DataAccessResourceFailureException(e.getMessage(), e);
 		}
+		finally {
+			// Contexts of failed tasks are deleted, so anybody waiting for them can give up now
+			signalContext(aContextId);
+		}
+
+		if (deduplicate && deletedSinceCollection.incrementAndGet() >= collectGarbageInterval) {
+			collectGarbage();
+		}
 	}
 
 	@Override
 	public void delete(String aContextId, String aKey)
 	{
 		try {
+			if (METADATA_KEY.equals(aKey)) {
+				getIndex().remove(aContextId);
+			}
 			FileUtils.deleteDirectory(new File(getContextFolder(aContextId, false), aKey));
 		}
 		catch (IOException e) {
@@ -127,27 +253,66 @@ public class FileSystemStorageService
 	public List<TaskContextMetadata> getContexts(String aTaskType, Map<String, String> aConstraints)
 	{
 		List<TaskContextMetadata> contexts = new ArrayList<TaskContextMetadata>();
+		ContextIndex idx = getIndex();
+		collectContexts(idx, idx.getContexts(aTaskType), aConstraints, contexts);
+		sortContexts(contexts);
+		return contexts;
+	}
 
-		nextContext: for (TaskContextMetadata e : getContexts()) {
-			// Ignore those that do not match the type
-			if (!aTaskType.equals(e.getType())) {
+	@Override
+	public List<TaskContextMetadata> getContexts(String aTaskType, String aFingerprint,
+			Map<String, String> aConstraints)
+	{
+		List<TaskContextMetadata> contexts = new ArrayList<TaskContextMetadata>();
+		ContextIndex idx = getIndex();
+		Map<String, String> noConstraints = Collections.emptyMap();
+		collectContexts(idx, idx.getContexts(aTaskType, aFingerprint), noConstraints, contexts);
+		// Contexts stored without a fingerprint have to be matched against the constraints
+		collectContexts(idx, idx.getContexts(aTaskType, null), aConstraints, contexts);
+		sortContexts(contexts);
+		return contexts;
+	}
+
+	private void collectContexts(ContextIndex aIndex, List<ContextIndex.IndexEntry> aEntries,
+			Map<String, String> aConstraints, List<TaskContextMetadata> aContexts)
+	{
+		ConstraintMatcher matcher = new ConstraintMatcher(aConstraints, true);
+		// Contexts with the same discriminator hash either all match or none does
+		Map<String, Boolean> matchesByHash = new HashMap<String, Boolean>();
+		for (ContextIndex.IndexEntry e : aEntries) {
+			// The context may have been removed without going through this service
+			if (!containsKey(e.getId(), METADATA_KEY)) {
+				aIndex.remove(e.getId());
 				continue;
 			}
 
-			// Check the constraints if there are any
+			// Check the constraints if there are any. Contexts with the same discriminator hash
+			// have the same discriminators, so we load them only once.
 			if (aConstraints.size() > 0) {
-				final Map<String, String> properties = retrieveBinary(e.getId(),
-				        Task.DISCRIMINATORS_KEY, new PropertiesAdapter()).getMap();
+				Boolean match = matchesByHash.get(e.getHash());
+				if (match == null) {
+					Map<String, String> properties = aIndex.getDiscriminators(e.getHash());
+					if (properties == null) {
+						properties = retrieveBinary(e.getId(), Task.DISCRIMINATORS_KEY,
+						        new PropertiesAdapter()).getMap();
+						aIndex.putDiscriminators(e.getHash(), properties);
+					}
+					match = matcher.matches(properties);
+					matchesByHash.put(e.getHash(), match);
+				}
 
-				if (!matchConstraints(properties, aConstraints, true)) {
-					continue nextContext;
+				if (!match) {
+					continue;
 				}
 			}
 
-			contexts.add(e);
+			aContexts.add(retrieveBinary(e.getId(), METADATA_KEY, new TaskContextMetadata()));
 		}
+	}
 
-		Collections.sort(contexts, new Comparator<TaskContextMetadata>()
+	private void sortContexts(List<TaskContextMetadata> aContexts)
+	{
+		Collections.sort(aContexts, new Comparator<TaskContextMetadata>()
 		{
 			@Override
 			public int compare(TaskContextMetadata aO1, TaskContextMetadata aO2)
@@ -155,8 +320,6 @@ public class FileSystemStorageService
 				return Long.signum(aO2.getEnd() - aO1.getEnd());
 			}
 		});
-
-		return contexts;
 	}
 
 	@Override
@@ -186,15 +349,19 @@ public class FileSystemStorageService
 	@Override
 	public <T extends StreamReader> T retrieveBinary(String aContextId, String aKey, T aConsumer)
 	{
-		InputStream is = null;
+		File file = new File(getContextFolder(aContextId, false), aKey);
+		CompressionCodec codec = compressionCodecs.getCodec(aKey);
+		long start = System.currentTimeMillis();
+		long backoff = MIN_BACKOFF;
 		int currentTry = 1;
 		IOException lastException = null;
 
-		while (currentTry <= MAX_RETRIES) {
+		while (true) {
+			InputStream is = null;
 			try {
-				is = new FileInputStream(new File(getContextFolder(aContextId, true), aKey));
-				if (aKey.endsWith(".gz")) {
-					is = new GZIPInputStream(is);
+				is = new FileInputStream(file);
+				if (codec != null) {
+					is = codec.decompress(is);
 				}
 				aConsumer.read(is);
 				return aConsumer;
@@ -203,17 +370,6 @@ public class FileSystemStorageService
 				// https://code.google.com/p/dkpro-lab/issues/detail?id=64
 				// may be related to a concurrent access so try again after some time
 				lastException = e;
-
-				currentTry++;
-				log.debug(currentTry + ". try accessing " + aKey + " in context " + aContextId);
-
-				try {
-					Thread.sleep(SLEEP_TIME);
-				}
-				catch (InterruptedException e1) {
-					// we should probably abort the whole thing
-					currentTry = MAX_RETRIES;
-				}
 			}
 			catch (Throwable e) {
 				throw new DataAccessResourceFailureException("Unable to load [" + aKey
@@ -222,12 +378,136 @@ public class FileSystemStorageService
 			finally {
 				Util.close(is);
 			}
+
+			// The first retry also covers the short moment in which storeBinary replaces an
+			// existing file. After that, only wait if there is a chance the key still shows up.
+			long timeout = currentTry == 1 ? retryTimeout : getRetryTimeout(aContextId, file);
+			long remaining = start + timeout - System.currentTimeMillis();
+			if (remaining <= 0) {
+				break;
+			}
+
+			currentTry++;
+			log.debug(currentTry + ". try accessing " + aKey + " in context " + aContextId);
+
+			try {
+				await(file, Math.min(backoff, remaining));
+			}
+			catch (InterruptedException e) {
+				// we should probably abort the whole thing
+				Thread.currentThread().interrupt();
+				break;
+			}
+			backoff = Math.min(backoff * 2, MAX_BACKOFF);
 		}
 
 		throw new DataAccessResourceFailureException("Unable to access [" + aKey + "] in context ["
 		        + aContextId + "]", lastException);
 	}
 
+	/**
+	 * Get the time for which it makes sense to keep trying to read the given file.
+	 */
+	private long getRetryTimeout(String aContextId, File aFile)
+	{
+		if (aFile.exists()) {
+			// Exists but cannot be read - maybe locked
+			return retryTimeout;
+		}
+		File context = getContextFolder(aContextId, false);
+		if (!context.isDirectory() || new File(context, METADATA_KEY).exists()) {
+			// The context failed and was deleted, or it is complete - nobody will store the key
+			return 0;
+		}
+		return Math.min(missingKeyTimeout, retryTimeout);
+	}
+
+	/**
+	 * Wait until the given file is stored by this service or the timeout expires. Files written
+	 * by other processes are picked up when the caller polls again after the timeout.
+	 */
+	private void await(File aFile, long aTimeout)
+	    throws InterruptedException
+	{
+		CountDownLatch latch = new CountDownLatch(1);
+		CountDownLatch existing = pending.putIfAbsent(aFile, latch);
+		if (existing != null) {
+			latch = existing;
+		}
+
+		// The file may have been stored before we registered the latch
+		if (aFile.exists()) {
+			return;
+		}
+
+		if (!latch.await(aTimeout, TimeUnit.MILLISECONDS)) {
+			pending.remove(aFile, latch);
+		}
+	}
+
+	/**
+	 * Wake up all readers waiting for the given file.
+	 */
+	private void signal(File aFile)
+	{
+		CountDownLatch latch = pending.remove(aFile);
+		if (latch != null) {
+			latch.countDown();
+		}
+	}
+
+	/**
+	 * Wake up all readers waiting for any file in the given context.
+	 */
+	private void signalContext(String aContextId)
+	{
+		String prefix = getContextFolder(aContextId, false).getPath() + File.separator;
+		for (File file : pending.keySet()) {
+			if (file.getPath().startsWith(prefix)) {
+				signal(file);
+			}
+		}
+	}
+
+	@Override
+	public FileChannel retrieveChannel(String aContextId, String aKey)
+	{
+		if (compressionCodecs.getCodec(aKey) != null) {
+			throw new DataAccessResourceFailureException("Compressed key [" + aKey
+			        + "] in context [" + aContextId + "] cannot be accessed as a channel");
+		}
+
+		try {
+			return FileChannel.open(new File(getContextFolder(aContextId, false), aKey).toPath(),
+			        StandardOpenOption.READ);
+		}
+		catch (IOException e) {
+			throw new DataAccessResourceFailureException("Unable to access [" + aKey
+			        + "] in context [" + aContextId + "]", e);
+		}
+	}
+
+	@Override
+	public MappedByteBuffer retrieveMapped(String aContextId, String aKey)
+	{
+		FileChannel channel = retrieveChannel(aContextId, aKey);
+		try {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new DataAccessResourceFailureException("[" + aKey + "] in context ["
+				        + aContextId + "] is too large to be mapped in one piece");
+			}
+			// The mapping stays valid after the channel is closed
+			return channel.map(MapMode.READ_ONLY, 0, channel.size());
+		}
+		catch (IOException e) {
+			throw new DataAccessResourceFailureException("Unable to map [" + aKey
+			        + "] in context [" + aContextId + "]", e);
+		}
+		finally {
+			Util.close(channel);
+		}
+	}
+
 	@Override
 	public void storeBinary(String aContextId, String aKey, StreamWriter aProducer)
 	{
@@ -236,12 +516,19 @@ public class FileSystemStorageService
 		File finalFile = new File(context, aKey);
 
 		OutputStream os = null;
+		MessageDigest digest = null;
 		try {
 			tmpFile.getParentFile().mkdirs(); // Necessary if the key addresses a sub-directory
 			log.debug("Storing to: " + finalFile);
 			os = new FileOutputStream(tmpFile);
-			if (aKey.endsWith(".gz")) {
-				os = new GZIPOutputStream(os);
+			if (deduplicate) {
+				// Hash the data as it is written to disk
+				digest = BlobStore.createDigest();
+				os = new DigestOutputStream(os, digest);
+			}
+			CompressionCodec codec = compressionCodecs.getCodec(aKey);
+			if (codec != null) {
+				os = codec.compress(os);
 			}
 			aProducer.write(os);
 		}
@@ -263,12 +550,24 @@ public class FileSystemStorageService
 			}
 		}
 
+		// If the same content has been stored before, link to it instead of keeping a copy.
 		// Make sure the file is only visible under the final name after all data has been
 		// written into it.
-		boolean renameSuccess = tmpFile.renameTo(finalFile);
-		if (!renameSuccess) {
-			throw new DataAccessResourceFailureException("Unable to rename [" + tmpFile + "] to ["
-			        + finalFile + "]");
+		if (digest == null || !getBlobStore().link(tmpFile, finalFile, digest.digest())) {
+			boolean renameSuccess = tmpFile.renameTo(finalFile);
+			if (!renameSuccess) {
+				throw new DataAccessResourceFailureException("Unable to rename [" + tmpFile
+				        + "] to [" + finalFile + "]");
+			}
+		}
+
+		signal(finalFile);
+
+		// The metadata is written when the context is complete, so now it can be found
+		if (METADATA_KEY.equals(aKey)) {
+			getIndex().add(aContextId);
+			// Keys which are still missing will not be stored anymore
+			signalContext(aContextId);
 		}
 	}
 
@@ -336,6 +635,12 @@ public class FileSystemStorageService
 					        + "] was requested. Linking to current context");
 					Util.copy(source, target, true);
 				}
+				else if (deduplicate && aMode == AccessMode.ADD_ONLY) {
+					// Existing files are not modified, so they can share their content
+					log.info("Write access to imported storage folder [" + aKey
+					        + "] was requested. Linking files to current context");
+					getBlobStore().copy(source, target);
+				}
 				else {
 					log.info("Write access to imported storage folder [" + aKey
 					        + "] was requested. Copying to current context");
@@ -351,6 +656,28 @@ public class FileSystemStorageService
 		}
 	}
 
+	/**
+	 * Get the index of the contexts in the storage root.
+	 */
+	protected synchronized ContextIndex getIndex()
+	{
+		if (index == null) {
+			index = new ContextIndex(getStorageRoot());
+		}
+		return index;
+	}
+
+	/**
+	 * Get the store for content shared between contexts.
+	 */
+	protected synchronized BlobStore getBlobStore()
+	{
+		if (blobStore == null) {
+			blobStore = new BlobStore(getStorageRoot());
+		}
+		return blobStore;
+	}
+
 	private File getContextFolder(String aContextId, boolean create)
 	{
 		File folder = new File(getStorageRoot(), aContextId);
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.storage.filesystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+/**
+ * Work queue shared by several processes using the same {@link FileSystemStorageService} storage
+ * root. An item is claimed by atomically creating a lock file for it, so each item is processed
+ * by exactly one process. When the item has been processed, a second marker file recording the
+ * context which processed it is created, so items claimed by processes which died can be detected
+ * via {@link #getPending()}.
+ * <p>
+ * The queue relies on {@link File#createNewFile()} being atomic, which holds for local file
+ * systems and NFSv3 or later.
+ */
+public class FileSystemWorkQueue
+{
+	public static final String QUEUE_FOLDER = ".queues";
+
+	private static final String LOCK_SUFFIX = ".lock";
+	private static final String DONE_SUFFIX = ".done";
+
+	private final File queueFolder;
+
+	public FileSystemWorkQueue(File aStorageRoot, String aName)
+	{
+		queueFolder = new File(new File(aStorageRoot, QUEUE_FOLDER), aName);
+	}
+
+	public File getQueueFolder()
+	{
+		return queueFolder;
+	}
+
+	/**
+	 * Try to claim the given item for this process.
+	 * 
+	 * @return {@code true} if the item was claimed, {@code false} if another process already
+	 *         claimed it.
+	 */
+	public boolean claim(String aItem)
+	{
+		File lock = new File(queueFolder, aItem + LOCK_SUFFIX);
+		try {
+			queueFolder.mkdirs();
+			if (!lock.createNewFile()) {
+				return false;
+			}
+			
+			// Record the owner to make debugging easier
+			FileUtils.writeStringToFile(lock, ManagementFactory.getRuntimeMXBean().getName(),
+					"UTF-8");
+			return true;
+		}
+		catch (IOException e) {
+			throw new DataAccessResourceFailureException("Unable to claim [" + lock + "]", e);
+		}
+	}
+
+	/**
+	 * Mark the given item as processed.
+	 * 
+	 * @param aOwner
+	 *            the ID of the context which processed the item.
+	 */
+	public void complete(String aItem, String aOwner)
+	{
+		File done = new File(queueFolder, aItem + DONE_SUFFIX);
+		try {
+			FileUtils.writeStringToFile(done, aOwner, "UTF-8");
+		}
+		catch (IOException e) {
+			throw new DataAccessResourceFailureException("Unable to complete [" + done + "]", e);
+		}
+	}
+
+	/**
+	 * Get the items which have been claimed but not yet processed.
+	 */
+	public List<String> getPending()
+	{
+		List<String> pending = new ArrayList<String>();
+		File[] files = queueFolder.listFiles();
+		if (files != null) {
+			for (File f : files) {
+				String name = f.getName();
+				if (name.endsWith(LOCK_SUFFIX)) {
+					String item = name.substring(0, name.length() - LOCK_SUFFIX.length());
+					if (!new File(queueFolder, item + DONE_SUFFIX).exists()) {
+						pending.add(item);
+					}
+				}
+			}
+		}
+		Collections.sort(pending);
+		return pending;
+	}
+
+	/**
+	 * Get the items which have been processed together with the ID of the context which processed
+	 * them.
+	 */
+	public Map<String, String> getCompleted()
+	{
+		Map<String, String> completed = new TreeMap<String, String>();
+		File[] files = queueFolder.listFiles();
+		if (files != null) {
+			for (File f : files) {
+				String name = f.getName();
+				if (name.endsWith(DONE_SUFFIX)) {
+					String item = name.substring(0, name.length() - DONE_SUFFIX.length());
+					try {
+						completed.put(item, FileUtils.readFileToString(f, "UTF-8").trim());
+					}
+					catch (IOException e) {
+						throw new DataAccessResourceFailureException("Unable to read [" + f + "]",
+								e);
+					}
+				}
+			}
+		}
+		return completed;
+	}
+
+	/**
+	 * Remove the queue, so all items can be claimed again.
+	 */
+	public void clear()
+	{
+		FileUtils.deleteQuietly(queueFolder);
+	}
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.storage.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import de.tudarmstadt.ukp.dkpro.lab.storage.StreamReader;
+import de.tudarmstadt.ukp.dkpro.lab.storage.StreamWriter;
+
+/**
+ * Adapter to persist/load an object using the compact {@link BinaryFormat}. It is considerably
+ * faster than {@link SerializedObjectAdapter} and produces smaller files, in particular for large
+ * collections and maps of strings and numbers. Types other than those supported out of the box
+ * have to be registered on the format.
+ *
+ * @param <T> the type of object.
+ */
+public class BinaryAdapter<T>
+	implements StreamReader, StreamWriter
+{
+	static final int BUFFER_SIZE = 65536;
+
+	private final BinaryFormat format;
+	private T object;
+
+	public BinaryAdapter()
+	{
+		// This is generally used for reader usage.
+		this(new BinaryFormat());
+	}
+
+	public BinaryAdapter(BinaryFormat aFormat)
+	{
+		format = aFormat;
+	}
+
+	public BinaryAdapter(T aObject)
+	{
+		this(new BinaryFormat(), aObject);
+	}
+
+	public BinaryAdapter(BinaryFormat aFormat, T aObject)
+	{
+		this(aFormat);
+		setObject(aObject);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void read(InputStream aInputStream)
+		throws IOException
+	{
+		object = (T) format.readObject(new DataInputStream(new BufferedInputStream(aInputStream,
+		        BUFFER_SIZE)));
+	}
+
+	@Override
+	public void write(OutputStream aStream)
+		throws Exception
+	{
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(aStream, BUFFER_SIZE));
+		format.writeObject(out, object);
+		out.flush();
+	}
+
+	public BinaryFormat getFormat()
+	{
+		return format;
+	}
+
+	public void setObject(T aObject)
+	{
+		object = aObject;
+	}
+
+	public T getObject()
+	{
+		return object;
+	}
+
+	public static <V> BinaryAdapter<V> wrap(V aObject)
+	{
+		return new BinaryAdapter<V>(aObject);
+	}
+}
@@ -0,0 +1,501 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.storage.impl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact binary encoding of object data. Unlike Java serialization, the format does not include
+ * class names or field descriptions. Every value is written as a small numeric type tag followed by
+ * its data. Integers are written as variable-length numbers, so small values take a single byte.
+ * <p>
+ * Primitive wrappers, strings, primitive arrays, lists, sets and maps are supported out of the box.
+ * Other types have to be registered with a {@link Serializer}. Types are identified by the order
+ * in which they are registered, so data has to be read using a format on which the same types were
+ * registered in the same order as on the format used to write it.
+ * <p>
+ * Sorted sets and maps are restored with natural ordering. Other lists, sets and maps are restored
+ * as {@link ArrayList}, {@link HashSet} or {@link LinkedHashSet}, and {@link HashMap} or
+ * {@link LinkedHashMap}. Shared or cyclic references are not preserved.
+ * <p>
+ * Registration is thread-safe, but all types should be registered before the format is used.
+ *
+ * @see BinaryAdapter
+ * @see BinarySequenceAdapter
+ */
+public class BinaryFormat
+{
+	/**
+	 * Reads and writes the data of a registered type.
+	 */
+	public interface Serializer<T>
+	{
+		/**
+		 * Write the value. Nested values can be written using
+		 * {@link BinaryFormat#writeObject(DataOutput, Object)}.
+		 */
+		void write(BinaryFormat aFormat, DataOutput aOut, T aValue) throws IOException;
+
+		/**
+		 * Read a value previously written by {@link #write}.
+		 */
+		T read(BinaryFormat aFormat, DataInput aIn) throws IOException;
+	}
+
+	private static final int NULL = 0;
+	private static final int BOOLEAN = 1;
+	private static final int BYTE = 2;
+	private static final int SHORT = 3;
+	private static final int CHARACTER = 4;
+	private static final int INTEGER = 5;
+	private static final int LONG = 6;
+	private static final int FLOAT = 7;
+	private static final int DOUBLE = 8;
+	private static final int STRING = 9;
+	private static final int BYTE_ARRAY = 10;
+	private static final int INT_ARRAY = 11;
+	private static final int LONG_ARRAY = 12;
+	private static final int DOUBLE_ARRAY = 13;
+	private static final int LIST = 14;
+	private static final int SET = 15;
+	private static final int LINKED_SET = 16;
+	private static final int SORTED_SET = 17;
+	private static final int MAP = 18;
+	private static final int LINKED_MAP = 19;
+	private static final int SORTED_MAP = 20;
+
+	/**
+	 * Ids of registered types start here. Ids below are reserved for built-in types.
+	 */
+	private static final int FIRST_CUSTOM_ID = 32;
+
+	private static final Map<Class<?>, Integer> BUILT_IN;
+
+	static {
+		BUILT_IN = new HashMap<Class<?>, Integer>();
+		BUILT_IN.put(Boolean.class, BOOLEAN);
+		BUILT_IN.put(Byte.class, BYTE);
+		BUILT_IN.put(Short.class, SHORT);
+		BUILT_IN.put(Character.class, CHARACTER);
+		BUILT_IN.put(Integer.class, INTEGER);
+		BUILT_IN.put(Long.class, LONG);
+		BUILT_IN.put(Float.class, FLOAT);
+		BUILT_IN.put(Double.class, DOUBLE);
+		BUILT_IN.put(String.class, STRING);
+		BUILT_IN.put(byte[].class, BYTE_ARRAY);
+		BUILT_IN.put(int[].class, INT_ARRAY);
+		BUILT_IN.put(long[].class, LONG_ARRAY);
+		BUILT_IN.put(double[].class, DOUBLE_ARRAY);
+		BUILT_IN.put(ArrayList.class, LIST);
+		BUILT_IN.put(HashSet.class, SET);
+		BUILT_IN.put(LinkedHashSet.class, LINKED_SET);
+		BUILT_IN.put(HashMap.class, MAP);
+		BUILT_IN.put(LinkedHashMap.class, LINKED_MAP);
+	}
+
+	private final Map<Class<?>, Integer> ids = new ConcurrentHashMap<Class<?>, Integer>();
+	private volatile Serializer<?>[] serializers = new Serializer<?>[0];
+
+	/**
+	 * Register a type. Values of subclasses of the type are not handled by the serializer unless
+	 * they are registered as well.
+	 *
+	 * @return the id of the type.
+	 */
+	public synchronized <T> int register(Class<T> aType, Serializer<? super T> aSerializer)
+	{
+		if (BUILT_IN.containsKey(aType) || ids.containsKey(aType)) {
+			throw new IllegalArgumentException("Type [" + aType.getName()
+			        + "] is already registered");
+		}
+
+		Serializer<?>[] newSerializers = new Serializer<?>[serializers.length + 1];
+		System.arraycopy(serializers, 0, newSerializers, 0, serializers.length);
+		newSerializers[serializers.length] = aSerializer;
+		int id = FIRST_CUSTOM_ID + serializers.length;
+		serializers = newSerializers;
+		ids.put(aType, id);
+		return id;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void writeObject(DataOutput aOut, Object aValue)
+		throws IOException
+	{
+		if (aValue == null) {
+			writeVarInt(aOut, NULL);
+			return;
+		}
+
+		Integer id = BUILT_IN.get(aValue.getClass());
+		if (id == null) {
+			id = ids.get(aValue.getClass());
+			if (id != null) {
+				writeVarInt(aOut, id);
+				((Serializer) serializers[id - FIRST_CUSTOM_ID]).write(this, aOut, aValue);
+				return;
+			}
+			id = getCollectionId(aValue);
+		}
+
+		writeVarInt(aOut, id);
+		switch (id) {
+		case BOOLEAN:
+			aOut.writeBoolean((Boolean) aValue);
+			break;
+		case BYTE:
+			aOut.writeByte((Byte) aValue);
+			break;
+		case SHORT:
+			aOut.writeShort((Short) aValue);
+			break;
+		case CHARACTER:
+			aOut.writeChar((Character) aValue);
+			break;
+		case INTEGER:
+			writeVarInt(aOut, zigZag((Integer) aValue));
+			break;
+		case LONG:
+			writeVarLong(aOut, zigZag((Long) aValue));
+			break;
+		case FLOAT:
+			aOut.writeFloat((Float) aValue);
+			break;
+		case DOUBLE:
+			aOut.writeDouble((Double) aValue);
+			break;
+		case STRING:
+			writeString(aOut, (String) aValue);
+			break;
+		case BYTE_ARRAY: {
+			byte[] array = (byte[]) aValue;
+			writeVarInt(aOut, array.length);
+			aOut.write(array);
+			break;
+		}
+		case INT_ARRAY: {
+			int[] array = (int[]) aValue;
+			writeVarInt(aOut, array.length);
+			for (int v : array) {
+				writeVarInt(aOut, zigZag(v));
+			}
+			break;
+		}
+		case LONG_ARRAY: {
+			long[] array = (long[]) aValue;
+			writeVarInt(aOut, array.length);
+			for (long v : array) {
+				writeVarLong(aOut, zigZag(v));
+			}
+			break;
+		}
+		case DOUBLE_ARRAY: {
+			double[] array = (double[]) aValue;
+			writeVarInt(aOut, array.length);
+			for (double v : array) {
+				aOut.writeDouble(v);
+			}
+			break;
+		}
+		case LIST:
+		case SET:
+		case LINKED_SET:
+		case SORTED_SET: {
+			Collection<?> collection = (Collection<?>) aValue;
+			writeVarInt(aOut, collection.size());
+			for (Object e : collection) {
+				writeObject(aOut, e);
+			}
+			break;
+		}
+		case MAP:
+		case LINKED_MAP:
+		case SORTED_MAP: {
+			Map<?, ?> map = (Map<?, ?>) aValue;
+			writeVarInt(aOut, map.size());
+			for (Entry<?, ?> e : map.entrySet()) {
+				writeObject(aOut, e.getKey());
+				writeObject(aOut, e.getValue());
+			}
+			break;
+		}
+		default:
+			throw new IllegalStateException("Unknown type id " + id);
+		}
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public Object readObject(DataInput aIn)
+		throws IOException
+	{
+		int id = readVarInt(aIn);
+		switch (id) {
+		case NULL:
+			return null;
+		case BOOLEAN:
+			return aIn.readBoolean();
+		case BYTE:
+			return aIn.readByte();
+		case SHORT:
+			return aIn.readShort();
+		case CHARACTER:
+			return aIn.readChar();
+		case INTEGER:
+			return unZigZag(readVarInt(aIn));
+		case LONG:
+			return unZigZag(readVarLong(aIn));
+		case FLOAT:
+			return aIn.readFloat();
+		case DOUBLE:
+			return aIn.readDouble();
+		case STRING:
+			return readString(aIn);
+		case BYTE_ARRAY: {
+			byte[] array = new byte[readVarInt(aIn)];
+			aIn.readFully(array);
+			return array;
+		}
+		case INT_ARRAY: {
+			int[] array = new int[readVarInt(aIn)];
+			for (int i = 0; i < array.length; i++) {
+				array[i] = unZigZag(readVarInt(aIn));
+			}
+			return array;
+		}
+		case LONG_ARRAY: {
+			long[] array = new long[readVarInt(aIn)];
+			for (int i = 0; i < array.length; i++) {
+				array[i] = unZigZag(readVarLong(aIn));
+			}
+			return array;
+		}
+		case DOUBLE_ARRAY: {
+			double[] array = new double[readVarInt(aIn)];
+			for (int i = 0; i < array.length; i++) {
+				array[i] = aIn.readDouble();
+			}
+			return array;
+		}
+		case LIST:
+		case SET:
+		case LINKED_SET:
+		case SORTED_SET: {
+			int size = readVarInt(aIn);
+			Collection collection;
+			if (id == LIST) {
+				collection = new ArrayList(size);
+			}
+			else if (id == SET) {
+				collection = new HashSet(capacity(size));
+			}
+			else if (id == LINKED_SET) {
+				collection = new LinkedHashSet(capacity(size));
+			}
+			else {
+				collection = new TreeSet();
+			}
+			for (int i = 0; i < size; i++) {
+				collection.add(readObject(aIn));
+			}
+			return collection;
+		}
+		case MAP:
+		case LINKED_MAP:
+		case SORTED_MAP: {
+			int size = readVarInt(aIn);
+			Map map;
+			if (id == MAP) {
+				map = new HashMap(capacity(size));
+			}
+			else if (id == LINKED_MAP) {
+				map = new LinkedHashMap(capacity(size));
+			}
+			else {
+				map = new TreeMap();
+			}
+			for (int i = 0; i < size; i++) {
+				map.put(readObject(aIn), readObject(aIn));
+			}
+			return map;
+		}
+		default:
+			Serializer<?>[] registered = serializers;
+			if (id < FIRST_CUSTOM_ID || id - FIRST_CUSTOM_ID >= registered.length) {
+				throw new IOException("Unknown type id " + id
+				        + " - was the type registered when the data was written?");
+			}
+			return registered[id - FIRST_CUSTOM_ID].read(this, aIn);
+		}
+	}
+
+	private int getCollectionId(Object aValue)
+		throws IOException
+	{
+		if (aValue instanceof SortedMap) {
+			checkNaturalOrder(((SortedMap<?, ?>) aValue).comparator(), aValue);
+			return SORTED_MAP;
+		}
+		if (aValue instanceof LinkedHashMap) {
+			return LINKED_MAP;
+		}
+		if (aValue instanceof Map) {
+			return MAP;
+		}
+		if (aValue instanceof SortedSet) {
+			checkNaturalOrder(((SortedSet<?>) aValue).comparator(), aValue);
+			return SORTED_SET;
+		}
+		if (aValue instanceof LinkedHashSet) {
+			return LINKED_SET;
+		}
+		if (aValue instanceof Set) {
+			return SET;
+		}
+		if (aValue instanceof List) {
+			return LIST;
+		}
+		throw new IOException("Type [" + aValue.getClass().getName() + "] is not registered");
+	}
+
+	private void checkNaturalOrder(Object aComparator, Object aValue)
+		throws IOException
+	{
+		if (aComparator != null) {
+			throw new IOException("Sorted collections with a comparator are not supported ["
+			        + aValue.getClass().getName() + "]");
+		}
+	}
+
+	private static int capacity(int aSize)
+	{
+		return Math.max(16, (int) (aSize / 0.75f) + 1);
+	}
+
+	public static void writeString(DataOutput aOut, String aValue)
+		throws IOException
+	{
+		byte[] bytes = aValue.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(aOut, bytes.length);
+		aOut.write(bytes);
+	}
+
+	public static String readString(DataInput aIn)
+		throws IOException
+	{
+		byte[] bytes = new byte[readVarInt(aIn)];
+		aIn.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Write a non-negative number using one byte per 7 bits.
+	 */
+	public static void writeVarInt(DataOutput aOut, int aValue)
+		throws IOException
+	{
+		int value = aValue;
+		while ((value & ~0x7F) != 0) {
+			aOut.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		aOut.writeByte(value);
+	}
+
+	public static int readVarInt(DataInput aIn)
+		throws IOException
+	{
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			byte b = aIn.readByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed variable-length number");
+	}
+
+	/**
+	 * Write a non-negative number using one byte per 7 bits.
+	 */
+	public static void writeVarLong(DataOutput aOut, long aValue)
+		throws IOException
+	{
+		long value = aValue;
+		while ((value & ~0x7FL) != 0) {
+			aOut.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		aOut.writeByte((int) value);
+	}
+
+	public static long readVarLong(DataInput aIn)
+		throws IOException
+	{
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = aIn.readByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed variable-length number");
+	}
+
+	/**
+	 * Map signed to unsigned numbers such that numbers close to zero stay small.
+	 */
+	private static int zigZag(int aValue)
+	{
+		return (aValue << 1) ^ (aValue >> 31);
+	}
+
+	private static int unZigZag(int aValue)
+	{
+		return (aValue >>> 1) ^ -(aValue & 1);
+	}
+
+	private static long zigZag(long aValue)
+	{
+		return (aValue << 1) ^ (aValue >> 63);
+	}
+
+	private static long unZigZag(long aValue)
+	{
+		return (aValue >>> 1) ^ -(aValue & 1);
+	}
+}
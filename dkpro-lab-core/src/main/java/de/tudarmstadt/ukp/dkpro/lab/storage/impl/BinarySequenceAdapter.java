@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.storage.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import de.tudarmstadt.ukp.dkpro.lab.storage.StreamReader;
+import de.tudarmstadt.ukp.dkpro.lab.storage.StreamWriter;
+
+/**
+ * Adapter to persist/load a sequence of elements using the compact {@link BinaryFormat}. Elements
+ * are written one by one as they are obtained from an iterator, so a large collection can be
+ * written without keeping it in memory, e.g. by iterating over a database cursor or by computing
+ * the elements on the fly. Likewise, subclasses can process the elements one by one while reading
+ * by overriding {@link #element(Object)}. By default, the elements read are collected in a list.
+ *
+ * @param <E> the type of elements.
+ */
+public class BinarySequenceAdapter<E>
+	implements StreamReader, StreamWriter
+{
+	private static final int ELEMENT = 1;
+	private static final int END = 0;
+
+	private final BinaryFormat format;
+	private Iterable<? extends E> source;
+	private List<E> elements;
+
+	public BinarySequenceAdapter()
+	{
+		// This is generally used for reader usage.
+		this(new BinaryFormat());
+	}
+
+	public BinarySequenceAdapter(BinaryFormat aFormat)
+	{
+		format = aFormat;
+	}
+
+	public BinarySequenceAdapter(Iterable<? extends E> aSource)
+	{
+		this(new BinaryFormat(), aSource);
+	}
+
+	public BinarySequenceAdapter(BinaryFormat aFormat, Iterable<? extends E> aSource)
+	{
+		this(aFormat);
+		source = aSource;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void read(InputStream aInputStream)
+		throws IOException
+	{
+		DataInputStream in = new DataInputStream(new BufferedInputStream(aInputStream,
+		        BinaryAdapter.BUFFER_SIZE));
+		while (in.readByte() == ELEMENT) {
+			element((E) format.readObject(in));
+		}
+	}
+
+	@Override
+	public void write(OutputStream aStream)
+		throws Exception
+	{
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(aStream,
+		        BinaryAdapter.BUFFER_SIZE));
+		Iterator<? extends E> i = source.iterator();
+		while (i.hasNext()) {
+			out.writeByte(ELEMENT);
+			format.writeObject(out, i.next());
+		}
+		out.writeByte(END);
+		out.flush();
+	}
+
+	/**
+	 * Called for each element read. Override this method to process elements one by one instead
+	 * of collecting them all in memory.
+	 */
+	protected void element(E aElement)
+	{
+		if (elements == null) {
+			elements = new ArrayList<E>();
+		}
+		elements.add(aElement);
+	}
+
+	/**
+	 * Get the elements read by the default implementation of {@link #element(Object)}.
+	 */
+	public List<E> getElements()
+	{
+		if (elements == null) {
+			elements = new ArrayList<E>();
+		}
+		return elements;
+	}
+
+	public BinaryFormat getFormat()
+	{
+		return format;
+	}
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.storage.impl;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.tudarmstadt.ukp.dkpro.lab.storage.CompressionCodec;
+
+/**
+ * Maps key suffixes to the {@link CompressionCodec} used to store and retrieve the data. By
+ * default, only keys ending in {@value GzipCodec#SUFFIX} are compressed, using {@link GzipCodec}.
+ * Other codecs, e.g. {@link DeflateCodec}, or codecs with a different compression level have to
+ * be registered explicitly, e.g. from the Spring configuration of the storage service. Since the
+ * codec is chosen by the suffix, a task selects the codec for its data through the names of its
+ * keys. The registry is thread-safe.
+ */
+public class CompressionCodecRegistry
+{
+	private volatile Map<String, CompressionCodec> codecs = new LinkedHashMap<String, CompressionCodec>();
+
+	public CompressionCodecRegistry()
+	{
+		register(new GzipCodec());
+	}
+
+	/**
+	 * Register a codec. A codec previously registered for the same suffix is replaced.
+	 */
+	public synchronized void register(CompressionCodec aCodec)
+	{
+		Map<String, CompressionCodec> newCodecs = new LinkedHashMap<String, CompressionCodec>(
+		        codecs);
+		newCodecs.put(aCodec.getSuffix(), aCodec);
+		codecs = newCodecs;
+	}
+
+	/**
+	 * Register several codecs.
+	 */
+	public void setCodecs(Collection<? extends CompressionCodec> aCodecs)
+	{
+		for (CompressionCodec codec : aCodecs) {
+			register(codec);
+		}
+	}
+
+	/**
+	 * Get the codec responsible for the given key.
+	 *
+	 * @return the codec with the longest suffix matching the key or {@code null} if the key is
+	 *         not compressed.
+	 */
+	public CompressionCodec getCodec(String aKey)
+	{
+		CompressionCodec result = null;
+		for (CompressionCodec codec : codecs.values()) {
+			if (aKey.endsWith(codec.getSuffix())
+			        && (result == null || codec.getSuffix().length() > result.getSuffix().length())) {
+				result = codec;
+			}
+		}
+		return result;
+	}
+}
@@ -17,13 +17,23 @@
  ******************************************************************************/
 package de.tudarmstadt.ukp.dkpro.lab.storage.impl;
 
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 
 import de.tudarmstadt.ukp.dkpro.lab.Util;
 import de.tudarmstadt.ukp.dkpro.lab.storage.StreamReader;
 
+/**
+ * Copies the data read to the given output stream. If the data is read from a file, it is
+ * transferred using {@link FileChannel#transferTo} which avoids copying it through buffers on the
+ * heap. If the target is a file too, the operating system may copy the data directly.
+ */
 public class CopyStreamReader
 	implements StreamReader
 {
@@ -39,10 +49,36 @@ public class CopyStreamReader
 		throws IOException
 	{
 		try {
-			Util.shove(aInputStream, target);
+			if (aInputStream instanceof FileInputStream) {
+				transfer(((FileInputStream) aInputStream).getChannel());
+			}
+			else {
+				Util.shove(aInputStream, target);
+			}
 		}
 		finally {
 			Util.close(aInputStream);
 		}
 	}
+
+	private void transfer(FileChannel aSource)
+		throws IOException
+	{
+		target.flush();
+		WritableByteChannel sink;
+		if (target instanceof FileOutputStream) {
+			sink = ((FileOutputStream) target).getChannel();
+		}
+		else {
+			sink = Channels.newChannel(target);
+		}
+
+		long position = aSource.position();
+		long size = aSource.size();
+		while (position < size) {
+			position += aSource.transferTo(position, size - position, sink);
+		}
+		aSource.position(position);
+		target.flush();
+	}
 }
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.storage.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import de.tudarmstadt.ukp.dkpro.lab.storage.CompressionCodec;
+
+/**
+ * ZLIB compression with a configurable level. It uses the same algorithm as {@link GzipCodec} but
+ * skips the GZIP header and CRC, which makes it a little faster. By default it uses
+ * {@link Deflater#BEST_SPEED}.
+ */
+public class DeflateCodec
+	implements CompressionCodec
+{
+	public static final String SUFFIX = ".deflate";
+
+	private static final int BUFFER_SIZE = 65536;
+
+	private final String suffix;
+	private final int level;
+
+	public DeflateCodec()
+	{
+		this(Deflater.BEST_SPEED);
+	}
+
+	/**
+	 * @param aLevel
+	 *            the compression level from {@link Deflater#BEST_SPEED} to
+	 *            {@link Deflater#BEST_COMPRESSION} or {@link Deflater#DEFAULT_COMPRESSION}.
+	 */
+	public DeflateCodec(int aLevel)
+	{
+		this(SUFFIX, aLevel);
+	}
+
+	public DeflateCodec(String aSuffix, int aLevel)
+	{
+		suffix = aSuffix;
+		level = aLevel;
+	}
+
+	@Override
+	public String getSuffix()
+	{
+		return suffix;
+	}
+
+	public int getLevel()
+	{
+		return level;
+	}
+
+	@Override
+	public OutputStream compress(OutputStream aStream)
+	{
+		final Deflater deflater = new Deflater(level);
+		return new DeflaterOutputStream(aStream, deflater, BUFFER_SIZE)
+		{
+			@Override
+			public void close()
+				throws IOException
+			{
+				// A deflater passed in from outside is not released by the stream
+				try {
+					super.close();
+				}
+				finally {
+					deflater.end();
+				}
+			}
+		};
+	}
+
+	@Override
+	public InputStream decompress(InputStream aStream)
+	{
+		final Inflater inflater = new Inflater();
+		return new InflaterInputStream(aStream, inflater, BUFFER_SIZE)
+		{
+			@Override
+			public void close()
+				throws IOException
+			{
+				// An inflater passed in from outside is not released by the stream
+				try {
+					super.close();
+				}
+				finally {
+					inflater.end();
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.storage.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import de.tudarmstadt.ukp.dkpro.lab.storage.CompressionCodec;
+
+/**
+ * GZIP compression with a configurable level. Lower levels are considerably faster at the cost of
+ * somewhat larger files.
+ */
+public class GzipCodec
+	implements CompressionCodec
+{
+	public static final String SUFFIX = ".gz";
+
+	private static final int BUFFER_SIZE = 65536;
+
+	private final String suffix;
+	private final int level;
+
+	public GzipCodec()
+	{
+		this(Deflater.DEFAULT_COMPRESSION);
+	}
+
+	/**
+	 * @param aLevel
+	 *            the compression level from {@link Deflater#BEST_SPEED} to
+	 *            {@link Deflater#BEST_COMPRESSION} or {@link Deflater#DEFAULT_COMPRESSION}.
+	 */
+	public GzipCodec(int aLevel)
+	{
+		this(SUFFIX, aLevel);
+	}
+
+	public GzipCodec(String aSuffix, int aLevel)
+	{
+		suffix = aSuffix;
+		level = aLevel;
+	}
+
+	@Override
+	public String getSuffix()
+	{
+		return suffix;
+	}
+
+	public int getLevel()
+	{
+		return level;
+	}
+
+	@Override
+	public OutputStream compress(OutputStream aStream)
+		throws IOException
+	{
+		return new GZIPOutputStream(aStream, BUFFER_SIZE)
+		{
+			{
+				def.setLevel(level);
+			}
+		};
+	}
+
+	@Override
+	public InputStream decompress(InputStream aStream)
+		throws IOException
+	{
+		return new GZIPInputStream(aStream, BUFFER_SIZE);
+	}
+}
@@ -17,11 +17,17 @@
  ******************************************************************************/
 package de.tudarmstadt.ukp.dkpro.lab.storage.impl;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 import de.tudarmstadt.ukp.dkpro.lab.storage.StreamReader;
 import de.tudarmstadt.ukp.dkpro.lab.storage.StreamWriter;
@@ -30,14 +36,33 @@ import de.tudarmstadt.ukp.dkpro.lab.storage.StreamWriter;
  * Adapter to persist/load a serializable Java object. It is convenient but not recommended to use
  * this adapter. The serialized format is not human-readable and is sensitive to changes in the 
  * persisted classes.
+ * <p>
+ * Large objects can be compressed using {@link #setCompressionLevel(int)}. Compressed data is
+ * recognized automatically when it is read, so a reader does not need to know how the object was
+ * written. Do not combine this with a compressed key (e.g. ".gz"), as compressing twice only costs
+ * time.
  * 
  * @param <T> the type of object.
  */
 public class SerializedObjectAdapter<T>
 	implements StreamReader, StreamWriter
 {
+	/**
+	 * Marks compressed data. Uncompressed Java serialization data starts with 0xACED instead.
+	 */
+	private static final int MAGIC = 0x444c5a31;
+
+	private static final int BUFFER_SIZE = 65536;
+
+	/**
+	 * Do not compress the data.
+	 */
+	public static final int NO_COMPRESSION = Integer.MIN_VALUE;
+
 	private T object;
 
+	private int compressionLevel = NO_COMPRESSION;
+
 	public SerializedObjectAdapter()
 	{
 		// This is generally used for reader usage.
@@ -53,19 +78,76 @@ public class SerializedObjectAdapter<T>
 	public void read(InputStream aInputStream)
 		throws IOException
 	{
-	    try {
-            object = (T) new ObjectInputStream(aInputStream).readObject();
-        }
-        catch (ClassNotFoundException e) {
-            throw new IOException(e);
-        }
+		InputStream is = aInputStream.markSupported() ? aInputStream : new BufferedInputStream(
+		        aInputStream, BUFFER_SIZE);
+		is.mark(4);
+		int magic;
+		try {
+			magic = new DataInputStream(is).readInt();
+		}
+		finally {
+			is.reset();
+		}
+
+		Inflater inflater = null;
+		try {
+			if (magic == MAGIC) {
+				is.skip(4);
+				inflater = new Inflater();
+				is = new InflaterInputStream(is, inflater, BUFFER_SIZE);
+			}
+			object = (T) new ObjectInputStream(is).readObject();
+		}
+		catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		}
+		finally {
+			if (inflater != null) {
+				inflater.end();
+			}
+		}
 	}
 
 	@Override
 	public void write(OutputStream aStream)
 		throws Exception
 	{
-	    new ObjectOutputStream(aStream).writeObject(object);
+		if (compressionLevel == NO_COMPRESSION) {
+			ObjectOutputStream oos = new ObjectOutputStream(aStream);
+			oos.writeObject(object);
+			oos.flush();
+			return;
+		}
+
+		for (int shift = 24; shift >= 0; shift -= 8) {
+			aStream.write(MAGIC >>> shift);
+		}
+		Deflater deflater = new Deflater(compressionLevel);
+		try {
+			DeflaterOutputStream dos = new DeflaterOutputStream(aStream, deflater, BUFFER_SIZE);
+			ObjectOutputStream oos = new ObjectOutputStream(dos);
+			oos.writeObject(object);
+			oos.flush();
+			// The caller closes the underlying stream
+			dos.finish();
+		}
+		finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Set the compression level used when writing the object, from {@link Deflater#BEST_SPEED}
+	 * to {@link Deflater#BEST_COMPRESSION} (default: {@link #NO_COMPRESSION}).
+	 */
+	public void setCompressionLevel(int aCompressionLevel)
+	{
+		compressionLevel = aCompressionLevel;
+	}
+
+	public int getCompressionLevel()
+	{
+		return compressionLevel;
 	}
 
 	public void setObject(T aProperties)
@@ -17,9 +17,13 @@
  ******************************************************************************/
 package de.tudarmstadt.ukp.dkpro.lab.storage.impl;
 
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 
 import org.apache.commons.io.IOUtils;
 
@@ -55,6 +59,21 @@ public class StringAdapter
 	public void read(InputStream aInputStream)
 		throws IOException
 	{
+	    if (aInputStream instanceof FileInputStream) {
+	        // The size is known, so read everything into a single array at once
+	        FileChannel channel = ((FileInputStream) aInputStream).getChannel();
+	        long size = channel.size() - channel.position();
+	        if (size <= Integer.MAX_VALUE) {
+	            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+	            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+	                // Read until the buffer is full
+	            }
+	            object = new String(buffer.array(), 0, buffer.position(),
+	                    encoding != null ? Charset.forName(encoding) : Charset.defaultCharset());
+	            return;
+	        }
+	    }
+
 	    object = IOUtils.toString(aInputStream, encoding);
 	}
 
@@ -35,6 +35,11 @@ public interface BatchTask
 
     ParameterSpace getParameterSpace();
 
+    /**
+     * Get the strategy which decides which configurations of the parameter space are run.
+     */
+    ExplorationStrategy getExplorationStrategy();
+
     Set<Task> getTasks();
     
     Map<String, Object> getConfiguration();
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.task;
+
+import java.util.Collection;
+import java.util.Map;
+
+import de.tudarmstadt.ukp.dkpro.lab.engine.TaskContext;
+
+/**
+ * Decides which configurations of a {@link ParameterSpace} are run by a {@link BatchTask}.
+ * Configurations are requested in rounds. All configurations of a round are independent of each
+ * other and may be executed at the same time. Before the next round is requested, the strategy is
+ * notified about every executed configuration of the current round, so adaptive strategies can
+ * base their next round on the results.
+ * <p>
+ * A strategy is stateful and is restarted via {@link #begin(ParameterSpace)} whenever the batch
+ * task is executed.
+ */
+public interface ExplorationStrategy
+{
+	/**
+	 * Start exploring the given parameter space.
+	 */
+	void begin(ParameterSpace aParameterSpace);
+
+	/**
+	 * Get the number of configurations which are going to be run, or {@code -1} if this is not
+	 * known in advance.
+	 */
+	long size();
+
+	/**
+	 * Get the next round of configurations.
+	 * 
+	 * @return the configurations or {@code null} if the exploration is complete.
+	 */
+	Iterable<Map<String, Object>> nextRound();
+
+	/**
+	 * Notify the strategy that a configuration of the current round has been executed. This may
+	 * be called from different threads at the same time.
+	 * 
+	 * @param aContext
+	 *            the context of the batch task.
+	 * @param aConfig
+	 *            the configuration instance returned by the current round. The engine may have
+	 *            added inherited parameters to it.
+	 * @param aSubtasks
+	 *            the IDs of the subtask contexts executed or reused for the configuration.
+	 */
+	void complete(TaskContext aContext, Map<String, Object> aConfig,
+			Collection<String> aSubtasks);
+}
@@ -17,10 +17,12 @@
  ******************************************************************************/
 package de.tudarmstadt.ukp.dkpro.lab.task;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
@@ -33,6 +35,8 @@ public class ParameterSpace implements Iterable<Map<String, Object>>
 	private Dimension<?>[] dimensions;
 	private Set<Constraint> constraints;
 	private int stepCount = 0;
+	
+	private static final Object UNSET = new Object();
 
 	public ParameterSpace()
 	{
@@ -118,11 +122,94 @@ public class ParameterSpace implements Iterable<Map<String, Object>>
 		return constraints;
 	}
 
+	/**
+	 * Check if the given configuration is allowed by the constraints of this parameter space.
+	 * 
+	 * @see #getConstraints()
+	 */
+	public boolean isValid(Map<String, Object> aConfiguration)
+	{
+		// If no constraints are set, run everything
+		if (constraints.isEmpty()) {
+			return true;
+		}
+		
+		// If constraints are set, run a configuration if any of them says "ok"
+		for (Constraint c : constraints) {
+			if (c.isValid(aConfiguration)) {
+				return true;
+			}
+		}
+		
+		// default to not running
+		return false;
+	}
+
+	/**
+	 * Get the exact number of configurations produced by iterating over this parameter space.
+	 * Subtrees rejected or accepted by a {@link ScopedConstraint} are counted without enumerating
+	 * them. If the space contains a {@link DynamicDimension}, all configurations are enumerated.
+	 * <p>
+	 * The cursors of the dimensions are restored after counting, so this may be called at any
+	 * time, even while iterating.
+	 */
+	public long size()
+	{
+		if (dimensions.length == 0) {
+			return 1;
+		}
+		
+		// Counting moves the cursors of the dimensions, which may be shared with an iteration
+		int[] positions = new int[dimensions.length];
+		for (int i = 0; i < dimensions.length; i++) {
+			positions[i] = position(dimensions[i]);
+		}
+		int steps = stepCount;
+		try {
+			if (hasDynamicDimensions()) {
+				long size = 0;
+				Iterator<Map<String, Object>> i = new ParameterSpaceIterator();
+				while (i.hasNext()) {
+					i.next();
+					size++;
+				}
+				return size;
+			}
+			
+			return new PruningIterator(false).count();
+		}
+		finally {
+			stepCount = steps;
+			// Dynamic dimensions are restored under the configuration they were moved in
+			Map<String, Object> config = new LinkedHashMap<String, Object>();
+			for (int i = 0; i < dimensions.length; i++) {
+				if (!(dimensions[i] instanceof DynamicDimension)) {
+					restore(dimensions[i], positions[i]);
+					if (positions[i] > 0) {
+						putCurrent(config, dimensions[i]);
+					}
+				}
+			}
+			for (int i = 0; i < dimensions.length; i++) {
+				if (dimensions[i] instanceof DynamicDimension) {
+					((DynamicDimension) dimensions[i]).setConfiguration(config);
+					restore(dimensions[i], positions[i]);
+				}
+			}
+		}
+	}
+
 	@Override
 	public Iterator<Map<String, Object>> iterator()
 	{
 		if (dimensions.length > 0) {
-			return new ParameterSpaceIterator();
+			if (hasDynamicDimensions()) {
+				// Dynamic dimensions need the full configuration, so we cannot prune
+				return new ParameterSpaceIterator();
+			}
+			else {
+				return new PruningIterator(true);
+			}
 		}
 		else {
 			// Run once with empty configuration map if no dimensions are given
@@ -132,10 +219,374 @@ public class ParameterSpace implements Iterable<Map<String, Object>>
 		}
 	}
 
+	private boolean hasDynamicDimensions()
+	{
+		for (Dimension<?> d : dimensions) {
+			if (d instanceof DynamicDimension) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Walks the dimensions depth-first, maintaining a single configuration map incrementally.
+	 * {@link ScopedConstraint}s are evaluated as soon as their keys are bound, so rejected
+	 * subtrees are skipped as a whole and accepted subtrees are not checked any further. Plain
+	 * constraints are evaluated on complete configurations. A copy of the configuration map is
+	 * only made for configurations which are actually returned.
+	 */
+	private class PruningIterator
+		implements Iterator<Map<String, Object>>
+	{
+		private final Map<String, Object> config = new LinkedHashMap<String, Object>();
+		private final List<Constraint> allConstraints;
+		
+		// Per dimension: keys put into the configuration and the values they shadowed
+		private final List<List<String>> boundKeys;
+		private final List<List<Object>> shadowed;
+		private final boolean[] empty;
+		
+		// Constraints not decided yet by the configuration prefix of the given depth
+		private final List<List<Constraint>> undecided;
+		
+		// Number of points in the subtree below the given depth
+		private final long[] remaining;
+		
+		private final boolean countSteps;
+		
+		// Number of dimensions currently bound
+		private int depth = 0;
+		
+		// Depth at which the current configuration prefix has been accepted, -1 if not accepted
+		private int acceptedAt = -1;
+		
+		private boolean started = false;
+		private boolean pending = false;
+		private boolean available = false;
+
+		public PruningIterator(boolean aCountSteps)
+		{
+			countSteps = aCountSteps;
+			allConstraints = new ArrayList<Constraint>(constraints);
+			boundKeys = new ArrayList<List<String>>(dimensions.length);
+			shadowed = new ArrayList<List<Object>>(dimensions.length);
+			undecided = new ArrayList<List<Constraint>>(dimensions.length + 1);
+			empty = new boolean[dimensions.length];
+			remaining = new long[dimensions.length + 1];
+			
+			remaining[dimensions.length] = 1;
+			for (int i = dimensions.length - 1; i >= 0; i--) {
+				remaining[i] = remaining[i + 1] * Math.max(1, size(dimensions[i]));
+			}
+			
+			for (int i = 0; i < dimensions.length; i++) {
+				boundKeys.add(new ArrayList<String>());
+				shadowed.add(new ArrayList<Object>());
+			}
+			for (int i = 0; i <= dimensions.length; i++) {
+				undecided.add(new ArrayList<Constraint>());
+			}
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			if (!pending) {
+				available = advance();
+				pending = true;
+			}
+			return available;
+		}
+
+		@Override
+		public Map<String, Object> next()
+		{
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			pending = false;
+			return new LinkedHashMap<String, Object>(config);
+		}
+
+		/**
+		 * Count the remaining valid configurations without enumerating accepted subtrees.
+		 */
+		public long count()
+		{
+			long count = 0;
+			if (started && !backtrack()) {
+				return count;
+			}
+			started = true;
+			
+			while (true) {
+				int status = decide(depth);
+				if (status > 0) {
+					count += remaining[depth];
+				}
+				if (status != 0 || depth == dimensions.length) {
+					if (!backtrack()) {
+						return count;
+					}
+				}
+				else {
+					bindFirst(depth);
+					depth++;
+				}
+			}
+		}
+
+		/**
+		 * Move to the next valid configuration.
+		 * 
+		 * @return if there is such a configuration.
+		 */
+		private boolean advance()
+		{
+			if (started && !backtrack()) {
+				return false;
+			}
+			started = true;
+			
+			while (true) {
+				int status = decide(depth);
+				if (status < 0) {
+					if (countSteps) {
+						stepCount += remaining[depth];
+					}
+					if (!backtrack()) {
+						return false;
+					}
+				}
+				else if (depth == dimensions.length) {
+					if (countSteps) {
+						stepCount++;
+					}
+					return true;
+				}
+				else {
+					bindFirst(depth);
+					depth++;
+				}
+			}
+		}
+
+		/**
+		 * Move the innermost bound dimension to its next value, unbinding exhausted dimensions.
+		 * 
+		 * @return if there is a next value in any of the bound dimensions.
+		 */
+		private boolean backtrack()
+		{
+			while (depth > 0) {
+				// Decisions taken at this depth or below depend on the dimension we move now
+				if (acceptedAt >= depth) {
+					acceptedAt = -1;
+				}
+				
+				int i = depth - 1;
+				unbind(i);
+				Dimension<?> d = dimensions[i];
+				if (!empty[i] && d.hasNext()) {
+					d.next();
+					bind(i);
+					return true;
+				}
+				depth--;
+			}
+			return false;
+		}
+
+		/**
+		 * Decide on the configuration prefix of the given depth.
+		 * 
+		 * @return 1 if all configurations in the subtree are valid, -1 if none is valid and 0 if
+		 *         this cannot be decided yet.
+		 */
+		private int decide(int aDepth)
+		{
+			if (acceptedAt >= 0) {
+				return 1;
+			}
+			
+			// If no constraints are set, run everything
+			if (allConstraints.isEmpty()) {
+				acceptedAt = aDepth;
+				return 1;
+			}
+			
+			// If constraints are set, run a configuration if any of them says "ok"
+			List<Constraint> parent = aDepth == 0 ? allConstraints : undecided.get(aDepth - 1);
+			List<Constraint> open = undecided.get(aDepth);
+			open.clear();
+			for (Constraint c : parent) {
+				if (aDepth == dimensions.length || isDecidable(c)) {
+					if (c.isValid(config)) {
+						acceptedAt = aDepth;
+						return 1;
+					}
+				}
+				else {
+					open.add(c);
+				}
+			}
+			
+			return open.isEmpty() ? -1 : 0;
+		}
+
+		private boolean isDecidable(Constraint aConstraint)
+		{
+			return aConstraint instanceof ScopedConstraint
+					&& config.keySet().containsAll(((ScopedConstraint) aConstraint).getKeys());
+		}
+
+		private void bindFirst(int aDim)
+		{
+			Dimension<?> d = dimensions[aDim];
+			d.rewind();
+			empty[aDim] = !d.hasNext();
+			if (!empty[aDim]) {
+				d.next();
+				bind(aDim);
+			}
+		}
+
+		private void bind(int aDim)
+		{
+			Dimension<?> d = dimensions[aDim];
+			try {
+				if (d instanceof DimensionBundle<?>) {
+					DimensionBundle<?> bundle = ((DimensionBundle<?>) d);
+					String bundleId = bundle.getBundleId();
+					if (bundleId != null) {
+						put(aDim, bundle.getName(), bundleId);
+					}
+					for (Map.Entry<String, ?> e : bundle.current().entrySet()) {
+						put(aDim, e.getKey(), e.getValue());
+					}
+				}
+				else {
+					put(aDim, d.getName(), d.current());
+				}
+			}
+			catch (NoSuchElementException e) {
+				// Empty dimensions contribute nothing
+			}
+		}
+
+		private void put(int aDim, String aKey, Object aValue)
+		{
+			boundKeys.get(aDim).add(aKey);
+			shadowed.get(aDim).add(config.containsKey(aKey) ? config.get(aKey) : UNSET);
+			config.put(aKey, aValue);
+		}
+
+		private void unbind(int aDim)
+		{
+			List<String> keys = boundKeys.get(aDim);
+			List<Object> previous = shadowed.get(aDim);
+			for (int i = keys.size() - 1; i >= 0; i--) {
+				if (previous.get(i) == UNSET) {
+					config.remove(keys.get(i));
+				}
+				else {
+					config.put(keys.get(i), previous.get(i));
+				}
+			}
+			keys.clear();
+			previous.clear();
+		}
+
+		@Override
+		public void remove()
+		{
+			throw new UnsupportedOperationException("No no");
+		}
+
+		@Override
+		public String toString()
+		{
+			StringBuilder sb = new StringBuilder();
+			sb.append("[");
+			for (Dimension<?> d : dimensions) {
+				sb.append(d);
+			}
+			sb.append("]");
+			return sb.toString();
+		}
+	}
+
+	private static int size(Dimension<?> aDimension)
+	{
+		if (aDimension instanceof FixedSizeDimension) {
+			return ((FixedSizeDimension) aDimension).size();
+		}
+		
+		int size = 0;
+		aDimension.rewind();
+		while (aDimension.hasNext()) {
+			aDimension.next();
+			size++;
+		}
+		aDimension.rewind();
+		return size;
+	}
+
+	/**
+	 * Get the number of values the dimension has been moved by since it was rewound. The
+	 * dimension API does not expose the position, so it is derived from the remaining values.
+	 */
+	private static int position(Dimension<?> aDimension)
+	{
+		int remaining = 0;
+		while (aDimension.hasNext()) {
+			aDimension.next();
+			remaining++;
+		}
+		return size(aDimension) - remaining;
+	}
+
+	private static void restore(Dimension<?> aDimension, int aPosition)
+	{
+		aDimension.rewind();
+		for (int i = 0; i < aPosition; i++) {
+			aDimension.next();
+		}
+	}
+
+	/**
+	 * Add the current value of a dimension to the configuration. Dynamic dimensions that are not
+	 * bundles are skipped because they depend on the rest of the configuration.
+	 */
+	private static void putCurrent(Map<String, Object> aConfig, Dimension<?> aDimension)
+	{
+		try {
+			if (aDimension instanceof DimensionBundle<?>) {
+				DimensionBundle<?> bundle = ((DimensionBundle<?>) aDimension);
+				String bundleId = bundle.getBundleId();
+				if (bundleId != null) {
+					aConfig.put(bundle.getName(), bundle.getBundleId());
+				}
+				aConfig.putAll(bundle.current());
+			}
+			else if (aDimension instanceof DynamicDimension) {
+				// defer
+			}
+			else {
+				aConfig.put(aDimension.getName(), aDimension.current());
+			}
+		}
+		catch (NoSuchElementException e) {
+			// Empty dimensions contribute nothing
+		}
+	}
+
 	private class ParameterSpaceIterator
 		implements Iterator<Map<String, Object>>
 	{
 		private int incDim = -3;
+		private Map<String, Object> config;
 
 		public ParameterSpaceIterator()
 		{
@@ -192,24 +643,11 @@ public class ParameterSpace implements Iterable<Map<String, Object>>
 
 		private boolean constraintsMet()
 		{
-			Map<String, Object> config = current();
+			config = current();
 
 			stepCount++;
 
-			// If no constraints are set, run everything
-			if (constraints.isEmpty()) {
-				return true;
-			}
-			
-			// If constraints are set, run a configuration if any of them says "ok"
-			for (Constraint c : constraints) {
-				if (c.isValid(config)) {
-					return true;
-				}
-			}
-			
-			// default to not running
-			return false;
+			return isValid(config);
 		}
 
 		@Override
@@ -223,25 +661,7 @@ public class ParameterSpace implements Iterable<Map<String, Object>>
 			Map<String, Object> config = new LinkedHashMap<String, Object>();
 			// Pass 1: no dynamic dimensions
 			for (Dimension<?> d : dimensions) {
-				try {
-					if (d instanceof DimensionBundle<?>) {
-						DimensionBundle<?> bundle = ((DimensionBundle<?>) d);
-						String bundleId = bundle.getBundleId();
-						if (bundleId != null) {
-							config.put(bundle.getName(), bundle.getBundleId());
-						}
-						config.putAll(bundle.current());
-					}
-					else if (d instanceof DynamicDimension) {
-						// defer
-					}
-					else {
-						config.put(d.getName(), d.current());
-					}
-				}
-				catch (NoSuchElementException e) {
-					// Empty dimensions contribute nothing
-				}
+				putCurrent(config, d);
 			}
 
 			// Pass 2: dynamic dimensions
@@ -262,12 +682,9 @@ public class ParameterSpace implements Iterable<Map<String, Object>>
 		@Override
 		public Map<String, Object> next()
 		{
-			try {
-				return current();
-			}
-			finally {
-				step();
-			}
+			Map<String, Object> result = config;
+			step();
+			return result;
 		}
 
 		@Override
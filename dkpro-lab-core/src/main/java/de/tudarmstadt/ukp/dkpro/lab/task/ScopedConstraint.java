@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.task;
+
+import java.util.Set;
+
+/**
+ * A {@link Constraint} which only looks at some of the configuration keys. The
+ * {@link ParameterSpace} evaluates such a constraint as soon as all of its keys have been bound
+ * while walking the dimensions from left to right. If no constraint accepts a partial
+ * configuration, the whole subtree below it is skipped without enumerating it.
+ * <p>
+ * When called on a partial configuration, {@link #isValid(java.util.Map)} must only look at the
+ * keys returned by {@link #getKeys()}. Each of these keys should be contributed by exactly one
+ * dimension.
+ */
+public interface ScopedConstraint
+	extends Constraint
+{
+	/**
+	 * Get the configuration keys this constraint depends on.
+	 */
+	Set<String> getKeys();
+}
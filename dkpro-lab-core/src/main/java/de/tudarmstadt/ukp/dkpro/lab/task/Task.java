@@ -33,6 +33,7 @@ public interface Task
 {
 	public static final String PROPERTIES_KEY = "PROPERTIES.txt";
 	public static final String DISCRIMINATORS_KEY = "DISCRIMINATORS.txt";
+	public static final String DISCRIMINATOR_FINGERPRINT_KEY = "DISCRIMINATORS.sha1";
 
 	String getType();
 
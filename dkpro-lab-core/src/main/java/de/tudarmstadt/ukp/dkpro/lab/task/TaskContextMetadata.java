@@ -22,6 +22,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
@@ -42,6 +43,7 @@ public class TaskContextMetadata
 	public static final String METADATA_KEY = "METADATA.txt";
 
 	private final static String IMPORT = "import.";
+	private final static String STATISTIC = "stat.";
 
 	private String uuid;
 	private String label;
@@ -49,9 +51,11 @@ public class TaskContextMetadata
 	private long start;
 	private long end;
 	private Map<String, String> imports;
+	private Map<String, Long> statistics;
 
 	{
 		imports = new HashMap<String, String>();
+		statistics = new TreeMap<String, Long>();
 	}
 
 	/**
@@ -157,6 +161,32 @@ public class TaskContextMetadata
 		return imports;
 	}
 
+	/**
+	 * Record a statistic about the task execution, e.g. its memory usage.
+	 */
+	public void setStatistic(String aKey, long aValue)
+	{
+		statistics.put(aKey, aValue);
+	}
+
+	/**
+	 * Get a statistic about the task execution.
+	 *
+	 * @return the value or {@code null} if the statistic has not been recorded.
+	 */
+	public Long getStatistic(String aKey)
+	{
+		return statistics.get(aKey);
+	}
+
+	/**
+	 * Get all statistics recorded about the task execution.
+	 */
+	public Map<String, Long> getStatistics()
+	{
+		return statistics;
+	}
+
 	@Override
 	public String toString()
 	{
@@ -186,6 +216,13 @@ public class TaskContextMetadata
 			}
 			imports.put(key.substring(IMPORT.length()), props.getProperty(key));
 		}
+
+		for (String key : (Set<String>) (Set<?>) props.keySet()) {
+			if (!key.startsWith(STATISTIC)) {
+				continue;
+			}
+			statistics.put(key.substring(STATISTIC.length()), Long.valueOf(props.getProperty(key)));
+		}
 	}
 
 	/**
@@ -209,6 +246,10 @@ public class TaskContextMetadata
 			props.put(IMPORT + e.getKey(), e.getValue());
 		}
 
+		for (Entry<String, Long> e : statistics.entrySet()) {
+			props.put(STATISTIC + e.getKey(), String.valueOf(e.getValue()));
+		}
+
 		props.store(aStream, null);
 	}
 }
@@ -17,14 +17,55 @@
  ******************************************************************************/
 package de.tudarmstadt.ukp.dkpro.lab.task;
 
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.springframework.beans.MethodInvocationException;
 import org.springframework.beans.PropertyAccessor;
 import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.PropertyAccessorUtils;
 
 public class TaskFactory
 {
+	private static final Map<Class<?>, Class<?>> WRAPPERS = new HashMap<Class<?>, Class<?>>();
+	static {
+		WRAPPERS.put(boolean.class, Boolean.class);
+		WRAPPERS.put(byte.class, Byte.class);
+		WRAPPERS.put(char.class, Character.class);
+		WRAPPERS.put(short.class, Short.class);
+		WRAPPERS.put(int.class, Integer.class);
+		WRAPPERS.put(long.class, Long.class);
+		WRAPPERS.put(float.class, Float.class);
+		WRAPPERS.put(double.class, Double.class);
+	}
+	
+	private static final ConfigurationPlan NOT_WRITABLE = new ConfigurationPlan(null, null, null);
+	
+	// Per task class, how each top-level parameter is written to the task. The plans are attached
+	// to the class, so the class can still be unloaded with its class loader.
+	private static final ClassValue<ConcurrentMap<String, ConfigurationPlan>> plans = 
+			new ClassValue<ConcurrentMap<String, ConfigurationPlan>>()
+	{
+		@Override
+		protected ConcurrentMap<String, ConfigurationPlan> computeValue(Class<?> aClazz)
+		{
+			return new ConcurrentHashMap<String, ConfigurationPlan>();
+		}
+	};
+	
 	/**
 	 * Configure a task using the given parameter configuration. When the task has a field or a
 	 * setter for any of the parameters, its value is set to the parameter value. Setter access is
@@ -35,24 +76,44 @@ public class TaskFactory
 	 * The task should declare any parameters that affect its output as {@link Discriminator}s (
 	 * see also {@link Task#getDescriminators()}.
 	 * 
+	 * <p>
+	 * How a top-level parameter is written to a task is determined only once per task class and
+	 * parameter. Values which are of the property type are then written through a method handle.
+	 * Other values as well as nested or indexed parameters are handled by the Spring property
+	 * accessors.
+	 * 
 	 * @param aTask the task to configure.
 	 * @param aConfiguration the parameter configuration.
 	 */
 	public static void configureTask(Task aTask, Map<String, Object> aConfiguration)
 	{
-		PropertyAccessor paBean = PropertyAccessorFactory.forBeanPropertyAccess(aTask);
-		PropertyAccessor paDirect = PropertyAccessorFactory.forDirectFieldAccess(aTask);
+		ConcurrentMap<String, ConfigurationPlan> classPlans = plans.get(aTask.getClass());
+		
 		for (Entry<String, Object> property : aConfiguration.entrySet()) {
 			String key = property.getKey();
-			Object value = property.getValue();
-
-			// Try setter - there may be extra logic in the setter
-			if (paBean.isWritableProperty(key)) {
-				paBean.setPropertyValue(key, value);
+			
+			// Whether a nested property can be written depends on the values in the path, so
+			// these are never cached
+			if (PropertyAccessorUtils.isNestedOrIndexedProperty(key)) {
+				PropertyAccessor paBean = PropertyAccessorFactory.forBeanPropertyAccess(aTask);
+				PropertyAccessor paDirect = PropertyAccessorFactory.forDirectFieldAccess(aTask);
+				if (paBean.isWritableProperty(key)) {
+					paBean.setPropertyValue(key, property.getValue());
+				}
+				else if (paDirect.isWritableProperty(key)) {
+					paDirect.setPropertyValue(key, property.getValue());
+				}
+				continue;
 			}
-			// Otherwise try direct access
-			else if (paDirect.isWritableProperty(key)) {
-				paDirect.setPropertyValue(key, value);
+			
+			ConfigurationPlan plan = classPlans.get(key);
+			if (plan == null) {
+				plan = ConfigurationPlan.create(aTask, key);
+				classPlans.put(key, plan);
+			}
+			
+			if (plan != NOT_WRITABLE) {
+				plan.write(aTask, key, property.getValue());
 			}
 		}
 		
@@ -69,4 +130,127 @@ public class TaskFactory
 		configureTask(t, aConfiguration);
 		return t;
 	}
+
+	/**
+	 * How a parameter is written to a task.
+	 */
+	private static class ConfigurationPlan
+	{
+		private final Boolean setter;
+		private final MethodHandle handle;
+		private final Class<?> type;
+		
+		private ConfigurationPlan(Boolean aSetter, MethodHandle aHandle, Class<?> aType)
+		{
+			setter = aSetter;
+			handle = aHandle;
+			type = aType;
+		}
+		
+		public static ConfigurationPlan create(Task aTask, String aKey)
+		{
+			// The Spring property accessors decide whether a parameter is written at all and
+			// whether via setter or field. If no handle can be obtained, the accessors are also
+			// used to write the value.
+			
+			// Try setter - there may be extra logic in the setter
+			if (PropertyAccessorFactory.forBeanPropertyAccess(aTask).isWritableProperty(aKey)) {
+				Method method = findSetter(aTask.getClass(), aKey);
+				if (method != null) {
+					try {
+						method.setAccessible(true);
+						return new ConfigurationPlan(true, MethodHandles.lookup().unreflect(
+								method), method.getParameterTypes()[0]);
+					}
+					catch (Exception e) {
+						// Fall back to the property accessor
+					}
+				}
+				return new ConfigurationPlan(true, null, null);
+			}
+			// Otherwise try direct access
+			else if (PropertyAccessorFactory.forDirectFieldAccess(aTask).isWritableProperty(aKey)) {
+				Field field = findField(aTask.getClass(), aKey);
+				if (field != null && !Modifier.isFinal(field.getModifiers())) {
+					try {
+						field.setAccessible(true);
+						return new ConfigurationPlan(false, MethodHandles.lookup()
+								.unreflectSetter(field), field.getType());
+					}
+					catch (Exception e) {
+						// Fall back to the property accessor
+					}
+				}
+				return new ConfigurationPlan(false, null, null);
+			}
+			else {
+				return NOT_WRITABLE;
+			}
+		}
+		
+		public void write(Task aTask, String aKey, Object aValue)
+		{
+			if (handle != null && isAssignable(aValue)) {
+				try {
+					handle.invoke(aTask, aValue);
+				}
+				catch (Throwable e) {
+					if (!setter && e instanceof RuntimeException) {
+						throw (RuntimeException) e;
+					}
+					throw new MethodInvocationException(new PropertyChangeEvent(aTask, aKey,
+							null, aValue), e);
+				}
+			}
+			// Values that need conversion
+			else if (setter) {
+				PropertyAccessorFactory.forBeanPropertyAccess(aTask).setPropertyValue(aKey, aValue);
+			}
+			else {
+				PropertyAccessorFactory.forDirectFieldAccess(aTask).setPropertyValue(aKey, aValue);
+			}
+		}
+		
+		private boolean isAssignable(Object aValue)
+		{
+			if (aValue == null) {
+				return !type.isPrimitive();
+			}
+			else if (type.isPrimitive()) {
+				return WRAPPERS.get(type) == aValue.getClass();
+			}
+			else {
+				return type.isInstance(aValue);
+			}
+		}
+		
+		private static Method findSetter(Class<?> aClass, String aKey)
+		{
+			try {
+				BeanInfo info = Introspector.getBeanInfo(aClass);
+				for (PropertyDescriptor pd : info.getPropertyDescriptors()) {
+					if (pd.getName().equals(aKey)) {
+						return pd.getWriteMethod();
+					}
+				}
+			}
+			catch (IntrospectionException e) {
+				// Fall back to the property accessor
+			}
+			return null;
+		}
+		
+		private static Field findField(Class<?> aClass, String aKey)
+		{
+			for (Class<?> c = aClass; c != null; c = c.getSuperclass()) {
+				try {
+					return c.getDeclaredField(aKey);
+				}
+				catch (NoSuchFieldException e) {
+					// Try superclass
+				}
+			}
+			return null;
+		}
+	}
 }
@@ -24,6 +24,7 @@ import java.util.Set;
 
 import de.tudarmstadt.ukp.dkpro.lab.task.BatchTask;
 import de.tudarmstadt.ukp.dkpro.lab.task.Dimension;
+import de.tudarmstadt.ukp.dkpro.lab.task.ExplorationStrategy;
 import de.tudarmstadt.ukp.dkpro.lab.task.ParameterSpace;
 import de.tudarmstadt.ukp.dkpro.lab.task.Task;
 
@@ -33,6 +34,7 @@ public class DefaultBatchTask
 {
     protected Set<Task> tasks = new LinkedHashSet<Task>();
     private ParameterSpace parameterSpace;
+    private ExplorationStrategy explorationStrategy = new GridExplorationStrategy();
     private ExecutionPolicy executionPolicy = ExecutionPolicy.RUN_AGAIN;
     private Map<String, Object> inheritedConfig;
     protected Set<String> inheritedScope;
@@ -53,6 +55,26 @@ public class DefaultBatchTask
         return parameterSpace;
     }
 
+    /**
+     * Set the strategy which decides which configurations of the parameter space are run. Per
+     * default, all configurations are run.
+     * 
+     * @see GridExplorationStrategy
+     * @see RandomSamplingStrategy
+     * @see LatinHypercubeStrategy
+     * @see SuccessiveHalvingStrategy
+     */
+    public void setExplorationStrategy(ExplorationStrategy aExplorationStrategy)
+    {
+        explorationStrategy = aExplorationStrategy;
+    }
+
+    @Override
+    public ExplorationStrategy getExplorationStrategy()
+    {
+        return explorationStrategy;
+    }
+
     public void setExecutionPolicy(ExecutionPolicy aPolicy)
     {
         executionPolicy = aPolicy;
@@ -17,28 +17,60 @@
  ******************************************************************************/
 package de.tudarmstadt.ukp.dkpro.lab.task.impl;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.RandomAccess;
 
 import de.tudarmstadt.ukp.dkpro.lab.task.Dimension;
 
 public class FoldDimensionBundle<T> extends DimensionBundle<Collection<T>> implements DynamicDimension
 {
+	public static final String SUFFIX_TRAINING = "_training";
+	public static final String SUFFIX_VALIDATION = "_validation";
+
 	private Dimension<T> foldedDimension;
 	private List<T>[] buckets;
-	private int validationBucket = -1;
+	private int position = -1;
 	private int folds;
 	private Comparator<T> comparator;
+	private KeyExtractor<T, ?> keyExtractor;
+	private KeyExtractor<T, ?> labelExtractor;
+	private boolean shuffle = false;
+	private long seed = 0;
+	private int repetitions = 1;
+	
+	// The buckets of each repetition and the values of the folded dimension they were built from
+	private List<T>[][] splits;
+	private List<T> items;
 	
     public FoldDimensionBundle(String aName, Dimension<T> aFoldedDimension, int aFolds, Comparator<T> aComparator)
     {
         this(aName, aFoldedDimension, aFolds);
         comparator = aComparator;
     }
+
+	/**
+	 * All values with the same key go into the same fold. Each group is put into the smallest
+	 * fold at the time its first value is encountered. This is equivalent to using a
+	 * {@link Comparator} which compares the keys, but takes linear time.
+	 */
+	public FoldDimensionBundle(String aName, Dimension<T> aFoldedDimension, int aFolds,
+			KeyExtractor<T, ?> aKeyExtractor)
+	{
+		this(aName, aFoldedDimension, aFolds);
+		keyExtractor = aKeyExtractor;
+	}
+
 	public FoldDimensionBundle(String aName, Dimension<T> aFoldedDimension, int aFolds)
 	{
 		super(aName, new Object[0] );
@@ -47,21 +79,98 @@ public class FoldDimensionBundle<T> extends DimensionBundle<Collection<T>> imple
 		comparator = null;
 	}
 	
+	/**
+	 * Distribute the values such that the labels are spread evenly across the folds. Values are
+	 * dealt out to the folds label by label, so each fold gets roughly the same number of values
+	 * per label. Stratification cannot be combined with a comparator or key extractor.
+	 */
+	public void setLabelExtractor(KeyExtractor<T, ?> aLabelExtractor)
+	{
+		if (aLabelExtractor != null && (comparator != null || keyExtractor != null)) {
+			throw new IllegalArgumentException(
+					"Stratification cannot be combined with grouping values by comparator or key");
+		}
+		labelExtractor = aLabelExtractor;
+		items = null;
+	}
+	
+	/**
+	 * Shuffle the values before distributing them into the folds. Per default the values are
+	 * distributed in the order of the folded dimension.
+	 */
+	public void setShuffle(boolean aShuffle)
+	{
+		shuffle = aShuffle;
+		items = null;
+	}
+	
+	/**
+	 * The seed used for shuffling. Repetition {@code r} uses the seed plus {@code r}.
+	 */
+	public void setSeed(long aSeed)
+	{
+		seed = aSeed;
+		items = null;
+	}
+	
+	/**
+	 * Repeat the cross-validation with differently shuffled data. The dimension then produces
+	 * {@code repetitions * folds} values, one repetition after the other. The values are always
+	 * shuffled when there is more than one repetition.
+	 */
+	public void setRepetitions(int aRepetitions)
+	{
+		if (aRepetitions < 1) {
+			throw new IllegalArgumentException("Repetitions must be at least 1, but was ["
+					+ aRepetitions + "]");
+		}
+		repetitions = aRepetitions;
+		items = null;
+	}
+	
 	private void init()
+	{
+		// Capture all data from the dimension
+		List<T> values = new ArrayList<T>();
+		foldedDimension.rewind();
+		while (foldedDimension.hasNext()) {
+			values.add(foldedDimension.next());
+		}
+		
+		// Keep the buckets as long as the folded data does not change
+		if (splits != null && values.equals(items)) {
+			return;
+		}
+		
+		splits = new List[repetitions][];
+		for (int r = 0; r < repetitions; r++) {
+			List<T> order = values;
+			if (shuffle || repetitions > 1) {
+				order = new ArrayList<T>(values);
+				Collections.shuffle(order, new Random(seed + r));
+			}
+			distribute(order);
+			splits[r] = buckets;
+		}
+		
+		items = values;
+	}
+	
+	private void distribute(List<T> values)
 	{
 		buckets = new List[folds];
 		for(int bucket=0;bucket<buckets.length;bucket++){
 			buckets[bucket] = new ArrayList<T>();
 		}
 		
-		// Capture all data from the dimension into buckets, one per fold
-		foldedDimension.rewind();
-		
+		// Distribute the data into buckets, one per fold
+		if (keyExtractor != null) {
+			assignByKey(values);
+		}
 		//User controls instances across folds
-		if(comparator != null){
+		else if(comparator != null){
 		
-	        while (foldedDimension.hasNext()) {
-	            T newItem = foldedDimension.next();
+	        for (T newItem : values) {
 	            
 	            // Check every bucket if the current object belongs there
 	            boolean found = false;
@@ -83,31 +192,27 @@ public class FoldDimensionBundle<T> extends DimensionBundle<Collection<T>> imple
 	            
 	            // There is no bucket where the current item has to go into, just use the next one.
 	            if (!found) {
-	            	//put it in the smallest bucket
-	            	int smallestBucket = 0;
-	                int smallestBucketSize = buckets[smallestBucket].size();
-	                for(int bucket=0;bucket<buckets.length;bucket++){
-	                	if(buckets[bucket].size() < smallestBucketSize){
-	                		smallestBucket = bucket;
-	                		smallestBucketSize = buckets[smallestBucket].size();
-	                	}
-	                }
-	                addToBucket(newItem, smallestBucket);
+	                addToBucket(newItem, getSmallestBucket());
 	            }
 	        }
 
 		//Default instance division across folds
 		}else{
 		
+			// Deal out the values label by label, so the labels are spread evenly
+			if (labelExtractor != null) {
+				values = orderByLabel(values);
+			}
+			
 			int i = 0;
-			while (foldedDimension.hasNext()) {
+			for (T item : values) {
 				int bucket = i % folds;
 				
 				if (buckets[bucket] == null) {
 					buckets[bucket] = new ArrayList<T>();
 				}
 				
-				buckets[bucket].add(foldedDimension.next());
+				buckets[bucket].add(item);
 				i++;
 			}
 		
@@ -127,6 +232,54 @@ public class FoldDimensionBundle<T> extends DimensionBundle<Collection<T>> imple
 			}
 		}
 	}
+
+	private List<T> orderByLabel(List<T> aValues)
+	{
+		Map<Object, List<T>> strata = new LinkedHashMap<Object, List<T>>();
+		for (T item : aValues) {
+			Object label = labelExtractor.getKey(item);
+			List<T> stratum = strata.get(label);
+			if (stratum == null) {
+				stratum = new ArrayList<T>();
+				strata.put(label, stratum);
+			}
+			stratum.add(item);
+		}
+		
+		List<T> ordered = new ArrayList<T>(aValues.size());
+		for (List<T> stratum : strata.values()) {
+			ordered.addAll(stratum);
+		}
+		return ordered;
+	}
+
+	private void assignByKey(List<T> aValues)
+	{
+		Map<Object, Integer> bucketByKey = new HashMap<Object, Integer>();
+		for (T item : aValues) {
+			Object key = keyExtractor.getKey(item);
+			Integer bucket = bucketByKey.get(key);
+			if (bucket == null) {
+				bucket = getSmallestBucket();
+				bucketByKey.put(key, bucket);
+			}
+			addToBucket(item, bucket);
+		}
+	}
+
+	private int getSmallestBucket()
+	{
+		int smallestBucket = 0;
+		int smallestBucketSize = buckets[smallestBucket].size();
+		for(int bucket=0;bucket<buckets.length;bucket++){
+			if(buckets[bucket].size() < smallestBucketSize){
+				smallestBucket = bucket;
+				smallestBucketSize = buckets[smallestBucket].size();
+			}
+		}
+		return smallestBucket;
+	}
+
     private void addToBucket(T newItem, int bucket){
 		if (buckets[bucket] == null) {
 			buckets[bucket] = new ArrayList<T>();
@@ -138,40 +291,51 @@ public class FoldDimensionBundle<T> extends DimensionBundle<Collection<T>> imple
 	@Override
 	public boolean hasNext()
 	{
-		return validationBucket < buckets.length-1;
+		return position < size() - 1;
 	}
 
 	@Override
 	public void rewind()
 	{
 		init();
-		validationBucket = -1;
+		position = -1;
 	}
 
 	@Override
 	public Map<String, Collection<T>> next()
 	{
-		validationBucket++;
+		position++;
 		return current();
 	}
 
+	/**
+	 * Get the training and validation data of the current fold. Both are read-only views on the
+	 * buckets, so no data is copied.
+	 */
 	@Override
 	public Map<String, Collection<T>> current()
 	{
-		List<T> trainingData = new ArrayList<T>();
-		for (int i = 0; i < buckets.length; i++) {
-			if (i != validationBucket) {
-				trainingData.addAll(buckets[i]);
-			}
+		if (splits == null) {
+			init();
 		}
 		
+		List<T>[] split = splits[position / folds];
+		int validationBucket = position % folds;
+		
 		Map<String, Collection<T>> data = new HashMap<String, Collection<T>>();
-		data.put(getName()+"_training", trainingData);
-		data.put(getName()+"_validation", buckets[validationBucket]);
+		data.put(getName() + SUFFIX_TRAINING, new BucketView<T>(split, validationBucket));
+		data.put(getName() + SUFFIX_VALIDATION,
+				Collections.unmodifiableList(split[validationBucket]));
 		
 		return data;
 	}
 
+	@Override
+	public int size()
+	{
+		return folds * repetitions;
+	}
+
 	@Override
 	public void setConfiguration(Map<String, Object> aConfig)
 	{
@@ -179,4 +343,94 @@ public class FoldDimensionBundle<T> extends DimensionBundle<Collection<T>> imple
 			((DynamicDimension) foldedDimension).setConfiguration(aConfig);
 		}
 	}
+
+	/**
+	 * Read-only view on the concatenation of all buckets except one.
+	 */
+	private static class BucketView<T>
+		extends AbstractList<T>
+		implements RandomAccess
+	{
+		private final List<T>[] buckets;
+		private final int excluded;
+		private final int[] offsets;
+		private final int size;
+
+		public BucketView(List<T>[] aBuckets, int aExcluded)
+		{
+			buckets = aBuckets;
+			excluded = aExcluded;
+			offsets = new int[aBuckets.length];
+			int total = 0;
+			for (int i = 0; i < aBuckets.length; i++) {
+				offsets[i] = total;
+				if (i != aExcluded) {
+					total += aBuckets[i].size();
+				}
+			}
+			size = total;
+		}
+
+		@Override
+		public T get(int aIndex)
+		{
+			if (aIndex < 0 || aIndex >= size) {
+				throw new IndexOutOfBoundsException("Index: " + aIndex + ", Size: " + size);
+			}
+			
+			// Find the last non-excluded bucket starting at or before the index
+			int bucket = buckets.length - 1;
+			while (bucket == excluded || offsets[bucket] > aIndex) {
+				bucket--;
+			}
+			return buckets[bucket].get(aIndex - offsets[bucket]);
+		}
+
+		@Override
+		public int size()
+		{
+			return size;
+		}
+
+		@Override
+		public Iterator<T> iterator()
+		{
+			return new Iterator<T>()
+			{
+				private int bucket = -1;
+				private Iterator<T> current = Collections.<T> emptyList().iterator();
+
+				@Override
+				public boolean hasNext()
+				{
+					while (!current.hasNext()) {
+						bucket++;
+						if (bucket == excluded) {
+							bucket++;
+						}
+						if (bucket >= buckets.length) {
+							return false;
+						}
+						current = buckets[bucket].iterator();
+					}
+					return true;
+				}
+
+				@Override
+				public T next()
+				{
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					return current.next();
+				}
+
+				@Override
+				public void remove()
+				{
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+	}
 }
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.task.impl;
+
+import java.util.Collection;
+import java.util.Map;
+
+import de.tudarmstadt.ukp.dkpro.lab.engine.TaskContext;
+import de.tudarmstadt.ukp.dkpro.lab.task.ExplorationStrategy;
+import de.tudarmstadt.ukp.dkpro.lab.task.ParameterSpace;
+
+/**
+ * Runs every configuration of the parameter space allowed by its constraints in a single round.
+ * This is the default strategy.
+ */
+public class GridExplorationStrategy
+	implements ExplorationStrategy
+{
+	private ParameterSpace parameterSpace;
+	private boolean done;
+
+	@Override
+	public void begin(ParameterSpace aParameterSpace)
+	{
+		parameterSpace = aParameterSpace;
+		done = false;
+	}
+
+	@Override
+	public long size()
+	{
+		return parameterSpace.size();
+	}
+
+	@Override
+	public Iterable<Map<String, Object>> nextRound()
+	{
+		if (done) {
+			return null;
+		}
+		done = true;
+		return parameterSpace;
+	}
+
+	@Override
+	public void complete(TaskContext aContext, Map<String, Object> aConfig,
+			Collection<String> aSubtasks)
+	{
+		// Nothing to do
+	}
+}
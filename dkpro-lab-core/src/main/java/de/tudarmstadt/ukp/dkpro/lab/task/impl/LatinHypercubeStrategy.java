@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.task.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.tudarmstadt.ukp.dkpro.lab.task.ParameterSpace;
+
+/**
+ * Runs a Latin hypercube sample of the parameter space. Each dimension is divided into as many
+ * equally sized strata as there are samples, and every stratum of every dimension is used by
+ * exactly one sample. Compared to {@link RandomSamplingStrategy}, this spreads a small budget
+ * more evenly over the values of each dimension.
+ * <p>
+ * Samples rejected by the constraints and duplicate samples are dropped, so fewer configurations
+ * than requested may be run.
+ */
+public class LatinHypercubeStrategy
+	extends SamplingStrategyBase
+{
+	private int samples;
+	private List<Map<String, Object>> configurations;
+	private int size;
+
+	public LatinHypercubeStrategy(int aSamples)
+	{
+		this(aSamples, 0);
+	}
+
+	public LatinHypercubeStrategy(int aSamples, long aSeed)
+	{
+		super(aSeed);
+		samples = aSamples;
+	}
+
+	public void setSamples(int aSamples)
+	{
+		samples = aSamples;
+	}
+
+	public int getSamples()
+	{
+		return samples;
+	}
+
+	@Override
+	public void begin(ParameterSpace aParameterSpace)
+	{
+		super.begin(aParameterSpace);
+		
+		// One random permutation of the strata per dimension
+		int[][] coordinates = new int[samples][getDimensionCount()];
+		List<Integer> strata = new ArrayList<Integer>();
+		for (int i = 0; i < samples; i++) {
+			strata.add(i);
+		}
+		for (int d = 0; d < getDimensionCount(); d++) {
+			int size = getDimensionSize(d);
+			Collections.shuffle(strata, getRandom());
+			for (int i = 0; i < samples; i++) {
+				// Pick a random point within the stratum and map it to a value of the dimension
+				double point = (strata.get(i) + getRandom().nextDouble()) / samples;
+				coordinates[i][d] = Math.min((int) (point * size), Math.max(size - 1, 0));
+			}
+		}
+		
+		configurations = new ArrayList<Map<String, Object>>();
+		Set<Map<String, Object>> seen = new HashSet<Map<String, Object>>();
+		for (int[] c : coordinates) {
+			Map<String, Object> config = getConfiguration(c);
+			if (config != null && seen.add(config)) {
+				configurations.add(config);
+			}
+		}
+		size = configurations.size();
+	}
+
+	@Override
+	public long size()
+	{
+		return size;
+	}
+
+	@Override
+	public Iterable<Map<String, Object>> nextRound()
+	{
+		List<Map<String, Object>> round = configurations;
+		configurations = null;
+		return round;
+	}
+}
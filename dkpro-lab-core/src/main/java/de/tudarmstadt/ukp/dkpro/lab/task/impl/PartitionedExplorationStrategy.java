@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.task.impl;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import de.tudarmstadt.ukp.dkpro.lab.engine.TaskContext;
+import de.tudarmstadt.ukp.dkpro.lab.storage.filesystem.FileSystemWorkQueue;
+import de.tudarmstadt.ukp.dkpro.lab.task.ExplorationStrategy;
+import de.tudarmstadt.ukp.dkpro.lab.task.ParameterSpace;
+
+/**
+ * Runs only a share of the configurations of another strategy, so several processes can explore
+ * the same parameter space together. Configurations are either assigned statically by their
+ * position in each round modulo the number of partitions, or dynamically to whichever process
+ * first claims them from a {@link FileSystemWorkQueue}.
+ * <p>
+ * All processes must see the same configurations in the same order, so the delegate strategy
+ * must be deterministic. Adaptive strategies only see the results of their own partition.
+ */
+public class PartitionedExplorationStrategy
+	implements ExplorationStrategy
+{
+	private final ExplorationStrategy delegate;
+	private final int partition;
+	private final int partitions;
+	private final FileSystemWorkQueue queue;
+
+	private final Map<Map<String, Object>, String> claimed = 
+			new IdentityHashMap<Map<String, Object>, String>();
+	private int round;
+
+	/**
+	 * Run every configuration whose position in its round modulo the number of partitions equals
+	 * the given partition.
+	 */
+	public PartitionedExplorationStrategy(ExplorationStrategy aDelegate, int aPartition,
+			int aPartitions)
+	{
+		if (aPartition < 0 || aPartition >= aPartitions) {
+			throw new IllegalArgumentException("Partition [" + aPartition
+					+ "] must be between 0 and " + (aPartitions - 1));
+		}
+		delegate = aDelegate;
+		partition = aPartition;
+		partitions = aPartitions;
+		queue = null;
+	}
+
+	/**
+	 * Run every configuration which can be claimed from the given queue.
+	 */
+	public PartitionedExplorationStrategy(ExplorationStrategy aDelegate,
+			FileSystemWorkQueue aQueue)
+	{
+		delegate = aDelegate;
+		partition = -1;
+		partitions = -1;
+		queue = aQueue;
+	}
+
+	@Override
+	public void begin(ParameterSpace aParameterSpace)
+	{
+		delegate.begin(aParameterSpace);
+		round = 0;
+		synchronized (claimed) {
+			claimed.clear();
+		}
+	}
+
+	@Override
+	public long size()
+	{
+		long size = delegate.size();
+		if (queue != null || size < 0) {
+			// Depends on how fast the other processes are
+			return -1;
+		}
+		return (size - partition + partitions - 1) / partitions;
+	}
+
+	@Override
+	public Iterable<Map<String, Object>> nextRound()
+	{
+		final Iterable<Map<String, Object>> configs = delegate.nextRound();
+		if (configs == null) {
+			return null;
+		}
+		
+		final int currentRound = round++;
+		return new Iterable<Map<String, Object>>()
+		{
+			@Override
+			public Iterator<Map<String, Object>> iterator()
+			{
+				return new PartitionIterator(currentRound, configs.iterator());
+			}
+		};
+	}
+
+	@Override
+	public void complete(TaskContext aContext, Map<String, Object> aConfig,
+			Collection<String> aSubtasks)
+	{
+		delegate.complete(aContext, aConfig, aSubtasks);
+		
+		if (queue != null) {
+			String item;
+			synchronized (claimed) {
+				item = claimed.remove(aConfig);
+			}
+			if (item != null) {
+				queue.complete(item, aContext.getId());
+			}
+		}
+	}
+
+	private boolean accept(int aRound, int aPosition, Map<String, Object> aConfig)
+	{
+		if (queue == null) {
+			return aPosition % partitions == partition;
+		}
+		
+		String item = aRound + "-" + aPosition;
+		if (!queue.claim(item)) {
+			return false;
+		}
+		synchronized (claimed) {
+			claimed.put(aConfig, item);
+		}
+		return true;
+	}
+
+	private class PartitionIterator
+		implements Iterator<Map<String, Object>>
+	{
+		private final int round;
+		private final Iterator<Map<String, Object>> configs;
+		private int position = 0;
+		private Map<String, Object> next;
+
+		public PartitionIterator(int aRound, Iterator<Map<String, Object>> aConfigs)
+		{
+			round = aRound;
+			configs = aConfigs;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			while (next == null && configs.hasNext()) {
+				Map<String, Object> config = configs.next();
+				if (accept(round, position++, config)) {
+					next = config;
+				}
+			}
+			return next != null;
+		}
+
+		@Override
+		public Map<String, Object> next()
+		{
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Map<String, Object> result = next;
+			next = null;
+			return result;
+		}
+
+		@Override
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+}
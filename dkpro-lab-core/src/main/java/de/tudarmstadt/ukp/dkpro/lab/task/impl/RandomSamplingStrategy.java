@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.task.impl;
+
+import java.util.List;
+import java.util.Map;
+
+import de.tudarmstadt.ukp.dkpro.lab.task.ParameterSpace;
+
+/**
+ * Runs a fixed budget of distinct configurations drawn uniformly at random from the parameter
+ * space. Only configurations allowed by the constraints are drawn. Using the same seed on the same
+ * parameter space yields the same configurations.
+ */
+public class RandomSamplingStrategy
+	extends SamplingStrategyBase
+{
+	private int budget;
+	private List<Map<String, Object>> samples;
+	private int size;
+
+	public RandomSamplingStrategy(int aBudget)
+	{
+		this(aBudget, 0);
+	}
+
+	public RandomSamplingStrategy(int aBudget, long aSeed)
+	{
+		super(aSeed);
+		budget = aBudget;
+	}
+
+	public void setBudget(int aBudget)
+	{
+		budget = aBudget;
+	}
+
+	public int getBudget()
+	{
+		return budget;
+	}
+
+	@Override
+	public void begin(ParameterSpace aParameterSpace)
+	{
+		super.begin(aParameterSpace);
+		samples = sample(budget);
+		size = samples.size();
+	}
+
+	@Override
+	public long size()
+	{
+		return size;
+	}
+
+	@Override
+	public Iterable<Map<String, Object>> nextRound()
+	{
+		List<Map<String, Object>> round = samples;
+		samples = null;
+		return round;
+	}
+}
@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.task.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+
+import de.tudarmstadt.ukp.dkpro.lab.engine.TaskContext;
+import de.tudarmstadt.ukp.dkpro.lab.task.Dimension;
+import de.tudarmstadt.ukp.dkpro.lab.task.ExplorationStrategy;
+import de.tudarmstadt.ukp.dkpro.lab.task.ParameterSpace;
+
+/**
+ * Base class for strategies which pick configurations from the parameter space at random. The
+ * values of each dimension are collected when the exploration begins, so the parameter space is
+ * never enumerated. Dynamic dimensions cannot be sampled because their values depend on the
+ * configuration.
+ */
+public abstract class SamplingStrategyBase
+	implements ExplorationStrategy
+{
+	/**
+	 * The maximum number of draws per requested configuration before sampling gives up, e.g.
+	 * because the constraints reject most of the parameter space.
+	 */
+	private static final int MAX_ATTEMPTS = 100;
+
+	private long seed;
+	private ParameterSpace parameterSpace;
+	private List<List<Map<String, Object>>> values;
+	private Random random;
+
+	public SamplingStrategyBase(long aSeed)
+	{
+		seed = aSeed;
+	}
+
+	public void setSeed(long aSeed)
+	{
+		seed = aSeed;
+	}
+
+	public long getSeed()
+	{
+		return seed;
+	}
+
+	@Override
+	public void begin(ParameterSpace aParameterSpace)
+	{
+		parameterSpace = aParameterSpace;
+		random = new Random(seed);
+		values = new ArrayList<List<Map<String, Object>>>();
+		for (Dimension<?> d : aParameterSpace.getDimensions()) {
+			if (d instanceof DynamicDimension) {
+				throw new IllegalArgumentException("Dimension [" + d.getName()
+						+ "] is dynamic and cannot be sampled");
+			}
+			values.add(getValues(d));
+		}
+	}
+
+	@Override
+	public void complete(TaskContext aContext, Map<String, Object> aConfig,
+			Collection<String> aSubtasks)
+	{
+		// Nothing to do
+	}
+
+	protected ParameterSpace getParameterSpace()
+	{
+		return parameterSpace;
+	}
+
+	protected Random getRandom()
+	{
+		return random;
+	}
+
+	protected int getDimensionCount()
+	{
+		return values.size();
+	}
+
+	protected int getDimensionSize(int aDimension)
+	{
+		return values.get(aDimension).size();
+	}
+
+	/**
+	 * Get the number of points in the parameter space without considering the constraints.
+	 * 
+	 * @return the number of points or {@link Long#MAX_VALUE} if it exceeds that.
+	 */
+	protected long getPointCount()
+	{
+		long count = 1;
+		for (List<Map<String, Object>> v : values) {
+			if (v.size() > 0) {
+				if (count > Long.MAX_VALUE / v.size()) {
+					return Long.MAX_VALUE;
+				}
+				count *= v.size();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Build the configuration at the given coordinates. The coordinate of an empty dimension is
+	 * ignored.
+	 * 
+	 * @param aCoordinates
+	 *            the index of the value for each dimension.
+	 * @return the configuration or {@code null} if it is rejected by the constraints.
+	 */
+	protected Map<String, Object> getConfiguration(int[] aCoordinates)
+	{
+		Map<String, Object> config = new LinkedHashMap<String, Object>();
+		for (int i = 0; i < values.size(); i++) {
+			if (!values.get(i).isEmpty()) {
+				config.putAll(values.get(i).get(aCoordinates[i]));
+			}
+		}
+		return parameterSpace.isValid(config) ? config : null;
+	}
+
+	/**
+	 * Draw distinct configurations allowed by the constraints uniformly at random. Fewer
+	 * configurations are returned if the parameter space is exhausted or the constraints reject
+	 * too many draws.
+	 * 
+	 * @param aCount
+	 *            the number of configurations to draw.
+	 */
+	protected List<Map<String, Object>> sample(int aCount)
+	{
+		List<Map<String, Object>> samples = new ArrayList<Map<String, Object>>();
+		Set<List<Integer>> seen = new HashSet<List<Integer>>();
+		long points = getPointCount();
+		long attempts = (long) aCount * MAX_ATTEMPTS;
+		while (samples.size() < aCount && seen.size() < points && attempts > 0) {
+			attempts--;
+			Integer[] coordinates = new Integer[values.size()];
+			for (int i = 0; i < coordinates.length; i++) {
+				int size = values.get(i).size();
+				coordinates[i] = size > 0 ? random.nextInt(size) : 0;
+			}
+			
+			if (seen.add(Arrays.asList(coordinates))) {
+				int[] c = new int[coordinates.length];
+				for (int i = 0; i < c.length; i++) {
+					c[i] = coordinates[i];
+				}
+				Map<String, Object> config = getConfiguration(c);
+				if (config != null) {
+					samples.add(config);
+				}
+			}
+		}
+		return samples;
+	}
+
+	/**
+	 * Collect the configuration entries contributed by each value of the given dimension.
+	 */
+	private static List<Map<String, Object>> getValues(Dimension<?> aDimension)
+	{
+		List<Map<String, Object>> result = new ArrayList<Map<String, Object>>();
+		aDimension.rewind();
+		while (aDimension.hasNext()) {
+			aDimension.next();
+			Map<String, Object> entries = new LinkedHashMap<String, Object>();
+			try {
+				if (aDimension instanceof DimensionBundle<?>) {
+					DimensionBundle<?> bundle = (DimensionBundle<?>) aDimension;
+					String bundleId = bundle.getBundleId();
+					if (bundleId != null) {
+						entries.put(bundle.getName(), bundleId);
+					}
+					entries.putAll(bundle.current());
+				}
+				else {
+					entries.put(aDimension.getName(), aDimension.current());
+				}
+			}
+			catch (NoSuchElementException e) {
+				// Empty dimensions contribute nothing
+			}
+			result.add(entries);
+		}
+		aDimension.rewind();
+		return result;
+	}
+}
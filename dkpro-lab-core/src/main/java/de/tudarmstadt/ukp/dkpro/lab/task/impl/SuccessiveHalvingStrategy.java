@@ -0,0 +1,298 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.task.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.tudarmstadt.ukp.dkpro.lab.engine.TaskContext;
+import de.tudarmstadt.ukp.dkpro.lab.storage.StorageService;
+import de.tudarmstadt.ukp.dkpro.lab.storage.impl.PropertiesAdapter;
+import de.tudarmstadt.ukp.dkpro.lab.task.ParameterSpace;
+
+/**
+ * Adaptive search by successive halving. The first round runs a random sample of configurations
+ * with the minimum resource. After each round, only the best {@code 1/eta} of the configurations
+ * are kept and run again with {@code eta} times the resource, until a single configuration
+ * remains.
+ * <p>
+ * The score of a configuration is read from the contexts of the subtasks executed for it: the
+ * properties file stored under the {@link #setMetric metric key} is loaded and the metric
+ * property is parsed as a number. If several subtasks provide the metric, the last one wins.
+ * Configurations without a score are dropped first.
+ * <p>
+ * The resource (e.g. the number of training iterations or the amount of training data) is passed
+ * to the subtasks under the {@link #setResource resource key}. Without a resource key, the kept
+ * configurations are simply re-run, which only makes sense if the subtasks are not
+ * deterministic.
+ */
+public class SuccessiveHalvingStrategy
+	extends SamplingStrategyBase
+{
+	private final Log log = LogFactory.getLog(getClass());
+
+	private int configurations;
+	private int eta = 3;
+	private String resourceKey;
+	private int minResource = 1;
+	private String taskType;
+	private String metricKey;
+	private String metricProperty;
+	private boolean maximize = true;
+
+	private List<Map<String, Object>> candidates;
+	private int rung;
+	private long size;
+	private Map<Map<String, Object>, Integer> round;
+	private Double[] scores;
+
+	/**
+	 * @param aConfigurations
+	 *            the number of configurations in the first round.
+	 */
+	public SuccessiveHalvingStrategy(int aConfigurations)
+	{
+		this(aConfigurations, 0);
+	}
+
+	/**
+	 * @param aConfigurations
+	 *            the number of configurations in the first round.
+	 * @param aSeed
+	 *            the seed used to sample the configurations of the first round.
+	 */
+	public SuccessiveHalvingStrategy(int aConfigurations, long aSeed)
+	{
+		super(aSeed);
+		configurations = aConfigurations;
+	}
+
+	public void setConfigurations(int aConfigurations)
+	{
+		configurations = aConfigurations;
+	}
+
+	public int getConfigurations()
+	{
+		return configurations;
+	}
+
+	/**
+	 * Set the reduction factor between rounds. Default: 3.
+	 */
+	public void setEta(int aEta)
+	{
+		if (aEta < 2) {
+			throw new IllegalArgumentException("Eta must be at least 2 but was [" + aEta + "]");
+		}
+		eta = aEta;
+	}
+
+	public int getEta()
+	{
+		return eta;
+	}
+
+	/**
+	 * Set the configuration key under which the resource is passed to the subtasks. In round
+	 * {@code i}, the resource is {@code aMinimum * eta^i}.
+	 */
+	public void setResource(String aKey, int aMinimum)
+	{
+		resourceKey = aKey;
+		minResource = aMinimum;
+	}
+
+	public String getResourceKey()
+	{
+		return resourceKey;
+	}
+
+	/**
+	 * Set where the score of a configuration is read from.
+	 * 
+	 * @param aKey
+	 *            the key of a properties file in the subtask contexts.
+	 * @param aProperty
+	 *            the property holding the score.
+	 * @param aMaximize
+	 *            whether higher scores are better.
+	 */
+	public void setMetric(String aKey, String aProperty, boolean aMaximize)
+	{
+		metricKey = aKey;
+		metricProperty = aProperty;
+		maximize = aMaximize;
+	}
+
+	/**
+	 * Only read the metric from subtasks of the given type. Per default all subtasks are
+	 * considered.
+	 */
+	public void setTaskType(String aType)
+	{
+		taskType = aType;
+	}
+
+	public String getTaskType()
+	{
+		return taskType;
+	}
+
+	@Override
+	public void begin(ParameterSpace aParameterSpace)
+	{
+		if (metricKey == null || metricProperty == null) {
+			throw new IllegalStateException("No metric set");
+		}
+		
+		super.begin(aParameterSpace);
+		candidates = sample(configurations);
+		rung = -1;
+		round = null;
+		
+		size = 0;
+		for (int n = candidates.size(); n > 0; n = n > 1 ? Math.max(n / eta, 1) : 0) {
+			size += n;
+		}
+	}
+
+	@Override
+	public long size()
+	{
+		return size;
+	}
+
+	@Override
+	public synchronized Iterable<Map<String, Object>> nextRound()
+	{
+		if (round != null) {
+			if (candidates.size() <= 1) {
+				return null;
+			}
+			candidates = select(Math.max(candidates.size() / eta, 1));
+		}
+		
+		if (candidates.isEmpty()) {
+			return null;
+		}
+
+		rung++;
+		int resource = minResource;
+		for (int i = 0; i < rung; i++) {
+			resource *= eta;
+		}
+		
+		List<Map<String, Object>> configs = new ArrayList<Map<String, Object>>();
+		round = new IdentityHashMap<Map<String, Object>, Integer>();
+		scores = new Double[candidates.size()];
+		for (Map<String, Object> candidate : candidates) {
+			Map<String, Object> config = new LinkedHashMap<String, Object>(candidate);
+			if (resourceKey != null) {
+				config.put(resourceKey, resource);
+			}
+			round.put(config, configs.size());
+			configs.add(config);
+		}
+		
+		log.info("Round " + rung + ": running " + configs.size() + " configurations"
+				+ (resourceKey != null ? " with [" + resourceKey + "] = " + resource : ""));
+		
+		return configs;
+	}
+
+	@Override
+	public void complete(TaskContext aContext, Map<String, Object> aConfig,
+			Collection<String> aSubtasks)
+	{
+		Double score = getScore(aContext.getStorageService(), aSubtasks);
+		synchronized (this) {
+			Integer index = round.get(aConfig);
+			if (index != null) {
+				scores[index] = score;
+			}
+		}
+	}
+
+	/**
+	 * Get the best configurations of the current round.
+	 */
+	private List<Map<String, Object>> select(int aCount)
+	{
+		List<Integer> ranking = new ArrayList<Integer>();
+		for (int i = 0; i < candidates.size(); i++) {
+			ranking.add(i);
+		}
+		
+		// The sort is stable, so ties are kept in sampling order
+		Collections.sort(ranking, new Comparator<Integer>()
+		{
+			@Override
+			public int compare(Integer aA, Integer aB)
+			{
+				Double a = scores[aA];
+				Double b = scores[aB];
+				if (a == null || b == null) {
+					return a == null ? (b == null ? 0 : 1) : -1;
+				}
+				return maximize ? Double.compare(b, a) : Double.compare(a, b);
+			}
+		});
+		
+		List<Map<String, Object>> selected = new ArrayList<Map<String, Object>>();
+		for (int i = 0; i < aCount && i < ranking.size(); i++) {
+			selected.add(candidates.get(ranking.get(i)));
+		}
+		return selected;
+	}
+
+	private Double getScore(StorageService aStorage, Collection<String> aSubtasks)
+	{
+		Double score = null;
+		for (String id : aSubtasks) {
+			if (taskType != null && !taskType.equals(aStorage.getContext(id).getType())) {
+				continue;
+			}
+			if (!aStorage.containsKey(id, metricKey)) {
+				continue;
+			}
+			
+			String value = aStorage.retrieveBinary(id, metricKey, new PropertiesAdapter())
+					.getMap().get(metricProperty);
+			if (value != null) {
+				try {
+					score = Double.valueOf(value);
+				}
+				catch (NumberFormatException e) {
+					log.warn("Metric [" + metricProperty + "] in context [" + id
+							+ "] is not a number: [" + value + "]");
+				}
+			}
+		}
+		return score;
+	}
+}
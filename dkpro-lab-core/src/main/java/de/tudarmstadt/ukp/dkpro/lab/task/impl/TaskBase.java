@@ -24,13 +24,24 @@ import static de.tudarmstadt.ukp.dkpro.lab.storage.filesystem.FileSystemStorageS
 import java.io.File;
 import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigInteger;
 import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.ws.rs.core.UriBuilder;
 
@@ -43,14 +54,29 @@ import de.tudarmstadt.ukp.dkpro.lab.engine.TaskContext;
 import de.tudarmstadt.ukp.dkpro.lab.reporting.Report;
 import de.tudarmstadt.ukp.dkpro.lab.storage.StorageService;
 import de.tudarmstadt.ukp.dkpro.lab.storage.impl.PropertiesAdapter;
+import de.tudarmstadt.ukp.dkpro.lab.storage.impl.StringAdapter;
 import de.tudarmstadt.ukp.dkpro.lab.task.Discriminator;
 import de.tudarmstadt.ukp.dkpro.lab.task.Property;
 import de.tudarmstadt.ukp.dkpro.lab.task.Task;
 import de.tudarmstadt.ukp.dkpro.lab.task.TaskContextMetadata;
 
 public class TaskBase
-	implements Task
+	implements Task, Cloneable
 {
+	// Per class and annotation, the annotated fields declared directly in the class. The fields
+	// are attached to the class, so the class can still be unloaded with its class loader.
+	private static final ClassValue<ConcurrentMap<Class<? extends Annotation>, 
+			List<AnnotatedField>>> annotatedFields = 
+			new ClassValue<ConcurrentMap<Class<? extends Annotation>, List<AnnotatedField>>>()
+	{
+		@Override
+		protected ConcurrentMap<Class<? extends Annotation>, List<AnnotatedField>> computeValue(
+				Class<?> aClazz)
+		{
+			return new ConcurrentHashMap<Class<? extends Annotation>, List<AnnotatedField>>();
+		}
+	};
+	
 	private final Log log = LogFactory.getLog(getClass());
 
 	private String type;
@@ -58,6 +84,8 @@ public class TaskBase
 	private Map<String, String> properties;
 	private Map<String, String> discriminators;
 	private Set<Class<? extends Report>> reports;
+	
+	private String fingerprint;
 
 	{
 		properties = new HashMap<String, String>();
@@ -89,6 +117,29 @@ public class TaskBase
 		setType(aType);
 	}
 
+	/**
+	 * Create a copy of this task which can be configured and executed independently of this
+	 * task, e.g. to execute several parameter configurations at the same time. The imports,
+	 * attributes, discriminators and reports of the copy are independent of this task. All other
+	 * fields are copied shallowly, so subclasses must not change objects referenced by their
+	 * fields in place while executing.
+	 */
+	public TaskBase copy()
+	{
+		TaskBase copy;
+		try {
+			copy = (TaskBase) clone();
+		}
+		catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+		copy.imports = new HashMap<String, String>(imports);
+		copy.properties = new HashMap<String, String>(properties);
+		copy.discriminators = new HashMap<String, String>(discriminators);
+		copy.reports = new HashSet<Class<? extends Report>>(reports);
+		return copy;
+	}
+
 	public void setType(String aType)
 	{
 		if (aType == null) {
@@ -142,6 +193,7 @@ public class TaskBase
 		else {
 			discriminators.put(aKey, aValue);
 		}
+		fingerprint = null;
 	}
 
 	@Override
@@ -157,6 +209,47 @@ public class TaskBase
 		return discriminators;
 	}
 
+	/**
+	 * Get a stable hash of the discriminators of this task. Tasks with the same discriminators
+	 * have the same fingerprint. The fingerprint is only computed again if any discriminator
+	 * changed.
+	 * 
+	 * @see #fingerprint(Map)
+	 */
+	public String getDiscriminatorFingerprint()
+	{
+		Map<String, String> descs = getDescriminators();
+		if (fingerprint == null) {
+			fingerprint = fingerprint(descs);
+		}
+		return fingerprint;
+	}
+	
+	/**
+	 * Get a stable hash of the given discriminators. The hash does not depend on the order of
+	 * the entries in the map.
+	 */
+	public static String fingerprint(Map<String, String> aDiscriminators)
+	{
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			for (Entry<String, String> e : new TreeMap<String, String>(aDiscriminators)
+					.entrySet()) {
+				digest.update(e.getKey().getBytes("UTF-8"));
+				digest.update((byte) 0);
+				digest.update(String.valueOf(e.getValue()).getBytes("UTF-8"));
+				digest.update((byte) 0);
+			}
+			return String.format("%040x", new BigInteger(1, digest.digest()));
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
 	@Override
 	public Map<String, String> getResolvedDescriminators(TaskContext aContext)
 	{
@@ -349,6 +442,9 @@ public class TaskBase
 		aContext.storeBinary(PROPERTIES_KEY, new PropertiesAdapter(getAttributes(), "Task properties"));
 
 		aContext.storeBinary(DISCRIMINATORS_KEY, new PropertiesAdapter(getResolvedDescriminators(aContext)));
+
+		aContext.storeBinary(DISCRIMINATOR_FINGERPRINT_KEY, new StringAdapter(
+				getDiscriminatorFingerprint(), "UTF-8"));
 	}
 
 	protected void analyze(Class<?> aClazz, Class<? extends Annotation> aAnnotation, Map<String, String> props)
@@ -357,22 +453,66 @@ public class TaskBase
 			analyze(aClazz.getSuperclass(), aAnnotation, props);
 		}
 
-		for (Field field : aClazz.getDeclaredFields()) {
-			field.setAccessible(true);
+		for (AnnotatedField field : getAnnotatedFields(aClazz, aAnnotation)) {
+			String name = getClass().getName()+"|"+field.name;
+			Object raw;
 			try {
-				if (field.isAnnotationPresent(aAnnotation)) {
-					String name = getClass().getName()+"|"+field.getName();
-					String value = Util.toString(field.get(this));
-					props.put(name, value);
-					log.debug("Found "+aAnnotation.getSimpleName()+" ["+name+"]: "+value);
-				}
+				raw = field.getter.invoke(this);
 			}
-			catch (IllegalAccessException e) {
+			catch (Throwable e) {
 				throw new IllegalStateException(e);
 			}
-			finally {
-				field.setAccessible(false);
+			
+			String value = Util.toString(raw);
+			String previous = props.put(name, value);
+			if (!value.equals(previous) && props == discriminators) {
+				fingerprint = null;
+			}
+			if (log.isDebugEnabled()) {
+				log.debug("Found "+aAnnotation.getSimpleName()+" ["+name+"]: "+value);
+			}
+		}
+	}
+	
+	private static List<AnnotatedField> getAnnotatedFields(Class<?> aClazz,
+			Class<? extends Annotation> aAnnotation)
+	{
+		ConcurrentMap<Class<? extends Annotation>, List<AnnotatedField>> classFields = 
+				annotatedFields.get(aClazz);
+		
+		List<AnnotatedField> fields = classFields.get(aAnnotation);
+		if (fields == null) {
+			fields = new ArrayList<AnnotatedField>();
+			for (Field field : aClazz.getDeclaredFields()) {
+				if (field.isAnnotationPresent(aAnnotation)) {
+					field.setAccessible(true);
+					try {
+						MethodHandle getter = MethodHandles.lookup().unreflectGetter(field);
+						if (Modifier.isStatic(field.getModifiers())) {
+							getter = MethodHandles.dropArguments(getter, 0, Object.class);
+						}
+						fields.add(new AnnotatedField(field.getName(), getter));
+					}
+					catch (IllegalAccessException e) {
+						throw new IllegalStateException(e);
+					}
+				}
 			}
+			classFields.put(aAnnotation, fields);
+		}
+		return fields;
+	}
+	
+	private static class AnnotatedField
+	{
+		final String name;
+		final MethodHandle getter;
+		
+		public AnnotatedField(String aName, MethodHandle aGetter)
+		{
+			name = aName;
+			getter = aGetter.asType(aGetter.type().changeParameterType(0, Object.class)
+					.changeReturnType(Object.class));
 		}
 	}
 }
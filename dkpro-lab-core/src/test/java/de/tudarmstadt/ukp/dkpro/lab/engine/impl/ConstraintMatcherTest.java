@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.engine.impl;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ConstraintMatcherTest
+{
+    @Test
+    public void testQualifiedKey()
+    {
+        Map<String, String> discs = map("a.Task|param", "1", "b.Task|param", "2");
+
+        assertTrue(matches(discs, map("b.Task|param", "2"), true));
+        assertFalse(matches(discs, map("b.Task|param", "1"), true));
+        assertFalse(matches(discs, map("c.Task|param", "1"), true));
+        assertTrue(matches(discs, map("c.Task|param", "1"), false));
+    }
+
+    @Test
+    public void testSimpleName()
+    {
+        Map<String, String> discs = map("a.Task|param", "1", "a.Task|other", "x");
+
+        assertTrue(matches(discs, map("param", "1", "other", "x"), true));
+        assertFalse(matches(discs, map("param", "2"), true));
+        assertFalse(matches(discs, map("am", "1"), true));
+        assertFalse(matches(discs, map("missing", "1"), true));
+        assertTrue(matches(discs, map("missing", "1"), false));
+    }
+
+    @Test
+    public void testFirstMatchingKeyDecides()
+    {
+        Map<String, String> discs = map("a.Task|param", "1", "b.Task|param", "2");
+
+        assertTrue(matches(discs, map("param", "1"), true));
+        assertFalse(matches(discs, map("param", "2"), true));
+    }
+
+    @Test
+    public void testSameAsImportUtil()
+    {
+        Map<String, String> discs = map("a.Task|param", "1", "param", "3");
+        Map<String, String> constraints = map("param", "3");
+
+        ConstraintMatcher matcher = new ConstraintMatcher(constraints, true);
+        assertTrue(matcher.matches(map("param", "3")));
+        assertFalse(matcher.matches(discs));
+        assertFalse(ImportUtil.matchConstraints(discs, constraints, true));
+    }
+
+    private boolean matches(Map<String, String> aDiscriminators, Map<String, String> aConstraints,
+            boolean aStrict)
+    {
+        return new ConstraintMatcher(aConstraints, aStrict).matches(aDiscriminators);
+    }
+
+    private Map<String, String> map(String... aKeyValues)
+    {
+        Map<String, String> map = new LinkedHashMap<String, String>();
+        for (int i = 0; i < aKeyValues.length; i += 2) {
+            map.put(aKeyValues[i], aKeyValues[i + 1]);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Value;
+
+import de.tudarmstadt.ukp.dkpro.lab.Lab;
+import de.tudarmstadt.ukp.dkpro.lab.engine.TaskContextFactory;
+import de.tudarmstadt.ukp.dkpro.lab.engine.TaskExecutionEngine;
+import de.tudarmstadt.ukp.dkpro.lab.task.Task;
+import de.tudarmstadt.ukp.dkpro.lab.task.impl.TaskBase;
+
+public class DefaultTaskExecutionServiceTest
+{
+    private static final String PROP_VALUE = "test.engine.value";
+
+    @Before
+    public void setup()
+    {
+        String path = "target/repository/" + getClass().getSimpleName();
+        System.setProperty("DKPRO_HOME", new File(path).getAbsolutePath());
+    }
+
+    @Test
+    public void testCreateEngine()
+    {
+        Lab lab = Lab.getInstance();
+        DefaultTaskExecutionService service = (DefaultTaskExecutionService) lab
+                .getTaskExecutionService();
+        service.registerEngine(TestTask.class, TestEngine.class);
+        try {
+            lab.setProperty(PROP_VALUE, "1");
+            TestEngine engine1 = (TestEngine) service.createEngine(new TestTask());
+            TestEngine engine2 = (TestEngine) service.createEngine(new TestSubTask());
+            assertNotSame(engine1, engine2);
+            assertEquals("1", engine1.value);
+            assertEquals("1", engine2.value);
+            assertSame(service.getContextFactory(), engine1.contextFactory);
+
+            // Changed properties are picked up by new engines
+            lab.setProperty(PROP_VALUE, "2");
+            TestEngine engine3 = (TestEngine) service.createEngine(new TestTask());
+            assertEquals("2", engine3.value);
+            assertEquals("1", engine1.value);
+        }
+        finally {
+            service.unregisterEngine(TestTask.class);
+        }
+    }
+
+    public static class TestTask
+        extends TaskBase
+    {
+        // Only used to select the engine
+    }
+
+    public static class TestSubTask
+        extends TestTask
+    {
+        // Resolved through the superclass
+    }
+
+    public static class TestEngine
+        implements TaskExecutionEngine
+    {
+        @Value("#{ @Properties['" + PROP_VALUE + "'] }")
+        private String value;
+
+        private TaskContextFactory contextFactory;
+
+        @Override
+        public String run(Task aConfiguration)
+        {
+            return null;
+        }
+
+        @Override
+        public void setContextFactory(TaskContextFactory aContextFactory)
+        {
+            contextFactory = aContextFactory;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+
+import de.tudarmstadt.ukp.dkpro.lab.Lab;
+import de.tudarmstadt.ukp.dkpro.lab.engine.ExecutionException;
+import de.tudarmstadt.ukp.dkpro.lab.engine.TaskContext;
+import de.tudarmstadt.ukp.dkpro.lab.reporting.BatchReportBase;
+import de.tudarmstadt.ukp.dkpro.lab.storage.StorageService;
+import de.tudarmstadt.ukp.dkpro.lab.storage.filesystem.FileSystemStorageService;
+import de.tudarmstadt.ukp.dkpro.lab.storage.filesystem.FileSystemWorkQueue;
+import de.tudarmstadt.ukp.dkpro.lab.storage.impl.PropertiesAdapter;
+import de.tudarmstadt.ukp.dkpro.lab.task.BatchTask;
+import de.tudarmstadt.ukp.dkpro.lab.task.Dimension;
+import de.tudarmstadt.ukp.dkpro.lab.task.Discriminator;
+import de.tudarmstadt.ukp.dkpro.lab.task.ParameterSpace;
+import de.tudarmstadt.ukp.dkpro.lab.task.Task;
+import de.tudarmstadt.ukp.dkpro.lab.task.impl.DefaultBatchTask;
+import de.tudarmstadt.ukp.dkpro.lab.task.impl.ExecutableTaskBase;
+
+/**
+ * Runs the partitions of a batch task in separate JVMs sharing the same storage root.
+ */
+public class PartitionedBatchTaskTest
+{
+    private static int reportedSubtasks;
+
+    private File home;
+    private String job;
+
+    @Rule
+    public TestName name = new TestName();
+
+    @Before
+    public void setup()
+    {
+        home = new File("target/repository/" + getClass().getSimpleName() + "/"
+                + name.getMethodName()).getAbsoluteFile();
+        System.setProperty("DKPRO_HOME", home.getPath());
+        FileUtils.deleteQuietly(home);
+        
+        // The storage root is fixed once the lab has been created, so the workers must use the
+        // same home as the lab in this JVM
+        home = getStorageRoot().getParentFile().getParentFile();
+        job = name.getMethodName() + "-" + System.currentTimeMillis();
+        reportedSubtasks = -1;
+    }
+
+    @After
+    public void teardown()
+    {
+        Lab.getInstance().setProperty(BatchTaskEngine.PROP_PARTITION_JOB, "");
+        Lab.getInstance().setProperty(BatchTaskEngine.PROP_PARTITIONS, "0");
+        Lab.getInstance().setProperty(BatchTaskEngine.PROP_PARTITION, "0");
+        Lab.getInstance().setProperty(BatchTaskEngine.PROP_MERGE_PARTITIONS, "false");
+    }
+
+    @Test(timeout = 120000)
+    public void testStaticPartitions()
+        throws Exception
+    {
+        Process p0 = fork("2", "0");
+        Process p1 = fork("2", "1");
+        assertEquals(0, p0.waitFor());
+        assertEquals(0, p1.waitFor());
+
+        String id = merge("2");
+
+        assertEquals(6, reportedSubtasks);
+        assertEquals(6, getExecutedValues(id).size());
+    }
+
+    @Test(timeout = 120000)
+    public void testWorkQueue()
+        throws Exception
+    {
+        List<Process> workers = new ArrayList<Process>();
+        for (int i = 0; i < 3; i++) {
+            workers.add(fork("0", "0"));
+        }
+        for (Process p : workers) {
+            assertEquals(0, p.waitFor());
+        }
+
+        String id = merge("0");
+
+        // Every configuration has been run exactly once by one of the workers
+        assertEquals(6, reportedSubtasks);
+        List<String> values = getExecutedValues(id);
+        assertEquals(6, values.size());
+        assertEquals(6, new HashSet<String>(values).size());
+        // The queue is removed once the job has been merged
+        assertFalse(new FileSystemWorkQueue(getStorageRoot(), job).getQueueFolder().exists());
+    }
+
+    @Test
+    public void testOrphanedWorkQueueItem()
+        throws Exception
+    {
+        Worker.main(new String[] { home.getPath(), job, "0", "0" });
+
+        // A configuration completed by a context which is not part of the job
+        new FileSystemWorkQueue(getStorageRoot(), job).complete("99-0", "Unknown-0");
+
+        try {
+            merge("0");
+            fail("Merge should fail because configuration 99-0 was not run by any partition");
+        }
+        catch (ExecutionException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("[99-0]"));
+        }
+    }
+
+    @Test
+    public void testMissingPartition()
+        throws Exception
+    {
+        Worker.main(new String[] { home.getPath(), job, "2", "0" });
+
+        try {
+            merge("2");
+            fail("Merge should fail because partition 1 is missing");
+        }
+        catch (Exception e) {
+            // Expected
+        }
+    }
+
+    private String merge(String aPartitions)
+        throws Exception
+    {
+        Lab.getInstance().setProperty(BatchTaskEngine.PROP_PARTITION_JOB, job);
+        Lab.getInstance().setProperty(BatchTaskEngine.PROP_PARTITIONS, aPartitions);
+        Lab.getInstance().setProperty(BatchTaskEngine.PROP_MERGE_PARTITIONS, "true");
+        return Lab.getInstance().run(Worker.createBatchTask());
+    }
+
+    private List<String> getExecutedValues(String aBatchId)
+    {
+        StorageService storage = Lab.getInstance().getStorageService();
+        String subtasks = storage.retrieveBinary(aBatchId, Task.PROPERTIES_KEY,
+                new PropertiesAdapter()).getMap().get(BatchTask.SUBTASKS_KEY);
+        List<String> values = new ArrayList<String>();
+        for (String id : subtasks.substring(1, subtasks.length() - 1).split(", ")) {
+            values.add(storage.retrieveBinary(id, "result.prop", new PropertiesAdapter())
+                    .getMap().get("x"));
+        }
+        return values;
+    }
+
+    private File getStorageRoot()
+    {
+        return ((FileSystemStorageService) Lab.getInstance().getStorageService())
+                .getStorageRoot();
+    }
+
+    private Process fork(String aPartitions, String aPartition)
+        throws Exception
+    {
+        List<String> command = new ArrayList<String>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Worker.class.getName());
+        command.addAll(Arrays.asList(home.getPath(), job, aPartitions, aPartition));
+        return new ProcessBuilder(command).inheritIO().start();
+    }
+
+    /**
+     * Runs one partition of the batch task.
+     */
+    public static class Worker
+    {
+        public static void main(String[] aArgs)
+            throws Exception
+        {
+            System.setProperty("DKPRO_HOME", aArgs[0]);
+            Lab.getInstance().setProperty(BatchTaskEngine.PROP_PARTITION_JOB, aArgs[1]);
+            Lab.getInstance().setProperty(BatchTaskEngine.PROP_PARTITIONS, aArgs[2]);
+            Lab.getInstance().setProperty(BatchTaskEngine.PROP_PARTITION, aArgs[3]);
+            Lab.getInstance().run(createBatchTask());
+        }
+
+        public static DefaultBatchTask createBatchTask()
+        {
+            DefaultBatchTask batchTask = new DefaultBatchTask();
+            batchTask.setType("PartitionedBatch");
+            batchTask.setParameterSpace(new ParameterSpace(Dimension.create("x", 1, 2, 3, 4,
+                    5, 6)));
+            batchTask.addTask(new SquareTask());
+            batchTask.addReport(SubtaskCountReport.class);
+            return batchTask;
+        }
+    }
+
+    public static class SquareTask
+        extends ExecutableTaskBase
+    {
+        @Discriminator
+        private int x;
+
+        @Override
+        public void execute(TaskContext aContext)
+            throws Exception
+        {
+            Properties result = new Properties();
+            result.setProperty("x", String.valueOf(x));
+            result.setProperty("square", String.valueOf(x * x));
+            aContext.storeBinary("result.prop", new PropertiesAdapter(result));
+        }
+    }
+
+    public static class SubtaskCountReport
+        extends BatchReportBase
+    {
+        @Override
+        public void execute()
+            throws Exception
+        {
+            Set<String> ids = new HashSet<String>(Arrays.asList(getSubtaskContextIds()));
+            reportedSubtasks = ids.size();
+        }
+    }
+}
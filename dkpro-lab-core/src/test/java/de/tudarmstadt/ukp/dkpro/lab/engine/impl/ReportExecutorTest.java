@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.dkpro.lab.engine.LifeCycleException;
+import de.tudarmstadt.ukp.dkpro.lab.engine.TaskContext;
+import de.tudarmstadt.ukp.dkpro.lab.logging.impl.DefaultLoggingService;
+import de.tudarmstadt.ukp.dkpro.lab.reporting.Report;
+import de.tudarmstadt.ukp.dkpro.lab.reporting.RunsAfter;
+
+public class ReportExecutorTest
+{
+    private static final List<String> completed = Collections
+            .synchronizedList(new ArrayList<String>());
+
+    private DefaultTaskContext context;
+
+    @Before
+    public void setup()
+    {
+        completed.clear();
+        context = new DefaultTaskContext(null);
+        context.getMetadata().setId("test");
+        context.setLoggingService(new DefaultLoggingService());
+    }
+
+    @Test
+    public void testDependencies()
+        throws Exception
+    {
+        new ReportExecutor(context, 4).execute(reports(ReportC.class, ReportB.class,
+                ReportA.class, ReportD.class));
+
+        assertEquals(4, completed.size());
+        assertTrue(completed.indexOf("A") < completed.indexOf("B"));
+        assertTrue(completed.indexOf("B") < completed.indexOf("C"));
+    }
+
+    @Test
+    public void testSequentialOrder()
+        throws Exception
+    {
+        new ReportExecutor(context, 1).execute(reports(ReportD.class, ReportC.class,
+                ReportB.class, ReportA.class));
+
+        assertEquals(Arrays.asList("A", "B", "C", "D"), completed);
+    }
+
+    @Test
+    public void testFailuresAreAggregated()
+    {
+        try {
+            new ReportExecutor(context, 2).execute(reports(FailingReport1.class,
+                    FailingReport2.class, AfterFailingReport.class, ReportA.class));
+            fail("Reports should have failed");
+        }
+        catch (LifeCycleException e) {
+            assertEquals(1, e.getSuppressed().length);
+            assertTrue(e.getMessage().contains(AfterFailingReport.class.getName()));
+        }
+
+        // Independent reports still run, but not those depending on a failed report
+        assertEquals(Arrays.asList("A"), completed);
+    }
+
+    @Test(expected = LifeCycleException.class)
+    public void testCycle()
+        throws Exception
+    {
+        new ReportExecutor(context, 2).execute(reports(CyclicReport1.class, CyclicReport2.class));
+    }
+
+    @SafeVarargs
+    private static List<Class<? extends Report>> reports(Class<? extends Report>... aReports)
+    {
+        return Arrays.asList(aReports);
+    }
+
+    public abstract static class RecordingReport
+        implements Report
+    {
+        @Override
+        public void setContext(TaskContext aContext)
+        {
+            // Not needed
+        }
+
+        @Override
+        public void execute()
+            throws Exception
+        {
+            // Give reports running concurrently a chance to overtake this one
+            Thread.sleep(20);
+            completed.add(getClass().getSimpleName().substring("Report".length()));
+        }
+    }
+
+    public static class ReportA
+        extends RecordingReport
+    {
+        // Runs first
+    }
+
+    @RunsAfter(ReportA.class)
+    public static class ReportB
+        extends RecordingReport
+    {
+        // Runs after A
+    }
+
+    @RunsAfter({ ReportA.class, ReportB.class })
+    public static class ReportC
+        extends RecordingReport
+    {
+        // Runs after A and B
+    }
+
+    public static class ReportD
+        extends RecordingReport
+    {
+        // Independent
+    }
+
+    public static class FailingReport1
+        extends RecordingReport
+    {
+        @Override
+        public void execute()
+        {
+            throw new IllegalStateException("Failure 1");
+        }
+    }
+
+    public static class FailingReport2
+        extends RecordingReport
+    {
+        @Override
+        public void execute()
+        {
+            throw new IllegalStateException("Failure 2");
+        }
+    }
+
+    @RunsAfter(FailingReport1.class)
+    public static class AfterFailingReport
+        extends RecordingReport
+    {
+        // Never runs
+    }
+
+    @RunsAfter(CyclicReport2.class)
+    public static class CyclicReport1
+        extends RecordingReport
+    {
+        // Never runs
+    }
+
+    @RunsAfter(CyclicReport1.class)
+    public static class CyclicReport2
+        extends RecordingReport
+    {
+        // Never runs
+    }
+}
@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class SequentialIdGeneratorTest
+{
+    @Test
+    public void testSortedAndUnique()
+        throws Exception
+    {
+        final SequentialIdGenerator generator = new SequentialIdGenerator(42);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(new Callable<List<String>>()
+            {
+                @Override
+                public List<String> call()
+                {
+                    List<String> ids = new ArrayList<String>();
+                    for (int i = 0; i < 10000; i++) {
+                        ids.add(generator.nextId());
+                    }
+                    return ids;
+                }
+            }));
+        }
+
+        Set<String> all = new HashSet<String>();
+        for (Future<List<String>> future : futures) {
+            List<String> ids = future.get();
+            // Ids of the same thread are sorted in the order they were generated
+            for (int i = 1; i < ids.size(); i++) {
+                assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0);
+            }
+            for (String id : ids) {
+                assertEquals(23, id.length());
+                all.add(id);
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(40000, all.size());
+    }
+
+    @Test
+    public void testDifferentNodes()
+    {
+        String id1 = new SequentialIdGenerator(1).nextId();
+        String id2 = new SequentialIdGenerator(2).nextId();
+        assertFalse(id1.equals(id2));
+        assertFalse(new SequentialIdGenerator().nextId().equals(
+                new SequentialIdGenerator().nextId()));
+    }
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.reporting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.dkpro.lab.task.TaskContextMetadata;
+
+public class ExecutionProfileTest
+{
+    @Test
+    public void testProfile()
+    {
+        TaskContextMetadata a = task("A", 1000, 1100);
+        TaskContextMetadata b = task("B", 1000, 1050);
+        TaskContextMetadata c = task("C", 1100, 1200, "A");
+        TaskContextMetadata d = task("D", 1250, 1300, "B", "C");
+        // Reused from an earlier run, not part of the profile
+        TaskContextMetadata e = task("E", 0, 10);
+        c.getImports().put("unknown", "task-id://E/DATA");
+
+        ExecutionProfile profile = new ExecutionProfile(Arrays.asList(a, b, c, d), 1000);
+
+        List<String> path = new ArrayList<String>();
+        for (TaskContextMetadata task : profile.getCriticalPath()) {
+            path.add(task.getId());
+        }
+        assertEquals(Arrays.asList("A", "C", "D"), path);
+        assertFalse(profile.isCritical("B"));
+        assertFalse(profile.getDependencies("C").contains(e.getId()));
+        assertEquals(250, profile.getCriticalPathTime());
+
+        assertEquals(300, profile.getMakespan());
+        assertEquals(300, profile.getBusyTime());
+        assertEquals(2, profile.getPeakConcurrency());
+        assertEquals(0.5, profile.getUtilization(), 0.0001);
+        assertEquals(0, profile.getQueueingDelay("C"));
+        assertEquals(50, profile.getQueueingDelay("D"));
+        assertEquals(50, profile.getTotalQueueingDelay());
+        assertTrue(profile.getDependencies("D").containsAll(Arrays.asList("B", "C")));
+    }
+
+    private TaskContextMetadata task(String aId, long aStart, long aEnd, String... aDependencies)
+    {
+        TaskContextMetadata meta = new TaskContextMetadata();
+        meta.setId(aId);
+        meta.setType("Type" + aId);
+        meta.setStart(aStart);
+        meta.setEnd(aEnd);
+        for (String dependency : aDependencies) {
+            meta.getImports().put("DATA" + dependency, "task-id://" + dependency + "/DATA");
+        }
+        return meta;
+    }
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.storage.filesystem;
+
+import static de.tudarmstadt.ukp.dkpro.lab.task.TaskContextMetadata.METADATA_KEY;
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.tudarmstadt.ukp.dkpro.lab.task.TaskContextMetadata;
+
+public class CachedFileSystemStorageServiceTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CachedFileSystemStorageService storage;
+
+    @Before
+    public void setup()
+    {
+        storage = new CachedFileSystemStorageService();
+        storage.setStorageRoot(folder.getRoot());
+    }
+
+    @Test
+    public void testEviction()
+    {
+        storage.setMaxEntries(2);
+        for (String id : new String[] { "ctx1", "ctx2", "ctx3" }) {
+            store(id, "TypeA");
+        }
+        assertEquals(1, storage.getEvictionCount());
+
+        // ctx1 was evicted and has to be loaded again
+        assertEquals("TypeA", storage.getContext("ctx3").getType());
+        assertEquals("TypeA", storage.getContext("ctx1").getType());
+        assertEquals(1, storage.getHitCount());
+        assertEquals(1, storage.getMissCount());
+    }
+
+    @Test
+    public void testNotFoundIsCached()
+    {
+        Map<String, String> constraints = new HashMap<String, String>();
+
+        assertEquals(0, storage.getContexts("TypeA", constraints).size());
+        assertEquals(0, storage.getContexts("TypeA", constraints).size());
+        assertEquals(1, storage.getNotFoundHitCount());
+
+        // Storing a context invalidates the cached negative result
+        store("ctx1", "TypeA");
+        assertEquals(1, storage.getContexts("TypeA", constraints).size());
+        assertEquals(1, storage.getNotFoundHitCount());
+    }
+
+    private void store(String aId, String aType)
+    {
+        TaskContextMetadata meta = new TaskContextMetadata();
+        meta.setId(aId);
+        meta.setType(aType);
+        storage.storeBinary(aId, METADATA_KEY, meta);
+    }
+}
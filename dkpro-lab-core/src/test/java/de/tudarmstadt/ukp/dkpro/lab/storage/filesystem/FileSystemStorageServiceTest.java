@@ -0,0 +1,523 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.storage.filesystem;
+
+import static de.tudarmstadt.ukp.dkpro.lab.task.Task.DISCRIMINATORS_KEY;
+import static de.tudarmstadt.ukp.dkpro.lab.task.Task.DISCRIMINATOR_FINGERPRINT_KEY;
+import static de.tudarmstadt.ukp.dkpro.lab.task.TaskContextMetadata.METADATA_KEY;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import de.tudarmstadt.ukp.dkpro.lab.storage.impl.CopyStreamReader;
+import de.tudarmstadt.ukp.dkpro.lab.storage.impl.DeflateCodec;
+import de.tudarmstadt.ukp.dkpro.lab.storage.impl.GzipCodec;
+import de.tudarmstadt.ukp.dkpro.lab.storage.impl.PropertiesAdapter;
+import de.tudarmstadt.ukp.dkpro.lab.storage.impl.SerializedObjectAdapter;
+import de.tudarmstadt.ukp.dkpro.lab.storage.impl.StringAdapter;
+import de.tudarmstadt.ukp.dkpro.lab.task.TaskContextMetadata;
+import de.tudarmstadt.ukp.dkpro.lab.task.impl.TaskBase;
+
+public class FileSystemStorageServiceTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+
+    @Before
+    public void setup()
+    {
+        root = new File(folder.getRoot(), "repository");
+    }
+
+    @Test
+    public void testIndexIsMaintained()
+    {
+        FileSystemStorageService storage = newStorage();
+        store(storage, "ctx1", "TypeA", 1000, "param", "1");
+        store(storage, "ctx2", "TypeA", 2000, "param", "2");
+        store(storage, "ctx3", "TypeA", 3000, "param", "1");
+        store(storage, "ctx4", "TypeB", 4000, "param", "1");
+
+        assertEquals(ids("ctx3", "ctx1"), getIds(storage, "TypeA", "param", "1"));
+        assertEquals(ids("ctx3", "ctx2", "ctx1"), getIds(storage, "TypeA"));
+
+        storage.delete("ctx3");
+        assertEquals(ids("ctx1"), getIds(storage, "TypeA", "param", "1"));
+        assertTrue(new File(root, ContextIndex.INDEX_FILE).isFile());
+
+        // A second service on the same storage root sees the same contexts
+        assertEquals(ids("ctx1"), getIds(newStorage(), "TypeA", "param", "1"));
+    }
+
+    @Test
+    public void testIndexIsRebuilt()
+    {
+        FileSystemStorageService storage = newStorage();
+        store(storage, "ctx1", "TypeA", 1000, "param", "1");
+        store(storage, "ctx2", "TypeA", 2000, "param", "1");
+
+        // Missing index
+        new File(root, ContextIndex.INDEX_FILE).delete();
+        assertEquals(ids("ctx2", "ctx1"), getIds(newStorage(), "TypeA", "param", "1"));
+
+        // Stale index - context removed and added behind the back of the service
+        File otherRoot = new File(folder.getRoot(), "other");
+        FileSystemStorageService other = new FileSystemStorageService();
+        other.setStorageRoot(otherRoot);
+        store(other, "ctx3", "TypeA", 3000, "param", "1");
+        assertTrue(new File(otherRoot, "ctx3").renameTo(new File(root, "ctx3")));
+        assertTrue(new File(new File(root, "ctx1"), METADATA_KEY).delete());
+
+        assertEquals(ids("ctx3", "ctx2"), getIds(newStorage(), "TypeA", "param", "1"));
+    }
+
+    @Test
+    public void testCompactionIsDetected()
+    {
+        FileSystemStorageService storage = newStorage();
+        store(storage, "ctx1", "TypeA", 1000);
+        store(storage, "ctx2", "TypeA", 2000);
+
+        ContextIndex index = new ContextIndex(root);
+        assertEquals(2, index.getContexts("TypeA").size());
+
+        // Another process compacts the journal, which then grows beyond the length it had before
+        new ContextIndex(root).rebuild();
+        for (int i = 3; i <= 8; i++) {
+            store(storage, "ctx" + i, "TypeA", i * 1000);
+        }
+        storage.delete("ctx1");
+
+        List<String> ids = new ArrayList<String>();
+        for (ContextIndex.IndexEntry e : index.getContexts("TypeA")) {
+            ids.add(e.getId());
+        }
+        assertEquals(ids("ctx8", "ctx7", "ctx6", "ctx5", "ctx4", "ctx3", "ctx2"), ids);
+    }
+
+    @Test
+    public void testJournalIsCompacted()
+        throws Exception
+    {
+        FileSystemStorageService storage = newStorage();
+        store(storage, "ctx1", "TypeA", 1000);
+        store(storage, "ctx2", "TypeA", 2000);
+
+        // Every update of a context makes its previous line in the journal obsolete
+        ContextIndex index = new ContextIndex(root);
+        for (int i = 0; i < 3000; i++) {
+            index.add("ctx1");
+        }
+
+        File journal = new File(root, ContextIndex.INDEX_FILE);
+        assertTrue(Files.readAllLines(journal.toPath(), Charset.forName("UTF-8")).size() < 1100);
+        assertEquals(2, new ContextIndex(root).getContexts("TypeA").size());
+    }
+
+    @Test
+    public void testConcurrentIndexUpdates()
+        throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Object>> futures = new ArrayList<Future<Object>>();
+        for (int t = 0; t < 4; t++) {
+            final int thread = t;
+            futures.add(executor.submit(new Callable<Object>()
+            {
+                @Override
+                public Object call()
+                {
+                    // Each thread acts like a separate process with its own index
+                    FileSystemStorageService storage = newStorage();
+                    for (int i = 0; i < 25; i++) {
+                        store(storage, "ctx-" + thread + "-" + i, "TypeA", i + 1);
+                        if (i % 10 == 0) {
+                            new ContextIndex(root).rebuild();
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<Object> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // No update got lost and no temporary journal was left behind
+        ContextIndex index = new ContextIndex(root);
+        assertEquals(100, index.getContexts("TypeA").size());
+        File[] tmpFiles = root.listFiles();
+        for (File file : tmpFiles) {
+            assertTrue(file.getName(), !file.getName().endsWith(".tmp"));
+        }
+    }
+
+    @Test
+    public void testFingerprintLookup()
+    {
+        FileSystemStorageService storage = newStorage();
+        String fp1 = storeWithFingerprint(storage, "ctx1", "TypeA", 1000, "param", "1");
+        storeWithFingerprint(storage, "ctx2", "TypeA", 2000, "param", "2");
+        // Contexts stored by an older version without a fingerprint
+        store(storage, "ctx3", "TypeA", 3000, "param", "1");
+        store(storage, "ctx4", "TypeA", 4000, "param", "2");
+
+        assertEquals(ids("ctx3", "ctx1"), getIdsByFingerprint(storage, "TypeA", fp1, "param",
+                "1"));
+        assertEquals(ids(), getIdsByFingerprint(storage, "TypeB", fp1, "param", "1"));
+
+        // The fingerprints are persisted in the index and restored when it is rebuilt
+        assertEquals(ids("ctx3", "ctx1"), getIdsByFingerprint(newStorage(), "TypeA", fp1,
+                "param", "1"));
+        new File(root, ContextIndex.INDEX_FILE).delete();
+        assertEquals(ids("ctx3", "ctx1"), getIdsByFingerprint(newStorage(), "TypeA", fp1,
+                "param", "1"));
+    }
+
+    @Test
+    public void testDeduplication()
+        throws Exception
+    {
+        FileSystemStorageService storage = newStorage();
+        storage.setDeduplicate(true);
+
+        byte[] data = new byte[(int) BlobStore.MIN_SIZE * 2];
+        Arrays.fill(data, (byte) 'x');
+        storage.storeBinary("ctx1", "data.bin", new ByteArrayInputStream(data));
+        storage.storeBinary("ctx2", "data.bin", new ByteArrayInputStream(data));
+        storage.storeBinary("ctx3", "other.txt", new StringAdapter("other"));
+
+        Path file1 = storage.locateKey("ctx1", "data.bin").toPath();
+        Path file2 = storage.locateKey("ctx2", "data.bin").toPath();
+        assertTrue(Files.isSameFile(file1, file2));
+        assertTrue(Files.isWritable(file1));
+        assertArrayEquals(data, Files.readAllBytes(file2));
+
+        // The blob is still used by the second context
+        storage.delete("ctx1");
+        assertEquals(0, storage.collectGarbage());
+        assertArrayEquals(data, Files.readAllBytes(file2));
+
+        // Now it is not used anymore, but it is only removed once enough contexts are deleted
+        storage.setCollectGarbageInterval(2);
+        storage.delete("ctx2");
+        assertEquals(1, new File(root, BlobStore.BLOB_FOLDER).listFiles()[0].list().length);
+        storage.delete("ctx3");
+        assertEquals(0, new File(root, BlobStore.BLOB_FOLDER).listFiles()[0].list().length);
+    }
+
+    @Test
+    public void testDeduplicatedCopy()
+        throws Exception
+    {
+        FileSystemStorageService storage = newStorage();
+
+        byte[] data = new byte[(int) BlobStore.MIN_SIZE * 2];
+        Arrays.fill(data, (byte) 'x');
+        File source = new File(folder.getRoot(), "source");
+        source.mkdirs();
+        Files.write(new File(source, "data.bin").toPath(), data);
+
+        File copy1 = new File(folder.getRoot(), "copy1");
+        File copy2 = new File(folder.getRoot(), "copy2");
+        storage.getBlobStore().copy(source, copy1);
+        storage.getBlobStore().copy(source, copy2);
+
+        // The copies share their content, but not with the source
+        Path file = new File(source, "data.bin").toPath();
+        Path file1 = new File(copy1, "data.bin").toPath();
+        Path file2 = new File(copy2, "data.bin").toPath();
+        assertTrue(Files.isSameFile(file1, file2));
+        assertFalse(Files.isSameFile(file, file1));
+        assertTrue(Files.isWritable(file));
+        assertArrayEquals(data, Files.readAllBytes(file2));
+    }
+
+    @Test
+    public void testChannelAccess()
+        throws Exception
+    {
+        FileSystemStorageService storage = newStorage();
+        storage.storeBinary("ctx1", "data.txt", new StringAdapter("Hello world"));
+
+        MappedByteBuffer buffer = storage.retrieveMapped("ctx1", "data.txt");
+        assertEquals(11, buffer.remaining());
+        assertEquals('w', buffer.get(6));
+
+        try (FileChannel channel = storage.retrieveChannel("ctx1", "data.txt")) {
+            assertEquals(11, channel.size());
+        }
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        storage.retrieveBinary("ctx1", "data.txt", new CopyStreamReader(bos));
+        assertEquals("Hello world", bos.toString("UTF-8"));
+
+        File copy = new File(folder.getRoot(), "copy.txt");
+        try (FileOutputStream fos = new FileOutputStream(copy)) {
+            storage.retrieveBinary("ctx1", "data.txt", new CopyStreamReader(fos));
+        }
+        assertEquals("Hello world", new String(Files.readAllBytes(copy.toPath()), "UTF-8"));
+
+        assertEquals("Hello world",
+                storage.retrieveBinary("ctx1", "data.txt", new StringAdapter()).getString());
+    }
+
+    @Test
+    public void testCompression()
+        throws Exception
+    {
+        FileSystemStorageService storage = newStorage();
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append("Hello world ");
+        }
+        String text = sb.toString();
+
+        // Only GZIP is used by default
+        storage.storeBinary("ctx1", "plain.txt.deflate", new StringAdapter(text));
+        assertEquals(text.length(), storage.locateKey("ctx1", "plain.txt.deflate").length());
+
+        storage.getCompressionCodecs().register(new GzipCodec(Deflater.BEST_SPEED));
+        storage.getCompressionCodecs().register(new DeflateCodec());
+        storage.getCompressionCodecs().register(new DeflateCodec(".z", Deflater.BEST_COMPRESSION));
+
+        for (String key : new String[] { "data.txt.gz", "data.txt.deflate", "data.txt.z" }) {
+            storage.storeBinary("ctx1", key, new StringAdapter(text));
+            assertTrue(key, storage.locateKey("ctx1", key).length() < text.length() / 10);
+            assertEquals(text, storage.retrieveBinary("ctx1", key, new StringAdapter())
+                    .getString());
+        }
+
+        // GZIP data remains readable by other tools
+        try (GZIPInputStream is = new GZIPInputStream(Files.newInputStream(storage.locateKey(
+                "ctx1", "data.txt.gz").toPath()))) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            new CopyStreamReader(bos).read(is);
+            assertEquals(text, bos.toString("UTF-8"));
+        }
+
+        // Compressed and uncompressed objects are both read transparently
+        SerializedObjectAdapter<String> compressed = SerializedObjectAdapter.wrap(text);
+        compressed.setCompressionLevel(Deflater.BEST_SPEED);
+        storage.storeBinary("ctx1", "compressed.ser", compressed);
+        storage.storeBinary("ctx1", "plain.ser", SerializedObjectAdapter.wrap(text));
+        assertTrue(storage.locateKey("ctx1", "compressed.ser").length() < storage.locateKey(
+                "ctx1", "plain.ser").length() / 10);
+        for (String key : new String[] { "compressed.ser", "plain.ser" }) {
+            assertEquals(text, storage.retrieveBinary("ctx1", key,
+                    new SerializedObjectAdapter<String>()).getObject());
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testReaderWakesUpWhenKeyIsStored()
+        throws Exception
+    {
+        final FileSystemStorageService storage = newStorage();
+        storage.setMissingKeyTimeout(60000);
+        storage.storeBinary("ctx1", "first.txt", new StringAdapter("first"));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> reader = executor.submit(new Callable<String>()
+            {
+                @Override
+                public String call()
+                {
+                    return storage.retrieveBinary("ctx1", "second.txt", new StringAdapter())
+                            .getString();
+                }
+            });
+
+            Thread.sleep(200);
+            storage.storeBinary("ctx1", "second.txt", new StringAdapter("second"));
+            assertEquals("second", reader.get());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testReaderFailsWhenContextIsDeleted()
+        throws Exception
+    {
+        final FileSystemStorageService storage = newStorage();
+        storage.setMissingKeyTimeout(60000);
+        storage.storeBinary("ctx1", "first.txt", new StringAdapter("first"));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> reader = executor.submit(new Callable<String>()
+            {
+                @Override
+                public String call()
+                {
+                    return storage.retrieveBinary("ctx1", "second.txt", new StringAdapter())
+                            .getString();
+                }
+            });
+
+            Thread.sleep(200);
+            storage.delete("ctx1");
+            reader.get();
+            fail("Reader should have failed");
+        }
+        catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof DataAccessResourceFailureException);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testMissingKeyInCompleteContextFailsFast()
+    {
+        FileSystemStorageService storage = newStorage();
+        storage.setMissingKeyTimeout(60000);
+        store(storage, "ctx1", "TypeA", 1000);
+
+        try {
+            storage.retrieveBinary("ctx1", "missing.txt", new StringAdapter());
+            fail("Missing key should not be found");
+        }
+        catch (DataAccessResourceFailureException e) {
+            // Expected
+        }
+
+        try {
+            storage.retrieveBinary("ctx2", "missing.txt", new StringAdapter());
+            fail("Missing context should not be found");
+        }
+        catch (DataAccessResourceFailureException e) {
+            // Expected
+        }
+    }
+
+    private FileSystemStorageService newStorage()
+    {
+        FileSystemStorageService storage = new FileSystemStorageService();
+        storage.setStorageRoot(root);
+        return storage;
+    }
+
+    private void store(FileSystemStorageService aStorage, String aId, String aType, long aEnd,
+            String... aDiscriminators)
+    {
+        Map<String, String> discs = new HashMap<String, String>();
+        for (int i = 0; i < aDiscriminators.length; i += 2) {
+            discs.put(aDiscriminators[i], aDiscriminators[i + 1]);
+        }
+        aStorage.storeBinary(aId, DISCRIMINATORS_KEY, new PropertiesAdapter(discs));
+
+        TaskContextMetadata meta = new TaskContextMetadata();
+        meta.setId(aId);
+        meta.setType(aType);
+        meta.setStart(aEnd - 1);
+        meta.setEnd(aEnd);
+        aStorage.storeBinary(aId, METADATA_KEY, meta);
+    }
+
+    private String storeWithFingerprint(FileSystemStorageService aStorage, String aId,
+            String aType, long aEnd, String... aDiscriminators)
+    {
+        Map<String, String> discs = new HashMap<String, String>();
+        for (int i = 0; i < aDiscriminators.length; i += 2) {
+            discs.put(aDiscriminators[i], aDiscriminators[i + 1]);
+        }
+        String fingerprint = TaskBase.fingerprint(discs);
+        aStorage.storeBinary(aId, DISCRIMINATOR_FINGERPRINT_KEY, new StringAdapter(fingerprint,
+                "UTF-8"));
+        store(aStorage, aId, aType, aEnd, aDiscriminators);
+        return fingerprint;
+    }
+
+    private List<String> getIdsByFingerprint(FileSystemStorageService aStorage, String aType,
+            String aFingerprint, String... aConstraints)
+    {
+        Map<String, String> constraints = new HashMap<String, String>();
+        for (int i = 0; i < aConstraints.length; i += 2) {
+            constraints.put(aConstraints[i], aConstraints[i + 1]);
+        }
+
+        List<String> result = new ArrayList<String>();
+        for (TaskContextMetadata meta : aStorage.getContexts(aType, aFingerprint, constraints)) {
+            result.add(meta.getId());
+        }
+        return result;
+    }
+
+    private List<String> getIds(FileSystemStorageService aStorage, String aType,
+            String... aConstraints)
+    {
+        Map<String, String> constraints = new HashMap<String, String>();
+        for (int i = 0; i < aConstraints.length; i += 2) {
+            constraints.put(aConstraints[i], aConstraints[i + 1]);
+        }
+
+        List<String> result = new ArrayList<String>();
+        for (TaskContextMetadata meta : aStorage.getContexts(aType, constraints)) {
+            result.add(meta.getId());
+        }
+        return result;
+    }
+
+    private List<String> ids(String... aIds)
+    {
+        List<String> result = new ArrayList<String>();
+        for (String id : aIds) {
+            result.add(id);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.storage.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.dkpro.lab.storage.StreamReader;
+import de.tudarmstadt.ukp.dkpro.lab.storage.StreamWriter;
+
+/**
+ * Compares the adapters on a large map of feature statistics. Each adapter writes and reads the
+ * map a few times to warm up the JIT before the measured iterations. This is a benchmark which
+ * only prints the timings, so it is not run as part of the build.
+ */
+public class AdapterPerformanceTest
+{
+    private static final int FEATURES = 100000;
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 5;
+
+    private abstract static class Case
+    {
+        final String name;
+
+        Case(String aName)
+        {
+            name = aName;
+        }
+
+        abstract StreamWriter writer();
+
+        abstract StreamReader reader();
+
+        abstract Map<String, Double> result(StreamReader aReader);
+    }
+
+    @Ignore("Benchmark - run manually")
+    @Test
+    public void testAdapters()
+        throws Exception
+    {
+        final HashMap<String, Double> features = new HashMap<String, Double>();
+        for (int i = 0; i < FEATURES; i++) {
+            features.put("feature_" + i, i * 0.25);
+        }
+
+        Case[] cases = { new Case("SerializedObjectAdapter")
+        {
+            @Override
+            StreamWriter writer()
+            {
+                return SerializedObjectAdapter.wrap(features);
+            }
+
+            @Override
+            StreamReader reader()
+            {
+                return new SerializedObjectAdapter<Map<String, Double>>();
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            Map<String, Double> result(StreamReader aReader)
+            {
+                return ((SerializedObjectAdapter<Map<String, Double>>) aReader).getObject();
+            }
+        }, new Case("PropertiesAdapter")
+        {
+            @Override
+            StreamWriter writer()
+            {
+                Map<String, String> map = new HashMap<String, String>();
+                for (Entry<String, Double> e : features.entrySet()) {
+                    map.put(e.getKey(), String.valueOf(e.getValue()));
+                }
+                return new PropertiesAdapter(map);
+            }
+
+            @Override
+            StreamReader reader()
+            {
+                return new PropertiesAdapter();
+            }
+
+            @Override
+            Map<String, Double> result(StreamReader aReader)
+            {
+                Map<String, Double> map = new HashMap<String, Double>();
+                for (Entry<String, String> e : ((PropertiesAdapter) aReader).getMap().entrySet()) {
+                    map.put(e.getKey(), Double.valueOf(e.getValue()));
+                }
+                return map;
+            }
+        }, new Case("StringAdapter")
+        {
+            @Override
+            StreamWriter writer()
+            {
+                StringBuilder sb = new StringBuilder();
+                for (Entry<String, Double> e : features.entrySet()) {
+                    sb.append(e.getKey()).append('\t').append(e.getValue()).append('\n');
+                }
+                return new StringAdapter(sb.toString());
+            }
+
+            @Override
+            StreamReader reader()
+            {
+                return new StringAdapter();
+            }
+
+            @Override
+            Map<String, Double> result(StreamReader aReader)
+            {
+                Map<String, Double> map = new HashMap<String, Double>();
+                for (String line : ((StringAdapter) aReader).getString().split("\n")) {
+                    int tab = line.indexOf('\t');
+                    map.put(line.substring(0, tab), Double.valueOf(line.substring(tab + 1)));
+                }
+                return map;
+            }
+        }, new Case("BinaryAdapter")
+        {
+            @Override
+            StreamWriter writer()
+            {
+                return BinaryAdapter.wrap(features);
+            }
+
+            @Override
+            StreamReader reader()
+            {
+                return new BinaryAdapter<Map<String, Double>>();
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            Map<String, Double> result(StreamReader aReader)
+            {
+                return ((BinaryAdapter<Map<String, Double>>) aReader).getObject();
+            }
+        } };
+
+        Map<String, Integer> sizes = new LinkedHashMap<String, Integer>();
+        for (Case c : cases) {
+            long writeTime = 0;
+            long readTime = 0;
+            byte[] data = null;
+            for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+                long start = System.nanoTime();
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                c.writer().write(bos);
+                data = bos.toByteArray();
+                long written = System.nanoTime();
+                StreamReader reader = c.reader();
+                reader.read(new ByteArrayInputStream(data));
+                Map<String, Double> result = c.result(reader);
+                long read = System.nanoTime();
+
+                assertEquals(features, result);
+                if (i >= WARMUP) {
+                    writeTime += written - start;
+                    readTime += read - written;
+                }
+            }
+            sizes.put(c.name, data.length);
+            System.out.printf("%-25s write %6d ms  read %6d ms  size %9d bytes%n", c.name,
+                    writeTime / ITERATIONS / 1000000, readTime / ITERATIONS / 1000000,
+                    data.length);
+        }
+
+        assertTrue(sizes.get("BinaryAdapter") < sizes.get("SerializedObjectAdapter"));
+    }
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.storage.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.dkpro.lab.storage.StreamReader;
+import de.tudarmstadt.ukp.dkpro.lab.storage.StreamWriter;
+
+public class BinaryAdapterTest
+{
+    @Test
+    public void testBuiltInTypes()
+        throws Exception
+    {
+        Map<String, Object> data = new LinkedHashMap<String, Object>();
+        data.put("boolean", true);
+        data.put("int", -123456);
+        data.put("long", Long.MIN_VALUE);
+        data.put("double", 0.5d);
+        data.put("float", 1.5f);
+        data.put("char", 'x');
+        data.put("string", "Hällo wörld");
+        data.put("null", null);
+        data.put("list", new ArrayList<Object>(Arrays.asList(1, "two", 3.0)));
+        data.put("set", new LinkedHashSet<String>(Arrays.asList("b", "a")));
+        TreeMap<String, Integer> sorted = new TreeMap<String, Integer>();
+        sorted.put("z", 1);
+        sorted.put("a", 2);
+        data.put("sorted", sorted);
+
+        Map<String, Object> copy = roundTrip(new BinaryAdapter<Map<String, Object>>(data),
+                new BinaryAdapter<Map<String, Object>>()).getObject();
+
+        assertEquals(data, copy);
+        assertEquals(new ArrayList<String>(data.keySet()), new ArrayList<String>(copy.keySet()));
+        assertTrue(copy.get("sorted") instanceof TreeMap);
+
+        int[] ints = { 0, -1, Integer.MAX_VALUE, Integer.MIN_VALUE };
+        assertArrayEquals(ints, roundTrip(BinaryAdapter.wrap(ints), new BinaryAdapter<int[]>())
+                .getObject());
+    }
+
+    @Test
+    public void testRegisteredType()
+        throws Exception
+    {
+        BinaryAdapter<List<Point>> writer = new BinaryAdapter<List<Point>>(
+                Arrays.asList(new Point(1, 2), new Point(-3, 4)));
+        Point.register(writer.getFormat());
+        BinaryAdapter<List<Point>> reader = new BinaryAdapter<List<Point>>();
+        Point.register(reader.getFormat());
+
+        List<Point> points = roundTrip(writer, reader).getObject();
+        assertEquals(2, points.size());
+        assertEquals(-3, points.get(1).x);
+        assertEquals(4, points.get(1).y);
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnregisteredType()
+        throws Exception
+    {
+        BinaryAdapter.wrap(new Point(1, 2)).write(new ByteArrayOutputStream());
+    }
+
+    @Test
+    public void testSequence()
+        throws Exception
+    {
+        // Elements are generated while writing and counted while reading
+        Iterable<Integer> source = new Iterable<Integer>()
+        {
+            @Override
+            public Iterator<Integer> iterator()
+            {
+                return new Iterator<Integer>()
+                {
+                    private int next = 0;
+
+                    @Override
+                    public boolean hasNext()
+                    {
+                        return next < 100000;
+                    }
+
+                    @Override
+                    public Integer next()
+                    {
+                        return next++;
+                    }
+
+                    @Override
+                    public void remove()
+                    {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+
+        final long[] sum = new long[1];
+        roundTrip(new BinarySequenceAdapter<Integer>(source), new BinarySequenceAdapter<Integer>()
+        {
+            @Override
+            protected void element(Integer aElement)
+            {
+                sum[0] += aElement;
+            }
+        });
+        assertEquals(99999L * 100000L / 2, sum[0]);
+
+        BinarySequenceAdapter<String> reader = roundTrip(new BinarySequenceAdapter<String>(
+                Arrays.asList("a", null, "c")), new BinarySequenceAdapter<String>());
+        assertEquals(Arrays.asList("a", null, "c"), reader.getElements());
+    }
+
+    private <T extends StreamReader> T roundTrip(StreamWriter aWriter, T aReader)
+        throws Exception
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        aWriter.write(bos);
+        aReader.read(new ByteArrayInputStream(bos.toByteArray()));
+        return aReader;
+    }
+
+    static class Point
+    {
+        final int x;
+        final int y;
+
+        Point(int aX, int aY)
+        {
+            x = aX;
+            y = aY;
+        }
+
+        static void register(BinaryFormat aFormat)
+        {
+            aFormat.register(Point.class, new BinaryFormat.Serializer<Point>()
+            {
+                @Override
+                public void write(BinaryFormat aFmt, DataOutput aOut, Point aValue)
+                    throws IOException
+                {
+                    aOut.writeInt(aValue.x);
+                    aOut.writeInt(aValue.y);
+                }
+
+                @Override
+                public Point read(BinaryFormat aFmt, DataInput aIn)
+                    throws IOException
+                {
+                    return new Point(aIn.readInt(), aIn.readInt());
+                }
+            });
+        }
+    }
+}
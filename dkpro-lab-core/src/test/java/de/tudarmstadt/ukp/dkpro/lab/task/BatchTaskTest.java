@@ -18,8 +18,13 @@
 package de.tudarmstadt.ukp.dkpro.lab.task;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.Assert;
@@ -29,10 +34,17 @@ import org.junit.Test;
 import org.junit.rules.TestName;
 
 import de.tudarmstadt.ukp.dkpro.lab.Lab;
+import de.tudarmstadt.ukp.dkpro.lab.engine.ContextIdGenerator;
 import de.tudarmstadt.ukp.dkpro.lab.engine.TaskContext;
+import de.tudarmstadt.ukp.dkpro.lab.engine.impl.BatchTaskEngine;
+import de.tudarmstadt.ukp.dkpro.lab.engine.impl.DefaultLifeCycleManager;
+import de.tudarmstadt.ukp.dkpro.lab.engine.impl.DefaultTaskContextFactory;
+import de.tudarmstadt.ukp.dkpro.lab.engine.impl.SequentialIdGenerator;
+import de.tudarmstadt.ukp.dkpro.lab.reporting.ReportBase;
 import de.tudarmstadt.ukp.dkpro.lab.storage.impl.PropertiesAdapter;
 import de.tudarmstadt.ukp.dkpro.lab.task.impl.DefaultBatchTask;
 import de.tudarmstadt.ukp.dkpro.lab.task.impl.ExecutableTaskBase;
+import de.tudarmstadt.ukp.dkpro.lab.task.impl.SuccessiveHalvingStrategy;
 
 public class BatchTaskTest
 {
@@ -217,6 +229,343 @@ public class BatchTaskTest
         Lab.getInstance().run(batchTask);
     }
 
+    @Test
+    public void testParallelConfigurations()
+        throws Exception
+    {
+        Dimension<String> dim = Dimension.create("param", "1", "2", "3", "4", "5", "6");
+
+        ParameterSpace pSpace = new ParameterSpace(dim);
+
+        Task producer = new ExecutableTaskBase()
+        {
+            @Discriminator
+            private String param;
+
+            @Override
+            public void execute(TaskContext aContext)
+                throws Exception
+            {
+                Properties data = new Properties();
+                data.setProperty("param", param);
+
+                aContext.storeBinary("DATA", new PropertiesAdapter(data));
+            }
+        };
+
+        Task consumer = new ExecutableTaskBase()
+        {
+            @Discriminator
+            private String param;
+
+            @Override
+            public void execute(TaskContext aContext)
+                throws Exception
+            {
+                // The subtasks are shared by all configurations, so make sure the data matches
+                // the configuration of the consumer
+                Properties data = new Properties();
+                aContext.retrieveBinary("DATA", new PropertiesAdapter(data));
+                Assert.assertEquals(param, data.getProperty("param"));
+            }
+        };
+
+        consumer.addImport(producer, "DATA");
+
+        DefaultBatchTask batchTask = new DefaultBatchTask();
+        batchTask.setParameterSpace(pSpace);
+        batchTask.addTask(producer);
+        batchTask.addTask(consumer);
+
+        Lab.getInstance().setProperty(BatchTaskEngine.PROP_CONFIGURATIONS, "3");
+        try {
+            Lab.getInstance().run(batchTask);
+        }
+        finally {
+            Lab.getInstance().setProperty(BatchTaskEngine.PROP_CONFIGURATIONS, "1");
+        }
+
+        String subtasks = batchTask.getAttribute(BatchTaskEngine.SUBTASKS_KEY);
+        Assert.assertEquals(12, subtasks.split(",").length);
+    }
+
+    @Test
+    public void testParallelSubtaskExecutions()
+        throws Exception
+    {
+        Dimension<String> dim = Dimension.create("param", "1", "2", "3", "4");
+
+        ParameterSpace pSpace = new ParameterSpace(dim);
+
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+
+        Task task = new ExecutableTaskBase()
+        {
+            @Discriminator
+            private String param;
+
+            @Override
+            public void execute(TaskContext aContext)
+                throws Exception
+            {
+                int current = running.incrementAndGet();
+                synchronized (maxRunning) {
+                    maxRunning.set(Math.max(maxRunning.get(), current));
+                }
+                String before = param;
+                Thread.sleep(200);
+                // Another configuration must not reconfigure the executing instance
+                Assert.assertEquals(before, param);
+                running.decrementAndGet();
+            }
+        };
+
+        DefaultBatchTask batchTask = new DefaultBatchTask();
+        batchTask.setParameterSpace(pSpace);
+        batchTask.addTask(task);
+
+        Lab.getInstance().setProperty(BatchTaskEngine.PROP_CONFIGURATIONS, "4");
+        try {
+            Lab.getInstance().run(batchTask);
+        }
+        finally {
+            Lab.getInstance().setProperty(BatchTaskEngine.PROP_CONFIGURATIONS, "1");
+        }
+
+        // The single subtask executes several configurations at the same time
+        Assert.assertTrue(maxRunning.get() > 1);
+        String subtasks = batchTask.getAttribute(BatchTaskEngine.SUBTASKS_KEY);
+        Assert.assertEquals(4, subtasks.split(",").length);
+    }
+
+    @Test
+    public void testSubtaskContextIds()
+        throws Exception
+    {
+        Dimension<String> dim = Dimension.create("param", "1", "2");
+
+        ParameterSpace pSpace = new ParameterSpace(dim);
+
+        Task task = new ExecutableTaskBase()
+        {
+            @Discriminator
+            private String param;
+
+            @Override
+            public void execute(TaskContext aContext)
+                throws Exception
+            {
+                // Nothing to do
+            }
+        };
+
+        DefaultBatchTask batchTask = new DefaultBatchTask();
+        batchTask.setParameterSpace(pSpace);
+        batchTask.addTask(task);
+
+        SequentialIdGenerator generator = new SequentialIdGenerator(42);
+        String node = generator.nextId().substring(13);
+
+        DefaultTaskContextFactory contextFactory = (DefaultTaskContextFactory) Lab.getInstance()
+                .getTaskContextFactory();
+        ContextIdGenerator previous = contextFactory.getIdGenerator();
+        contextFactory.setIdGenerator(generator);
+        String batchId;
+        try {
+            batchId = Lab.getInstance().run(batchTask);
+        }
+        finally {
+            contextFactory.setIdGenerator(previous);
+        }
+
+        // The subtasks are run with a scoped context factory which must use the same generator
+        Assert.assertTrue(batchId.endsWith(node));
+        String subtasks = batchTask.getAttribute(BatchTaskEngine.SUBTASKS_KEY);
+        String[] ids = subtasks.substring(1, subtasks.length() - 1).split("\\s*,\\s*");
+        Assert.assertEquals(2, ids.length);
+        for (String id : ids) {
+            String uniquePart = id.substring(id.lastIndexOf('-') + 1);
+            Assert.assertEquals(id, 23, uniquePart.length());
+            Assert.assertTrue(id, uniquePart.endsWith(node));
+        }
+    }
+
+    @Test
+    public void testParallelConfigurationsShareSubtasks()
+        throws Exception
+    {
+        Dimension<String> dim = Dimension.create("param", "1", "2", "3", "4", "5", "6");
+
+        ParameterSpace pSpace = new ParameterSpace(dim);
+
+        final AtomicInteger sharedRuns = new AtomicInteger();
+
+        Task shared = new ExecutableTaskBase()
+        {
+            @Override
+            public void execute(TaskContext aContext)
+                throws Exception
+            {
+                sharedRuns.incrementAndGet();
+                // Give the other configurations a chance to look for this execution
+                Thread.sleep(50);
+                aContext.storeBinary("DATA", new PropertiesAdapter(new Properties()));
+            }
+        };
+
+        Task consumer = new ExecutableTaskBase()
+        {
+            @Discriminator
+            private String param;
+
+            @Override
+            public void execute(TaskContext aContext)
+                throws Exception
+            {
+                // Nothing to do
+            }
+        };
+
+        consumer.addImport(shared, "DATA");
+
+        DefaultBatchTask batchTask = new DefaultBatchTask();
+        batchTask.setParameterSpace(pSpace);
+        batchTask.addTask(shared);
+        batchTask.addTask(consumer);
+
+        Lab.getInstance().setProperty(BatchTaskEngine.PROP_CONFIGURATIONS, "3");
+        try {
+            Lab.getInstance().run(batchTask);
+        }
+        finally {
+            Lab.getInstance().setProperty(BatchTaskEngine.PROP_CONFIGURATIONS, "1");
+        }
+
+        // The subtask has no discriminators and must run only once for all configurations
+        Assert.assertEquals(1, sharedRuns.get());
+        String subtasks = batchTask.getAttribute(BatchTaskEngine.SUBTASKS_KEY);
+        Assert.assertEquals(7, subtasks.split(",").length);
+    }
+
+    @Test
+    public void testMemoryBaseline()
+        throws Exception
+    {
+        Task task = new ExecutableTaskBase()
+        {
+            @Override
+            public void execute(TaskContext aContext)
+                throws Exception
+            {
+                aContext.storeBinary("DATA", new PropertiesAdapter(new Properties()));
+            }
+        };
+
+        // Disabled by default
+        String id = Lab.getInstance().run(task);
+        TaskContextMetadata meta = Lab.getInstance().getStorageService().getContext(id);
+        Assert.assertNull(meta.getStatistic(DefaultLifeCycleManager.STAT_HEAP_USED_BEGIN));
+
+        Lab.getInstance().setProperty(DefaultLifeCycleManager.PROP_MEMORY_BASELINE, "true");
+        try {
+            id = Lab.getInstance().run(task);
+        }
+        finally {
+            Lab.getInstance().setProperty(DefaultLifeCycleManager.PROP_MEMORY_BASELINE, "false");
+        }
+        meta = Lab.getInstance().getStorageService().getContext(id);
+        Assert.assertTrue(meta.getStatistic(DefaultLifeCycleManager.STAT_HEAP_USED_BEGIN) > 0);
+        Assert.assertTrue(meta.getStatistic(DefaultLifeCycleManager.STAT_HEAP_MAX) > 0);
+        Assert.assertNotNull(meta.getStatistic(DefaultLifeCycleManager.STAT_GC_COUNT));
+    }
+
+    @Test
+    public void testStatistics()
+        throws Exception
+    {
+        Task task = new ExecutableTaskBase()
+        {
+            @Override
+            public void execute(TaskContext aContext)
+                throws Exception
+            {
+                Thread.sleep(50);
+                aContext.storeBinary("DATA", new PropertiesAdapter(new Properties()));
+            }
+        };
+        task.addReport(StatisticsTestReport.class);
+
+        String id = Lab.getInstance().run(task);
+        TaskContextMetadata meta = Lab.getInstance().getStorageService().getContext(id);
+        Assert.assertTrue(meta.getStatistic(DefaultLifeCycleManager.STAT_TIME_EXECUTE) >= 50000000);
+        Assert.assertTrue(meta.getStatistic(DefaultLifeCycleManager.STAT_BYTES_WRITTEN) > 0);
+        Assert.assertTrue(meta.getStatistic(DefaultLifeCycleManager.STAT_BYTES_READ) > 0);
+        Assert.assertNotNull(meta.getStatistic(DefaultLifeCycleManager.STAT_TIME_RESOLVE_IMPORTS));
+        Assert.assertNotNull(meta.getStatistic(DefaultLifeCycleManager.STAT_TIME_INITIALIZE));
+        Assert.assertNotNull(meta.getStatistic(DefaultLifeCycleManager.STAT_TIME_BEGIN));
+        Assert.assertNotNull(meta.getStatistic(DefaultLifeCycleManager.STAT_TIME_REPORTS));
+        Assert.assertNotNull(meta.getStatistic(DefaultLifeCycleManager.STAT_TIME_REPORT
+                + StatisticsTestReport.class.getName()));
+    }
+
+    @Test
+    public void testSuccessiveHalving()
+        throws Exception
+    {
+        final List<String> runs = Collections.synchronizedList(new ArrayList<String>());
+        
+        Task task = new ExecutableTaskBase()
+        {
+            @Discriminator
+            private int x;
+
+            @Discriminator
+            private int resource;
+
+            @Override
+            public void execute(TaskContext aContext)
+                throws Exception
+            {
+                runs.add(x + "@" + resource);
+                
+                // Best score for x = 7
+                Properties results = new Properties();
+                results.setProperty("score", String.valueOf(-Math.abs(x - 7)));
+                aContext.storeBinary("results.prop", new PropertiesAdapter(results));
+            }
+        };
+
+        SuccessiveHalvingStrategy strategy = new SuccessiveHalvingStrategy(9);
+        strategy.setResource("resource", 1);
+        strategy.setMetric("results.prop", "score", true);
+        
+        DefaultBatchTask batchTask = new DefaultBatchTask();
+        batchTask.setParameterSpace(new ParameterSpace(Dimension.create("x", 1, 2, 3, 4, 5, 6,
+                7, 8, 9)));
+        batchTask.setExplorationStrategy(strategy);
+        batchTask.addTask(task);
+
+        Lab.getInstance().run(batchTask);
+
+        // 9 configurations with resource 1, the best 3 with resource 3 and the best with 9
+        Assert.assertEquals(9 + 3 + 1, runs.size());
+        Assert.assertEquals(9 + 3 + 1, strategy.size());
+        Assert.assertTrue(runs.subList(9, 12).containsAll(Arrays.asList("6@3", "7@3", "8@3")));
+        Assert.assertEquals("7@9", runs.get(12));
+    }
+
+    public static class StatisticsTestReport
+        extends ReportBase
+    {
+        @Override
+        public void execute()
+            throws Exception
+        {
+            getContext().retrieveBinary("DATA", new PropertiesAdapter());
+        }
+    }
+
     public static class ConfigDumperTask1
         extends ExecutableTaskBase
         implements ConfigurationAware
@@ -18,11 +18,19 @@
 package de.tudarmstadt.ukp.dkpro.lab.task;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.Before;
@@ -32,10 +40,13 @@ import org.junit.rules.TestName;
 
 import de.tudarmstadt.ukp.dkpro.lab.Lab;
 import de.tudarmstadt.ukp.dkpro.lab.engine.TaskContext;
+import de.tudarmstadt.ukp.dkpro.lab.engine.impl.BatchTaskEngine;
 import de.tudarmstadt.ukp.dkpro.lab.storage.filesystem.FileSystemStorageService;
+import de.tudarmstadt.ukp.dkpro.lab.storage.impl.PropertiesAdapter;
 import de.tudarmstadt.ukp.dkpro.lab.task.impl.DefaultBatchTask;
 import de.tudarmstadt.ukp.dkpro.lab.task.impl.ExecutableTaskBase;
 import de.tudarmstadt.ukp.dkpro.lab.task.impl.FoldDimensionBundle;
+import de.tudarmstadt.ukp.dkpro.lab.task.impl.KeyExtractor;
 
 public class FoldDimensionBundleTest
 {
@@ -203,6 +214,129 @@ public class FoldDimensionBundleTest
             assertEquals(expected, actual.toString());
     }
 	
+    @Test
+    public void testKeyExtractor()
+    {
+        Dimension<String> baseData = Dimension.create("base", "aa/1.txt", "aa/2.txt", "bb/3.txt",
+                "cc/4.txt", "dd/5.txt", "dd/6.txt", "ee/7.txt", "ff/8.txt", "gg/9.txt",
+                "gg/10.txt");
+
+        final int[] calls = new int[1];
+        KeyExtractor<String, String> folder = new KeyExtractor<String, String>()
+        {
+            @Override
+            public String getKey(String aFilename)
+            {
+                calls[0]++;
+                return new File(aFilename).getParentFile().getName();
+            }
+        };
+
+        FoldDimensionBundle<String> foldBundle = new FoldDimensionBundle<String>("fold",
+                baseData, 3, folder);
+
+        // Same distribution as with the equivalent comparator in testFoldDistribution
+        String expected =
+                "0 - [aa/1.txt, aa/2.txt, ff/8.txt] [bb/3.txt, dd/5.txt, dd/6.txt, cc/4.txt, ee/7.txt, gg/9.txt, gg/10.txt]\n" +
+                "1 - [bb/3.txt, dd/5.txt, dd/6.txt] [aa/1.txt, aa/2.txt, ff/8.txt, cc/4.txt, ee/7.txt, gg/9.txt, gg/10.txt]\n" +
+                "2 - [cc/4.txt, ee/7.txt, gg/9.txt, gg/10.txt] [aa/1.txt, aa/2.txt, ff/8.txt, bb/3.txt, dd/5.txt, dd/6.txt]\n";
+
+        ParameterSpace pSpace = new ParameterSpace(foldBundle);
+        for (int pass = 0; pass < 2; pass++) {
+            StringBuilder actual = new StringBuilder();
+            int n = 0;
+            for (Map<String, Object> config : pSpace) {
+                actual.append(String.format("%d - %s %s%n", n, config.get("fold_validation"),
+                        config.get("fold_training")));
+                n++;
+            }
+            assertEquals(3, n);
+            assertEquals(expected, actual.toString());
+        }
+
+        // The folded data did not change, so the buckets were only computed once
+        assertEquals(10, calls[0]);
+    }
+
+    @Test
+    public void testStratified()
+    {
+        Dimension<String> baseData = Dimension.create("base", "pos/1", "pos/2", "pos/3", "pos/4",
+                "pos/5", "pos/6", "neg/7", "neg/8", "neg/9");
+
+        FoldDimensionBundle<String> foldBundle = new FoldDimensionBundle<String>("fold",
+                baseData, 3);
+        foldBundle.setLabelExtractor(new KeyExtractor<String, String>()
+        {
+            @Override
+            public String getKey(String aItem)
+            {
+                return aItem.substring(0, aItem.indexOf('/'));
+            }
+        });
+
+        int n = 0;
+        for (Map<String, Object> config : new ParameterSpace(foldBundle)) {
+            Collection<?> validation = (Collection<?>) config.get("fold_validation");
+            int neg = 0;
+            for (Object item : validation) {
+                if (((String) item).startsWith("neg")) {
+                    neg++;
+                }
+            }
+            assertEquals(3, validation.size());
+            assertEquals(1, neg);
+            n++;
+        }
+        assertEquals(3, n);
+    }
+
+    @Test
+    public void testRepeatedFolds()
+    {
+        Dimension<String> baseData = Dimension.create("base", "1", "2", "3", "4", "5", "6", "7",
+                "8", "9", "10");
+
+        FoldDimensionBundle<String> foldBundle = new FoldDimensionBundle<String>("fold",
+                baseData, 5);
+        foldBundle.setRepetitions(2);
+        foldBundle.setSeed(42);
+
+        ParameterSpace pSpace = new ParameterSpace(foldBundle);
+        assertEquals(10, pSpace.size());
+
+        List<String> validations = new ArrayList<String>();
+        Set<Object> repetition = new HashSet<Object>();
+        for (Map<String, Object> config : pSpace) {
+            Collection<?> validation = (Collection<?>) config.get("fold_validation");
+            Collection<?> training = (Collection<?>) config.get("fold_training");
+            assertEquals(2, validation.size());
+            assertEquals(8, training.size());
+            validations.add(validation.toString());
+            
+            // Each repetition covers all the data once
+            repetition.addAll(validation);
+            if (validations.size() % 5 == 0) {
+                assertEquals(10, repetition.size());
+                repetition.clear();
+            }
+        }
+        assertEquals(10, validations.size());
+        
+        // The repetitions are shuffled differently
+        assertFalse(validations.subList(0, 5).equals(validations.subList(5, 10)));
+
+        // The same seed produces the same folds
+        FoldDimensionBundle<String> other = new FoldDimensionBundle<String>("fold", baseData, 5);
+        other.setRepetitions(2);
+        other.setSeed(42);
+        List<String> otherValidations = new ArrayList<String>();
+        for (Map<String, Object> config : new ParameterSpace(other)) {
+            otherValidations.add(config.get("fold_validation").toString());
+        }
+        assertEquals(validations, otherValidations);
+    }
+
 	@Test
 	public void testFoldInjection() throws Exception
 	{
@@ -256,6 +390,103 @@ public class FoldDimensionBundleTest
 		assertEquals(expected, actual.toString());
 	}
 
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testTrainingView()
+	{
+		Dimension<String> baseData = Dimension.create("base", "1", "2", "3", "4", "5", "6", "7", 
+				"8", "9", "10");
+		
+		FoldDimensionBundle<String> foldBundle = new FoldDimensionBundle<String>("fold", baseData, 3);
+		foldBundle.rewind();
+		foldBundle.next();
+		foldBundle.next();
+		
+		List<String> training = (List<String>) foldBundle.current().get("fold_training");
+		assertEquals(Arrays.asList("1", "4", "7", "10", "3", "6", "9"), training);
+		assertEquals(7, training.size());
+		assertEquals("1", training.get(0));
+		assertEquals("10", training.get(3));
+		assertEquals("3", training.get(4));
+		assertEquals("9", training.get(6));
+		
+		try {
+			training.add("11");
+			fail("Training data should be read-only");
+		}
+		catch (UnsupportedOperationException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testParallelFolds()
+		throws Exception
+	{
+		Dimension<String> baseData = Dimension.create("base", "1", "2", "3", "4", "5", "6", "7", 
+				"8", "9", "10");
+		
+		FoldDimensionBundle<String> foldBundle = new FoldDimensionBundle<String>("fold", baseData, 3);
+
+		ParameterSpace pSpace = new ParameterSpace(Dimension.create("x", "a", "b"), foldBundle);
+
+		Task producer = new ExecutableTaskBase()
+		{
+			@Discriminator
+			String x;
+
+			@Discriminator
+			Collection<String> fold_validation;
+			
+			@Override
+			public void execute(TaskContext aContext)
+				throws Exception
+			{
+				Properties data = new Properties();
+				data.setProperty("data", x + fold_validation);
+				aContext.storeBinary("DATA", new PropertiesAdapter(data));
+			}
+		};
+
+		Task consumer = new ExecutableTaskBase()
+		{
+			@Discriminator
+			String x;
+
+			@Discriminator
+			Collection<String> fold_validation;
+			
+			@Override
+			public void execute(TaskContext aContext)
+				throws Exception
+			{
+				// The subtasks are shared by all folds, so make sure the data matches the fold
+				// of the consumer
+				Properties data = new Properties();
+				aContext.retrieveBinary("DATA", new PropertiesAdapter(data));
+				assertEquals(x + fold_validation, data.getProperty("data"));
+			}
+		};
+		
+		consumer.addImport(producer, "DATA");
+
+		DefaultBatchTask batchTask = new DefaultBatchTask();
+		batchTask.setParameterSpace(pSpace);
+		batchTask.addTask(producer);
+		batchTask.addTask(consumer);
+		
+		Lab.getInstance().setProperty(BatchTaskEngine.PROP_FOLDS, "3");
+		try {
+			Lab.getInstance().run(batchTask);
+		}
+		finally {
+			Lab.getInstance().setProperty(BatchTaskEngine.PROP_FOLDS, "1");
+		}
+		
+		String subtasks = batchTask.getAttribute(BatchTaskEngine.SUBTASKS_KEY);
+		assertEquals(2 * 3 * 2, subtasks.split(",").length);
+	}
+
 	@Rule
 	public TestName name = new TestName();
 
@@ -20,7 +20,10 @@ package de.tudarmstadt.ukp.dkpro.lab.task;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.junit.Test;
 
@@ -85,5 +88,76 @@ public class ParameterSpaceTest
 		}
 		assertEquals((3 * 2 * 2) - 2, n);
 		assertEquals((3 * 2 * 2), pSpace.getStepCount());
+		assertEquals((3 * 2 * 2) - 2, pSpace.size());
+	}
+
+	@Test
+	public void testSize()
+	{
+		Dimension<String> letters = Dimension.create("letters", "a", "b", "c");
+		Dimension<Integer> numbers = Dimension.create("numbers");
+		Dimension<Character> symbols = Dimension.create("symbols", '!', '&');
+
+		assertEquals(3 * 2, new ParameterSpace(letters, numbers, symbols).size());
+		assertEquals(1, new ParameterSpace().size());
+	}
+
+	@Test
+	public void testSizeWhileIterating()
+	{
+		Dimension<String> letters = Dimension.create("letters", "a", "b", "c");
+		Dimension<Character> symbols = Dimension.create("symbols", '!', '&');
+
+		ParameterSpace pSpace = new ParameterSpace(letters, symbols);
+		Set<String> seen = new HashSet<String>();
+		for (Map<String, Object> config : pSpace) {
+			assertEquals(3 * 2, pSpace.size());
+			seen.add(config.get("letters") + "" + config.get("symbols"));
+		}
+		assertEquals(3 * 2, seen.size());
+		assertEquals(3 * 2, pSpace.getStepCount());
+	}
+
+	@Test
+	public void testWithScopedConstraint()
+	{
+		Dimension<String> letters = Dimension.create("letters", "a", "b", "c");
+		Dimension<Integer> numbers = Dimension.create("numbers", 1, 2);
+		Dimension<Character> symbols = Dimension.create("symbols", '!', '&');
+
+		final int[] calls = new int[1];
+		ParameterSpace pSpace = new ParameterSpace(letters, numbers, symbols);
+		pSpace.addConstraint(new ScopedConstraint()
+		{
+			@Override
+			public Set<String> getKeys()
+			{
+				return Collections.singleton("letters");
+			}
+
+			@Override
+			public boolean isValid(Map<String, Object> aConfiguration)
+			{
+				calls[0]++;
+				return !aConfiguration.get("letters").equals("b");
+			}
+		});
+
+		assertEquals((3 * 2 * 2) - 4, pSpace.size());
+		assertEquals(3, calls[0]);
+
+		calls[0] = 0;
+		int n = 0;
+		for (Map<String, Object> config : pSpace) {
+			assertEquals(3, config.size());
+			if ("b".equals(config.get("letters"))) {
+				fail();
+			}
+			n++;
+		}
+		assertEquals((3 * 2 * 2) - 4, n);
+		assertEquals((3 * 2 * 2), pSpace.getStepCount());
+		// Each letter is decided once, the subtrees below it are not checked anymore
+		assertEquals(3, calls[0]);
 	}
 }
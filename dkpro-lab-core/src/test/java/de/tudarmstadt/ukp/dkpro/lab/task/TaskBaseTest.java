@@ -17,6 +17,13 @@
  ******************************************************************************/
 package de.tudarmstadt.ukp.dkpro.lab.task;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Test;
 
 import de.tudarmstadt.ukp.dkpro.lab.task.impl.TaskBase;
@@ -28,4 +35,47 @@ public class TaskBaseTest {
 		TaskBase base = new TaskBase();
 		base.addReport(null);
 	}
+
+	@Test
+	public void discriminatorFingerprintTest() {
+		DiscriminatedTask task = new DiscriminatedTask();
+		task.value = "a";
+		task.values = Arrays.asList("x", "y");
+		String fingerprint = task.getDiscriminatorFingerprint();
+		assertEquals(40, fingerprint.length());
+		assertEquals("[x, y]", task.getDescriminators().get(
+				DiscriminatedTask.class.getName() + "|values"));
+		
+		// Same discriminators, same fingerprint
+		DiscriminatedTask other = new DiscriminatedTask();
+		other.value = "a";
+		other.values = Arrays.asList("x", "y");
+		assertEquals(fingerprint, other.getDiscriminatorFingerprint());
+		
+		// Changed field
+		task.value = "b";
+		assertFalse(fingerprint.equals(task.getDiscriminatorFingerprint()));
+		task.value = "a";
+		assertEquals(fingerprint, task.getDiscriminatorFingerprint());
+		
+		// Collection changed in place
+		task.values = new ArrayList<String>(task.values);
+		task.values.add("z");
+		assertFalse(fingerprint.equals(task.getDiscriminatorFingerprint()));
+		assertEquals("[x, y, z]", task.getDescriminators().get(
+				DiscriminatedTask.class.getName() + "|values"));
+		task.values.remove("z");
+		assertEquals(fingerprint, task.getDiscriminatorFingerprint());
+		
+		// Changed discriminator set explicitly
+		task.setDescriminator("extra", "1");
+		assertFalse(fingerprint.equals(task.getDiscriminatorFingerprint()));
+	}
+	
+	public static class DiscriminatedTask extends TaskBase {
+		@Discriminator
+		private String value;
+		@Discriminator
+		private List<String> values;
+	}
 }
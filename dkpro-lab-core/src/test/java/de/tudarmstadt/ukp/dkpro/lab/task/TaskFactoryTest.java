@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.task;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.dkpro.lab.task.impl.TaskBase;
+
+public class TaskFactoryTest
+{
+    @Test
+    public void testConfigureTask()
+    {
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> config = new HashMap<String, Object>();
+            config.put("value", i);
+            config.put("name", "task" + i);
+            config.put("label", 42);
+            config.put("unrelated", "ignored");
+
+            ConfiguredTask task = new ConfiguredTask();
+            TaskFactory.configureTask(task, config);
+
+            // Setter is preferred over field access
+            assertEquals(i, task.value);
+            assertEquals(1, task.setterCalls);
+            // Field access
+            assertEquals("task" + i, task.name);
+            // Values not matching the property type are converted
+            assertEquals("42", task.label);
+        }
+    }
+
+    public static class ConfiguredTask
+        extends TaskBase
+    {
+        private int value;
+        private String name;
+        private String label;
+        private int setterCalls;
+
+        public void setValue(int aValue)
+        {
+            value = aValue;
+            setterCalls++;
+        }
+    }
+}
@@ -23,10 +23,12 @@ import de.tudarmstadt.ukp.dkpro.lab.engine.TaskContext;
 import de.tudarmstadt.ukp.dkpro.lab.engine.TaskExecutionEngine;
 import de.tudarmstadt.ukp.dkpro.lab.engine.impl.DefaultTaskExecutionService;
 import de.tudarmstadt.ukp.dkpro.lab.engine.impl.MultiThreadBatchTaskEngine;
+import de.tudarmstadt.ukp.dkpro.lab.storage.UnresolvedImportException;
 import de.tudarmstadt.ukp.dkpro.lab.storage.impl.PropertiesAdapter;
 import de.tudarmstadt.ukp.dkpro.lab.task.*;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.exception.ExceptionUtils;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -37,6 +39,7 @@ import org.junit.rules.TestName;
 import java.io.File;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class MultiThreadBatchTaskTest
 {
@@ -202,6 +205,59 @@ public class MultiThreadBatchTaskTest
         Lab.getInstance().run(outerTask);
     }
 
+    @Test
+    public void testDeferredImport()
+            throws Exception
+    {
+        // Never added to the batch, so its execution cannot be found
+        Task producer = new ExecutableTaskBase()
+        {
+            @Override
+            public void execute(TaskContext aContext)
+                    throws Exception
+            {
+                // Nothing to do
+            }
+        };
+
+        final AtomicBoolean executed = new AtomicBoolean();
+        Task other = new ExecutableTaskBase()
+        {
+            @Override
+            public void execute(TaskContext aContext)
+                    throws Exception
+            {
+                executed.set(true);
+            }
+        };
+
+        Task consumer = new ExecutableTaskBase()
+        {
+            @Override
+            public void execute(TaskContext aContext)
+                    throws Exception
+            {
+                // Nothing to do
+            }
+        };
+        consumer.addImport(producer, "DATA");
+
+        DefaultBatchTask batchTask = new DefaultBatchTask();
+        batchTask.addTask(consumer);
+        batchTask.addTask(other);
+
+        try {
+            Lab.getInstance().run(batchTask);
+            Assert.fail("Expected ExecutionException");
+        }
+        catch (ExecutionException e) {
+            // The import is only given up on at runtime, not before the batch is started
+            Assert.assertTrue(ExceptionUtils.indexOfThrowable(e,
+                    UnresolvedImportException.class) != -1);
+            Assert.assertTrue(executed.get());
+        }
+    }
+
     @Test(expected = ExecutionException.class)
     public void testUnresolvable()
             throws Exception
@@ -19,10 +19,16 @@ package de.tudarmstadt.ukp.dkpro.lab.task.impl;
 
 import de.tudarmstadt.ukp.dkpro.lab.Lab;
 import de.tudarmstadt.ukp.dkpro.lab.engine.TaskContext;
+import de.tudarmstadt.ukp.dkpro.lab.engine.TaskExecutionEngine;
+import de.tudarmstadt.ukp.dkpro.lab.engine.impl.DefaultTaskExecutionService;
+import de.tudarmstadt.ukp.dkpro.lab.engine.impl.MultiThreadBatchTaskEngine;
 import de.tudarmstadt.ukp.dkpro.lab.storage.impl.PropertiesAdapter;
+import de.tudarmstadt.ukp.dkpro.lab.task.BatchTask;
 import de.tudarmstadt.ukp.dkpro.lab.task.Task;
 
 import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -34,6 +40,8 @@ import java.util.*;
 public class MultiThreadTaskPerformanceTest
 {
     private DefaultBatchTask batchTask;
+    private Class<? extends TaskExecutionEngine> oldEngine;
+    private String oldThreads;
 
     @Rule
     public TestName name = new TestName();
@@ -48,6 +56,26 @@ public class MultiThreadTaskPerformanceTest
 
         //        batchTask = new BatchTask();
         batchTask = new DefaultBatchTask();
+
+        // Configure Lab to use MultiThreadBatchTaskEngine
+        DefaultTaskExecutionService execService = (DefaultTaskExecutionService) Lab.getInstance()
+                .getTaskExecutionService();
+        oldEngine = execService.getEngine(BatchTask.class);
+        execService.registerEngine(BatchTask.class, MultiThreadBatchTaskEngine.class);
+        oldThreads = Lab.getInstance().getProperty(MultiThreadBatchTaskEngine.PROP_THREADS);
+        Lab.getInstance().setProperty(MultiThreadBatchTaskEngine.PROP_THREADS, "10");
+    }
+
+    @After
+    public void teardown()
+    {
+        // Restore Lab to using the previous BatchTask engine
+        ((DefaultTaskExecutionService) Lab.getInstance().getTaskExecutionService())
+                .registerEngine(BatchTask.class, oldEngine);
+        // Properties cannot hold null, so fall back to the default of the engine
+        Lab.getInstance().setProperty(MultiThreadBatchTaskEngine.PROP_THREADS,
+                oldThreads != null ? oldThreads : String.valueOf(Runtime.getRuntime()
+                        .availableProcessors() - 1));
     }
 
     static class DummyTask
@@ -115,6 +143,13 @@ public class MultiThreadTaskPerformanceTest
             batchTask.addTask(t);
         }
 
+        long start = System.currentTimeMillis();
         Lab.getInstance().run(batchTask);
+        System.out.printf("%d tasks completed in %d ms%n", allTasksShuffled.size(),
+                System.currentTimeMillis() - start);
+
+        // Every task has been executed exactly once
+        String subtasks = batchTask.getAttribute(BatchTask.SUBTASKS_KEY);
+        Assert.assertEquals(allTasksShuffled.size(), subtasks.split(",").length);
     }
 }
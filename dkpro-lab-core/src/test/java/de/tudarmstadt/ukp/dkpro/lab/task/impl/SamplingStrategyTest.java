@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright 2015
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.dkpro.lab.task.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.dkpro.lab.task.Constraint;
+import de.tudarmstadt.ukp.dkpro.lab.task.Dimension;
+import de.tudarmstadt.ukp.dkpro.lab.task.ExplorationStrategy;
+import de.tudarmstadt.ukp.dkpro.lab.task.ParameterSpace;
+
+public class SamplingStrategyTest
+{
+    @Test
+    public void testRandomSampling()
+    {
+        ParameterSpace pSpace = createParameterSpace();
+
+        List<Map<String, Object>> configs = run(new RandomSamplingStrategy(10, 42), pSpace);
+        assertEquals(10, configs.size());
+        assertEquals(10, new HashSet<Map<String, Object>>(configs).size());
+        for (Map<String, Object> config : configs) {
+            assertTrue(pSpace.isValid(config));
+        }
+
+        // Same seed, same sample
+        assertEquals(configs, run(new RandomSamplingStrategy(10, 42), pSpace));
+    }
+
+    @Test
+    public void testRandomSamplingExhaustsSpace()
+    {
+        ParameterSpace pSpace = createParameterSpace();
+
+        List<Map<String, Object>> configs = run(new RandomSamplingStrategy(1000), pSpace);
+        assertEquals(pSpace.size(), configs.size());
+        assertEquals(pSpace.size(), new HashSet<Map<String, Object>>(configs).size());
+    }
+
+    @Test
+    public void testLatinHypercube()
+    {
+        ParameterSpace pSpace = new ParameterSpace(
+                Dimension.create("letters", "a", "b", "c", "d"),
+                Dimension.create("numbers", 1, 2, 3, 4),
+                Dimension.create("empty"));
+
+        List<Map<String, Object>> configs = run(new LatinHypercubeStrategy(4, 7), pSpace);
+        assertEquals(4, configs.size());
+
+        // Every value of every dimension is used exactly once
+        Set<Object> letters = new HashSet<Object>();
+        Set<Object> numbers = new HashSet<Object>();
+        for (Map<String, Object> config : configs) {
+            letters.add(config.get("letters"));
+            numbers.add(config.get("numbers"));
+        }
+        assertEquals(4, letters.size());
+        assertEquals(4, numbers.size());
+    }
+
+    private List<Map<String, Object>> run(ExplorationStrategy aStrategy, ParameterSpace aSpace)
+    {
+        aStrategy.begin(aSpace);
+        long size = aStrategy.size();
+
+        List<Map<String, Object>> configs = new ArrayList<Map<String, Object>>();
+        for (Map<String, Object> config : aStrategy.nextRound()) {
+            configs.add(config);
+        }
+        assertNull(aStrategy.nextRound());
+        assertEquals(size, configs.size());
+        return configs;
+    }
+
+    private ParameterSpace createParameterSpace()
+    {
+        ParameterSpace pSpace = new ParameterSpace(
+                Dimension.create("letters", "a", "b", "c", "d", "e"),
+                Dimension.create("numbers", 1, 2, 3, 4),
+                Dimension.create("symbols", '!', '&', '?'));
+        pSpace.addConstraint(new Constraint()
+        {
+            @Override
+            public boolean isValid(Map<String, Object> aConfiguration)
+            {
+                // a implies 1
+                return !aConfiguration.get("letters").equals("a")
+                        || aConfiguration.get("numbers").equals(1);
+            }
+        });
+        return pSpace;
+    }
+}